@@ -0,0 +1,66 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.auth.User;
+import ci553.happyshop.storageAccess.UserDatabaseRW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins through UserDatabaseRW.authenticateUser.
+ *
+ * - authenticate: the usual case, the user row is in UserCache so the cost is mostly the
+ *   PBKDF2 check (set -Dhappyshop.pbkdf2.iterations with -jvmArgsAppend to compare counts)
+ * - authenticateUncached: the cache is cleared first, so the row is read from the database too
+ * - unknownUser: a username that does not exist, answered by the username Bloom filter
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private BenchmarkDatabase database;
+    private UserDatabaseRW userDatabaseRW;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create(1);
+        userDatabaseRW = new UserDatabaseRW();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.delete();
+    }
+
+    @Benchmark
+    public User authenticate() throws Exception {
+        return userDatabaseRW.authenticateUser(BenchmarkDatabase.USERNAME, BenchmarkDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public User authenticateUncached() throws Exception {
+        UserDatabaseRW.clearCache();
+        return userDatabaseRW.authenticateUser(BenchmarkDatabase.USERNAME, BenchmarkDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public User unknownUser() throws Exception {
+        return userDatabaseRW.authenticateUser("nobody", BenchmarkDatabase.PASSWORD);
+    }
+}
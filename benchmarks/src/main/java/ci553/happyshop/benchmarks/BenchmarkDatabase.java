@@ -0,0 +1,138 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.auth.PasswordHasher;
+import ci553.happyshop.systemSetup.SchemaMigrator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * BenchmarkDatabase creates a temporary Derby database with the shop's schema and a generated
+ * catalogue, and points the storage layer at it through -Dhappyshop.db.url.
+ *
+ * The storage classes read the URL once when they are loaded, so create() must run before the
+ * first DerbyRW or UserDatabaseRW is made. JMH forks a new JVM for every benchmark and parameter
+ * combination (the default), so each gets its own database; do not run with -f 0.
+ *
+ * Products are 0001, 0002, ... (productKey 1, 2, ...) with descriptions "&lt;word&gt; &lt;id&gt;", where the word is one of
+ * WORDS in turn, so a search for a word matches 1/WORDS.length of the catalogue. Every product
+ * starts with STOCK units so purchases never run out. One customer account, USERNAME/PASSWORD,
+ * is created with the normal PasswordHasher.
+ *
+ * Output is discarded unless -Dhappyshop.bench.quiet=false, see BenchmarkStorage.quietOutput().
+ */
+
+public class BenchmarkDatabase {
+
+    public static final String[] WORDS = {"Radio", "Toaster", "Watch", "Camera", "Drive", "Kettle", "Lamp", "Speaker"};
+    public static final int STOCK = 1_000_000_000;
+    public static final int MAX_CATALOGUE_SIZE = 1_000_000;
+    public static final String USERNAME = "benchuser";
+    public static final String PASSWORD = "benchpass1";
+
+    private final Path folder;
+    private final String dbURL;
+
+    private BenchmarkDatabase(Path folder, String dbURL) {
+        this.folder = folder;
+        this.dbURL = dbURL;
+    }
+
+    public static BenchmarkDatabase create(int catalogueSize) throws IOException, SQLException {
+        if (catalogueSize < 1 || catalogueSize > MAX_CATALOGUE_SIZE) {
+            throw new IllegalArgumentException("catalogueSize must be 1.." + MAX_CATALOGUE_SIZE);
+        }
+        BenchmarkStorage.quietOutput();
+
+        Path folder = Files.createTempDirectory("happyshop-bench");
+        String dbURL = "jdbc:derby:" + folder.resolve("db").toAbsolutePath();
+        // Without ;create=true, so a late write (eg. LastLoginWriter's shutdown flush) cannot
+        // recreate the database after delete()
+        System.setProperty("happyshop.db.url", dbURL);
+
+        BenchmarkDatabase database = new BenchmarkDatabase(folder, dbURL);
+        database.createTables();
+        SchemaMigrator.migrate();
+        database.seed(catalogueSize);
+        return database;
+    }
+
+    public static String productId(int number) {
+        return String.format("%04d", number);
+    }
+
+    // Same tables as SetDatabase; create() then migrates them the same way
+    private void createTables() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(dbURL + ";create=true");
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE ProductTable(" +
+                    "productID CHAR(4) PRIMARY KEY," +
+                    "description VARCHAR(100)," +
+                    "unitPrice DOUBLE," +
+                    "image VARCHAR(100)," +
+                    "inStock INT," +
+                    "maxStock INT," +
+                    "CHECK (inStock >= 0)," +
+                    "CHECK (maxStock >= 0)" +
+                    ")");
+            stmt.executeUpdate("CREATE TABLE UserTable(" +
+                    "username VARCHAR(50) PRIMARY KEY," +
+                    "passwordHash VARCHAR(255) NOT NULL," +
+                    "email VARCHAR(100)," +
+                    "fullName VARCHAR(100)," +
+                    "role VARCHAR(20) NOT NULL," +
+                    "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "lastLogin TIMESTAMP," +
+                    "isActive BOOLEAN DEFAULT TRUE" +
+                    ")");
+        }
+    }
+
+    // Inserted after the migrations, so productID has no length limit and product i gets productKey i
+    private void seed(int catalogueSize) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(dbURL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO ProductTable (productID, description, unitPrice, image, inStock, maxStock) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= catalogueSize; i++) {
+                    String id = productId(i);
+                    insert.setString(1, id);
+                    insert.setString(2, WORDS[i % WORDS.length] + " " + id);
+                    insert.setDouble(3, 1 + (i % 500) / 10.0);
+                    insert.setString(4, id + ".jpg");
+                    insert.setInt(5, STOCK);
+                    insert.setInt(6, STOCK);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO UserTable (username, passwordHash, email, fullName, role) VALUES (?, ?, ?, ?, ?)")) {
+                insert.setString(1, USERNAME);
+                insert.setString(2, PasswordHasher.hashPassword(PASSWORD));
+                insert.setString(3, "bench@happyshop.com");
+                insert.setString(4, "Benchmark Customer");
+                insert.setString(5, "CUSTOMER");
+                insert.executeUpdate();
+            }
+            conn.commit();
+        }
+    }
+
+    // Shuts the database down and deletes its files
+    public void delete() throws IOException {
+        try {
+            DriverManager.getConnection(dbURL + ";shutdown=true");
+        } catch (SQLException e) {
+            // Derby always reports a shutdown as an SQLException (state 08006)
+        }
+        BenchmarkStorage.deleteRecursively(folder);
+    }
+}
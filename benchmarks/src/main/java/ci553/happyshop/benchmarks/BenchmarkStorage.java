@@ -0,0 +1,66 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.systemSetup.SetOrderFileSystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * BenchmarkStorage points StorageLocation at a temporary folder (-Dhappyshop.storage.root) and
+ * creates the order folders and orderCounter file in it, so order benchmarks never touch the
+ * shop's own orders.
+ *
+ * As with BenchmarkDatabase, create() must run before StorageLocation is first loaded, which
+ * JMH's default of one fork per benchmark guarantees.
+ */
+
+public class BenchmarkStorage {
+
+    private final Path root;
+
+    private BenchmarkStorage(Path root) {
+        this.root = root;
+    }
+
+    public static BenchmarkStorage create() throws IOException {
+        quietOutput();
+        Path root = Files.createTempDirectory("happyshop-bench-storage");
+        System.setProperty("happyshop.storage.root", root.toAbsolutePath().toString());
+        SetOrderFileSystem.ensureFolderStructure();
+        return new BenchmarkStorage(root);
+    }
+
+    // Removes the files in a folder, eg. collected orders between iterations, so folders stay small
+    public static void clearFolder(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public void delete() throws IOException {
+        deleteRecursively(root);
+    }
+
+    static void deleteRecursively(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // The shop logs every step to System.out; discard it unless -Dhappyshop.bench.quiet=false,
+    // so the benchmarks do not measure console speed
+    static void quietOutput() {
+        if (Boolean.parseBoolean(System.getProperty("happyshop.bench.quiet", "true"))) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderCounter;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.storageAccess.OrderFileManager;
+import ci553.happyshop.utility.StorageLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The file work under each order, without OrderHub's lock around it:
+ *
+ * - generateOrderId: OrderCounter's locked read-increment-write of orders/orderCounter.txt,
+ *   with 1, 8 or 64 threads. OrderCounter's own ReentrantLock queues the threads ahead of the
+ *   FileChannel lock, so the extra threads measure how IDs are handed out under contention
+ * - createOrderFile: a new order file in orders/ordered, with 1, 8 or 64 threads
+ * - updateAndMoveOrderFile: rewrite the State line and move the file to another folder, with
+ *   1, 8 or 64 threads; each thread moves its own order back and forth between
+ *   orders/progressing and orders/collected
+ *
+ * Throughput and sample-time modes, as in OrderHubBenchmark.
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderFileBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Orders {
+        BenchmarkStorage storage;
+        String orderDetail;
+        final AtomicInteger nextOrderId = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            storage = BenchmarkStorage.create();
+            ArrayList<LineItem> trolley = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                String id = BenchmarkDatabase.productId(i);
+                Product product = new Product(i, id, "Product " + id, "Product " + id, id + ".jpg", 9.99, 100, 100);
+                trolley.add(product.toLineItem(i));
+            }
+            orderDetail = new Order(0, OrderState.Ordered, System.currentTimeMillis(), System.nanoTime(), trolley)
+                    .orderDetails();
+        }
+
+        // Keeps orders/ordered from growing to millions of files over the run
+        @TearDown(Level.Iteration)
+        public void clearOrderedFolder() throws Exception {
+            BenchmarkStorage.clearFolder(StorageLocation.orderedPath);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            storage.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MovingOrder {
+        int orderId;
+        boolean inProgressing;
+
+        @Setup(Level.Trial)
+        public void createOrder(Orders orders) throws Exception {
+            orderId = 1_000_000_000 + orders.nextOrderId.incrementAndGet(); // clear of createOrderFile's IDs
+            OrderFileManager.createOrderFile(StorageLocation.progressingPath, orderId, orders.orderDetail);
+            inProgressing = true;
+        }
+    }
+
+    private void createOrderFile(Orders orders) throws Exception {
+        OrderFileManager.createOrderFile(StorageLocation.orderedPath, orders.nextOrderId.incrementAndGet(), orders.orderDetail);
+    }
+
+    private boolean moveOrderFile(MovingOrder order) throws Exception {
+        boolean moved = order.inProgressing
+                ? OrderFileManager.updateAndMoveOrderFile(order.orderId, OrderState.Collected,
+                        StorageLocation.progressingPath, StorageLocation.collectedPath)
+                : OrderFileManager.updateAndMoveOrderFile(order.orderId, OrderState.Progressing,
+                        StorageLocation.collectedPath, StorageLocation.progressingPath);
+        order.inProgressing = !order.inProgressing;
+        return moved;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int generateOrderId1Thread(Orders orders) throws Exception {
+        return OrderCounter.generateOrderId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int generateOrderId8Threads(Orders orders) throws Exception {
+        return OrderCounter.generateOrderId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int generateOrderId64Threads(Orders orders) throws Exception {
+        return OrderCounter.generateOrderId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void createOrderFile1Thread(Orders orders) throws Exception {
+        createOrderFile(orders);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void createOrderFile8Threads(Orders orders) throws Exception {
+        createOrderFile(orders);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void createOrderFile64Threads(Orders orders) throws Exception {
+        createOrderFile(orders);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean updateAndMoveOrderFile1Thread(MovingOrder order) throws Exception {
+        return moveOrderFile(order);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean updateAndMoveOrderFile8Threads(MovingOrder order) throws Exception {
+        return moveOrderFile(order);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean updateAndMoveOrderFile64Threads(MovingOrder order) throws Exception {
+        return moveOrderFile(order);
+    }
+}
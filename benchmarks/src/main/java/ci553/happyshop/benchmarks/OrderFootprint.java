@@ -0,0 +1,135 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.IntObjectHashMap;
+import ci553.happyshop.utility.LongIntHashMap;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * The heap each open order takes:
+ *
+ * - orders: the Order objects, whose LineItems refer to the shared CatalogueItems of a catalogue
+ *   read beforehand (the catalogue is not counted)
+ * - OrderHub's bookkeeping for them: the order state map, the active order map and the stock
+ *   reserved per product, filled with the same orders
+ *   - boxed: TreeMap&lt;Integer,OrderState&gt;, HashMap&lt;Integer,Order&gt;, HashMap&lt;Long,Integer&gt;,
+ *     as OrderHub used before
+ *   - primitive: IntObjectHashMap&lt;OrderState&gt;, IntObjectHashMap&lt;Order&gt;, LongIntHashMap, as now
+ *
+ * The orders are kept for the whole run, so the map figures leave them out. A memory figure is
+ * not a time, so this is a plain main rather than a JMH benchmark:
+ *
+ *     java -Xmx4g -cp benchmarks/target/benchmarks.jar ci553.happyshop.benchmarks.OrderFootprint [orders] [products]
+ *
+ * Defaults: 1,000,000 open orders of 2 lines each, from a 10,000 product catalogue.
+ */
+
+public final class OrderFootprint {
+
+    private OrderFootprint() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int catalogueSize = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        Product[] catalogue = createCatalogue(catalogueSize);
+        System.out.printf("%,d open orders, %,d products in the catalogue%n", orderCount, catalogueSize);
+
+        long before = usedHeapAfterGc();
+        Order[] orders = createOrders(orderCount, catalogue);
+        report("orders", usedHeapAfterGc() - before, orderCount);
+
+        before = usedHeapAfterGc();
+        Object boxed = fillBoxed(orders);
+        long boxedBytes = usedHeapAfterGc() - before;
+        Reference.reachabilityFence(boxed);
+        report("boxed TreeMap/HashMap", boxedBytes, orderCount);
+        boxed = null;
+
+        before = usedHeapAfterGc();
+        Object primitive = fillPrimitive(orders);
+        long primitiveBytes = usedHeapAfterGc() - before;
+        report("primitive open addressing", primitiveBytes, orderCount);
+
+        Reference.reachabilityFence(primitive);
+        Reference.reachabilityFence(orders);
+        Reference.reachabilityFence(catalogue);
+        System.out.printf("%.1f× less heap per order%n", (double) boxedBytes / Math.max(1, primitiveBytes));
+    }
+
+    private static Product[] createCatalogue(int catalogueSize) {
+        Product[] catalogue = new Product[catalogueSize];
+        for (int i = 0; i < catalogueSize; i++) {
+            catalogue[i] = new Product(i + 1, String.format("%04d", i + 1), "Product " + (i + 1),
+                    "Product " + (i + 1), "0001.jpg", 9.99, 100, 100);
+        }
+        return catalogue;
+    }
+
+    // Each order built the way a checkout builds it: trolley lines, then OrderHub's Order
+    private static Order[] createOrders(int orderCount, Product[] catalogue) {
+        Order[] orders = new Order[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            ArrayList<LineItem> trolley = new ArrayList<>(2);
+            trolley.add(catalogue[i % catalogue.length].toLineItem(1));
+            trolley.add(catalogue[(i * 7 + 3) % catalogue.length].toLineItem(2));
+            orders[i] = new Order(i + 1, OrderState.Ordered, 0, 0, trolley);
+        }
+        return orders;
+    }
+
+    private static Object fillBoxed(Order[] orders) {
+        TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
+        HashMap<Integer, Order> activeOrderMap = new HashMap<>();
+        HashMap<Long, Integer> reservedStockMap = new HashMap<>();
+        for (Order order : orders) {
+            orderMap.put(order.getOrderId(), order.getState());
+            activeOrderMap.put(order.getOrderId(), order);
+            for (LineItem line : order.getLineItems()) {
+                reservedStockMap.merge(line.getProductKey(), line.getQuantity(), Integer::sum);
+            }
+        }
+        return new Object[]{orderMap, activeOrderMap, reservedStockMap};
+    }
+
+    private static Object fillPrimitive(Order[] orders) {
+        IntObjectHashMap<OrderState> orderMap = new IntObjectHashMap<>();
+        IntObjectHashMap<Order> activeOrderMap = new IntObjectHashMap<>();
+        LongIntHashMap reservedStockMap = new LongIntHashMap();
+        for (Order order : orders) {
+            orderMap.put(order.getOrderId(), order.getState());
+            activeOrderMap.put(order.getOrderId(), order);
+            for (LineItem line : order.getLineItems()) {
+                reservedStockMap.addTo(line.getProductKey(), line.getQuantity());
+            }
+        }
+        return new Object[]{orderMap, activeOrderMap, reservedStockMap};
+    }
+
+    private static void report(String label, long bytes, int orderCount) {
+        System.out.printf("%-26s %,8.1f MB   %6.1f bytes per order%n",
+                label, bytes / (1024.0 * 1024.0), (double) bytes / orderCount);
+    }
+
+    // Heap in use once garbage has been collected; several rounds so that finalizable and
+    // softly reachable objects are gone too
+    private static long usedHeapAfterGc() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,147 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.StorageLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The order path through OrderHub, with 1, 8 or 64 threads at once:
+ *
+ * - checkout: OrderHub.newOrder, ie. new order ID, order file written, stock reserved
+ * - pickAndCollect: changeOrderStateMoveFile to Progressing then to Collected, ie. what a picker
+ *   does; the order is placed before each call, outside the measured time
+ *
+ * Run in both throughput and sample-time modes, so the results give orders per millisecond and
+ * the latency percentiles (p50 ... p99.99) that customers waiting at checkout actually see.
+ * Orders are stored under a temporary storage root (see BenchmarkStorage); orders placed by
+ * checkout are collected between iterations so the hub stays at a steady size.
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderHubBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Hub {
+        BenchmarkStorage storage;
+        OrderHub orderHub;
+        final ConcurrentLinkedQueue<Integer> placedOrderIds = new ConcurrentLinkedQueue<>();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            storage = BenchmarkStorage.create();
+            orderHub = OrderHub.getOrderHub();
+        }
+
+        @TearDown(Level.Iteration)
+        public void collectPlacedOrders() throws Exception {
+            Integer orderId;
+            while ((orderId = placedOrderIds.poll()) != null) {
+                orderHub.changeOrderStateMoveFile(orderId, OrderState.Progressing);
+                orderHub.changeOrderStateMoveFile(orderId, OrderState.Collected);
+            }
+            BenchmarkStorage.clearFolder(StorageLocation.collectedPath);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            storage.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Customer {
+        ArrayList<LineItem> trolley;
+
+        @Setup(Level.Trial)
+        public void fillTrolley() {
+            trolley = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                String id = BenchmarkDatabase.productId(i);
+                Product product = new Product(i, id, "Product " + id, "Product " + id, id + ".jpg", 9.99, 100, 100);
+                trolley.add(product.toLineItem(i));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        int orderId;
+
+        // Runs before every pickAndCollect call and is not timed
+        @Setup(Level.Invocation)
+        public void placeOrder(Hub hub, Customer customer) throws Exception {
+            orderId = hub.orderHub.newOrder(customer.trolley).getOrderId();
+        }
+    }
+
+    private Order checkout(Hub hub, Customer customer) throws Exception {
+        Order order = hub.orderHub.newOrder(customer.trolley);
+        hub.placedOrderIds.add(order.getOrderId());
+        return order;
+    }
+
+    private boolean pickAndCollect(Hub hub, Picker picker) throws Exception {
+        return hub.orderHub.changeOrderStateMoveFile(picker.orderId, OrderState.Progressing)
+                & hub.orderHub.changeOrderStateMoveFile(picker.orderId, OrderState.Collected);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Order checkout1Thread(Hub hub, Customer customer) throws Exception {
+        return checkout(hub, customer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Order checkout8Threads(Hub hub, Customer customer) throws Exception {
+        return checkout(hub, customer);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Order checkout64Threads(Hub hub, Customer customer) throws Exception {
+        return checkout(hub, customer);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean pickAndCollect1Thread(Hub hub, Picker picker) throws Exception {
+        return pickAndCollect(hub, picker);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean pickAndCollect8Threads(Hub hub, Picker picker) throws Exception {
+        return pickAndCollect(hub, picker);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean pickAndCollect64Threads(Hub hub, Picker picker) throws Exception {
+        return pickAndCollect(hub, picker);
+    }
+}
@@ -0,0 +1,112 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.catalogue.CatalogueItem;
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.storageAccess.DatabaseRW;
+import ci553.happyshop.storageAccess.DerbyRW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkouts through DerbyRW.purchaseStocks: one transaction that checks and reduces the stock of
+ * every trolley line, for several trolley sizes and 1, 4 or 16 tills checking out at once.
+ *
+ * Each thread is a till with its own DerbyRW, as each client window has in the shop, so threads
+ * only contend in the database. Trolleys are random distinct products, one unit each; with a
+ * small catalogue and many threads they often overlap, which is the lock contention to measure.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+        @Param({"100", "1000"})
+        public int catalogueSize;
+
+        @Param({"1", "5", "20"})
+        public int trolleySize;
+
+        BenchmarkDatabase database;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            database = BenchmarkDatabase.create(catalogueSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            database.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Till {
+        DatabaseRW databaseRW;
+
+        @Setup(Level.Trial)
+        public void setUp(Catalogue catalogue) {
+            databaseRW = new DerbyRW(); // after Catalogue has set the database URL
+        }
+
+        ArrayList<LineItem> randomTrolley(Catalogue catalogue) {
+            int size = Math.min(catalogue.trolleySize, catalogue.catalogueSize);
+            int first = ThreadLocalRandom.current().nextInt(catalogue.catalogueSize);
+            ArrayList<LineItem> trolley = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                // Consecutive IDs from a random start, wrapping round, so lines are distinct
+                int number = (first + i) % catalogue.catalogueSize + 1;
+                String id = BenchmarkDatabase.productId(number);
+                CatalogueItem item = CatalogueItem.of(number, id, "", "", id + ".jpg", 1.0); // productKey = number
+                trolley.add(new LineItem(item, 1));
+            }
+            return trolley;
+        }
+    }
+
+    private ArrayList<LineItem> purchase(Catalogue catalogue, Till till) throws Exception {
+        ArrayList<LineItem> insufficient = till.databaseRW.purchaseStocks(till.randomTrolley(catalogue));
+        if (!insufficient.isEmpty()) {
+            throw new IllegalStateException("Benchmark catalogue ran out of stock");
+        }
+        return insufficient;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ArrayList<LineItem> purchase1Thread(Catalogue catalogue, Till till) throws Exception {
+        return purchase(catalogue, till);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ArrayList<LineItem> purchase4Threads(Catalogue catalogue, Till till) throws Exception {
+        return purchase(catalogue, till);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ArrayList<LineItem> purchase16Threads(Catalogue catalogue, Till till) throws Exception {
+        return purchase(catalogue, till);
+    }
+}
@@ -0,0 +1,79 @@
+package ci553.happyshop.benchmarks;
+
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.storageAccess.DatabaseRW;
+import ci553.happyshop.storageAccess.DerbyRW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product lookups through DerbyRW: by ID, and searchProduct with a keyword that is a product ID,
+ * a word in some descriptions (1 in 8 products match), or nothing at all (ID miss then a full
+ * description scan).
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"100", "1000", "9999"})
+    public int catalogueSize;
+
+    private BenchmarkDatabase database;
+    private DatabaseRW databaseRW;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create(catalogueSize);
+        databaseRW = new DerbyRW();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.delete();
+    }
+
+    private String randomProductId() {
+        return BenchmarkDatabase.productId(ThreadLocalRandom.current().nextInt(1, catalogueSize + 1));
+    }
+
+    @Benchmark
+    public Product searchByProductId() throws Exception {
+        return databaseRW.searchByProductId(randomProductId());
+    }
+
+    @Benchmark
+    public ArrayList<Product> searchProductIdHit() throws Exception {
+        return databaseRW.searchProduct(randomProductId());
+    }
+
+    @Benchmark
+    public ArrayList<Product> searchProductNameHit() throws Exception {
+        String[] words = BenchmarkDatabase.WORDS;
+        return databaseRW.searchProduct(words[ThreadLocalRandom.current().nextInt(words.length)]);
+    }
+
+    @Benchmark
+    public ArrayList<Product> searchProductMiss() throws Exception {
+        return databaseRW.searchProduct("no such product");
+    }
+}
@@ -0,0 +1,107 @@
+package ci553.happyshop;
+
+import ci553.happyshop.api.ShopApiServer;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderMetrics;
+import ci553.happyshop.storageAccess.DatabaseRWFactory;
+import ci553.happyshop.storageAccess.SqlStatistics;
+import ci553.happyshop.systemSetup.SchemaMigrator;
+import ci553.happyshop.systemSetup.SetOrderFileSystem;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HeadlessLauncher runs the order engine as a service, with no JavaFX and no display.
+ *
+ * It starts:
+ * 1. The storage layer: the order folders/orderCounter file (created if missing, never wiped)
+ *    and the Derby database, which is booted once so a bad database fails at start-up.
+ * 2. The OrderHub, reloaded from the order files.
+ * 3. The HTTP/JSON API (ShopApiServer) on http://127.0.0.1:8080/api by default;
+ *    set -Dhappyshop.api.host=0.0.0.0 to let tills on other machines connect,
+ *    and -Dhappyshop.api.port to change the port.
+ * 4. A metrics logger that prints the OrderHub queue depths and latencies every minute.
+ *    All timers and counters are served at /api/metrics, and written to a file as well
+ *    when -Dhappyshop.metrics.file is set (see MetricsRegistry). The slowest SQL statements are
+ *    printed every 5 minutes and logged to slow-queries.log (see SqlStatistics).
+ *
+ * The process then runs until it is stopped (Ctrl+C / SIGTERM), printing a final metrics
+ * snapshot on the way out.
+ *
+ * Run with: mvn javafx:run@headless
+ */
+public class HeadlessLauncher {
+
+    private static final int METRICS_LOG_INTERVAL_SECONDS = 60;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("╔════════════════════════════════════════╗");
+        System.out.println("║   🛍️  HappyShop Order Engine (headless) ║");
+        System.out.println("╚════════════════════════════════════════╝");
+        System.out.println();
+
+        // 1. Storage layer
+        SetOrderFileSystem.ensureFolderStructure();
+        checkDatabase();
+
+        // 2. Order engine
+        OrderHub orderHub = OrderHub.getOrderHub();
+        orderHub.initializeOrderMap();
+        System.out.println("✅ OrderHub ready");
+
+        // 3. Local API
+        ShopApiServer apiServer = new ShopApiServer(
+                System.getProperty("happyshop.api.host", "127.0.0.1"),
+                Integer.getInteger("happyshop.api.port", 8080),
+                DatabaseRWFactory.createDatabaseRW());
+        apiServer.start();
+
+        // 4. Periodic metrics log
+        ScheduledExecutorService metricsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "happyshop-metrics-log");
+            t.setDaemon(true);
+            return t;
+        });
+        metricsLogger.scheduleAtFixedRate(() -> logMetrics(orderHub.getOrderMetrics()),
+                METRICS_LOG_INTERVAL_SECONDS, METRICS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        MetricsRegistry.startFileDump();
+        SqlStatistics.startReporting();
+
+        // Keep running until the JVM is asked to stop
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("🛑 Shutting down order engine...");
+            apiServer.stop();
+            metricsLogger.shutdownNow();
+            logMetrics(orderHub.getOrderMetrics());
+            stopped.countDown();
+        }, "happyshop-shutdown"));
+
+        System.out.println("🟢 Order engine running. Press Ctrl+C to stop.");
+        stopped.await();
+    }
+
+    // Boots the embedded database, checks it can be reached and brings its schema up to date
+    private static void checkDatabase() {
+        try (Connection connection = DriverManager.getConnection(DatabaseRWFactory.dbURL)) {
+            System.out.println("✅ Database ready: " + connection.getMetaData().getURL());
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            System.err.println("❌ Database unavailable: " + e.getMessage());
+            System.err.println("   Is another HappyShop process using the database?");
+            System.exit(1);
+        }
+    }
+
+    private static void logMetrics(OrderMetrics orderMetrics) {
+        System.out.println("📊 Order metrics\n" + orderMetrics.snapshot());
+    }
+}
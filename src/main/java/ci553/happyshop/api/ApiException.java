@@ -0,0 +1,23 @@
+package ci553.happyshop.api;
+
+/**
+ * Thrown by API handlers to end a request with an HTTP error status,
+ * eg. 404 for an unknown product or 409 for an invalid order state change.
+ * ShopApiServer turns it into a JSON body: {"error": "..."}.
+ */
+
+class ApiException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,144 @@
+package ci553.happyshop.api;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A small streaming JSON writer used by the API.
+ *
+ * Values are written straight to the underlying Writer (the HTTP response body) as they are produced,
+ * so a long product list is never built up as one big String first.
+ * It tracks only whether a comma is needed at each nesting level; callers are trusted to open and
+ * close objects/arrays in the right order.
+ *
+ * Example usage:
+ * <pre>
+ *     json.beginObject().name("productId").value("0001").name("inStock").value(12).endObject();
+ * </pre>
+ */
+
+class JsonWriter {
+
+    private final Writer out;
+    // One entry per open object/array: true once it holds at least one value
+    private final Deque<Boolean> hasValue = new ArrayDeque<>();
+    private boolean afterName = false;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        hasValue.push(false);
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        hasValue.pop();
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        hasValue.push(false);
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        hasValue.pop();
+        out.write(']');
+        return this;
+    }
+
+    // Writes the key of the next object member
+    JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue(); // not representable in JSON
+        }
+        beforeValue();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    // Writes the comma between array elements / object members
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false; // the value belongs to the name just written
+            return;
+        }
+        if (!hasValue.isEmpty()) {
+            if (hasValue.peek()) {
+                out.write(',');
+            } else {
+                hasValue.pop();
+                hasValue.push(true);
+            }
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
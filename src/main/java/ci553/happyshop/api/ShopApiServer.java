@@ -0,0 +1,626 @@
+package ci553.happyshop.api;
+
+import ci553.happyshop.auth.AuthenticationManager;
+import ci553.happyshop.auth.Session;
+import ci553.happyshop.auth.User;
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.StockLevelIndicator;
+import ci553.happyshop.catalogue.StockSummary;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderMetrics;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.profiling.CheckoutEvent;
+import ci553.happyshop.storageAccess.DatabaseRW;
+import ci553.happyshop.storageAccess.SqlStatistics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ShopApiServer exposes the catalogue, checkout, order states and stock levels over HTTP/JSON,
+ * so scanners, web front-ends and load tests can use the shop without the JavaFX clients.
+ *
+ * It is built on the JDK's com.sun.net.httpserver and handles every request on its own
+ * virtual thread, so slow database or file work on one request does not hold up the others.
+ * Connections are kept alive (HTTP/1.1): each handler reads the whole request body and then
+ * closes the exchange, which lets the server reuse the connection for the next request.
+ * Successful responses are streamed with chunked encoding as they are written.
+ *
+ * Endpoints:
+ *   GET  /api/products?q=keyword     search by product ID or description (all products without q)
+ *   GET  /api/products/{id}          one product
+ *   GET  /api/stock/{id}             stock in the database, stock reserved by active orders, stock level
+ *   GET  /api/stock/summary          number of products at each stock level, out of stock, and the low-stock product IDs
+ *   POST /api/checkout               body {"items":[{"productId":"0001","quantity":2}]} → new order
+ *   GET  /api/orders                 every order tracked by OrderHub with its state
+ *   POST /api/orders/{id}/state      body {"state":"Progressing"} or {"state":"Collected"}; staff only
+ *   POST /api/login                  body {"username":"staff","password":"..."} → {"token":"..."}
+ *   POST /api/logout                 ends the session of the bearer token
+ *   GET  /api/metrics                every counter, gauge and timer in MetricsRegistry, as Prometheus text
+ *                                    (or JSON with ?format=json)
+ *   GET  /api/metrics/orders         OrderHub queue depths, throughput and stage latencies
+ *   GET  /api/metrics/sql?limit=20   SQL statements with the most total time: count, total, max, rows
+ *
+ * Staff-only endpoints need the token from /api/login in an "Authorization: Bearer <token>" header;
+ * it is checked against the in-memory sessions of AuthenticationManager, not the database.
+ *
+ * Errors are returned as {"error": "..."} with a 4xx/5xx status.
+ *
+ * Example usage:
+ * <pre>
+ *     ShopApiServer api = new ShopApiServer("127.0.0.1", 8080, DatabaseRWFactory.createDatabaseRW());
+ *     api.start();
+ * </pre>
+ */
+
+public class ShopApiServer {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;  // trolleys are small; reject anything bigger
+    private static final int MAX_QUANTITY = 10_000;       // per product line in one checkout
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final String PROMETHEUS_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final InetSocketAddress address;
+    // Shared by every handler thread; purchaseStocks() is safe to run concurrently
+    private final DatabaseRW databaseRW;
+    private final OrderHub orderHub = OrderHub.getOrderHub();
+    private final AuthenticationManager authManager = AuthenticationManager.getInstance();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ShopApiServer(String host, int port, DatabaseRW databaseRW) {
+        this.address = new InetSocketAddress(host, port);
+        this.databaseRW = databaseRW;
+    }
+
+    /**
+     * Binds the port and starts serving.
+     * @throws IOException if the port cannot be bound, eg. it is already in use
+     */
+    public synchronized void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        server.createContext("/api/products", exchange -> handle(exchange, this::products));
+        server.createContext("/api/stock", exchange -> handle(exchange, this::stock));
+        server.createContext("/api/checkout", exchange -> handle(exchange, this::checkout));
+        server.createContext("/api/orders", exchange -> handle(exchange, this::orders));
+        server.createContext("/api/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/api/metrics/orders", exchange -> handle(exchange, this::orderMetrics));
+        server.createContext("/api/metrics/sql", exchange -> handle(exchange, this::sqlMetrics));
+        server.createContext("/api/login", exchange -> handle(exchange, this::login));
+        server.createContext("/api/logout", exchange -> handle(exchange, this::logout));
+
+        server.start();
+        System.out.println("🌐 API listening on http://" + address.getHostString() + ":" + getPort() + "/api");
+    }
+
+    // Stops accepting requests, giving running ones up to a second to finish
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+            System.out.println("🌐 API stopped");
+        }
+    }
+
+    // The bound port, useful when started on port 0 (any free port)
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : address.getPort();
+    }
+
+    // ==================== ROUTES ====================
+
+    // GET /api/products?q=  and  GET /api/products/{id}
+    private Response products(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "GET");
+        String id = pathParam(exchange, "/api/products");
+        if (id != null) {
+            Product product = findProduct(id);
+            return Response.ok(json -> writeProduct(json, product));
+        }
+
+        String keyword = queryParams(exchange).getOrDefault("q", "");
+        ArrayList<Product> products = databaseRW.searchProduct(keyword);
+        return Response.ok(json -> {
+            json.beginObject().name("count").value(products.size()).name("products").beginArray();
+            for (Product product : products) {
+                writeProduct(json, product);
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    // GET /api/stock/{id} and GET /api/stock/summary
+    private Response stock(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "GET");
+        String id = pathParam(exchange, "/api/stock");
+        if (id == null) {
+            throw new ApiException(404, "Product ID required, eg. /api/stock/0001");
+        }
+        if (id.equals("summary")) {
+            return stockSummary();
+        }
+        Product product = findProduct(id);
+        int reserved = orderHub.getReservedStock(product.getProductKey());
+        return Response.ok(json -> json.beginObject()
+                .name("productId").value(product.getProductId())
+                .name("inStock").value(product.getStockQuantity())
+                .name("reserved").value(reserved)
+                .name("stockLevel").value(product.getStockLevel().name())
+                .endObject());
+    }
+
+    private Response stockSummary() throws Exception {
+        StockSummary summary = databaseRW.getStockSummary();
+        return Response.ok(json -> {
+            json.beginObject()
+                    .name("totalProducts").value(summary.totalProducts())
+                    .name("levels").beginObject();
+            for (StockLevelIndicator.StockLevel level : StockLevelIndicator.StockLevel.values()) {
+                json.name(level.name()).value(summary.count(level));
+            }
+            json.endObject()
+                    .name("outOfStock").value(summary.outOfStock())
+                    .name("lowStockIds").beginArray();
+            for (String productId : summary.lowStockIds()) {
+                json.value(productId);
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    // POST /api/checkout
+    private Response checkout(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "POST");
+        Map<String, Object> request = asObject(JsonReader.parse(new String(body, StandardCharsets.UTF_8)));
+        if (!(request.get("items") instanceof List<?> items) || items.isEmpty()) {
+            throw new ApiException(400, "\"items\" must be a non-empty array");
+        }
+
+        // Group quantities by product ID, the same as CustomerModel does before checkout
+        LinkedHashMap<String, Integer> quantities = new LinkedHashMap<>();
+        for (Object item : items) {
+            Map<String, Object> line = asObject(item);
+            String productId = requireString(line, "productId");
+            int quantity = requireInt(line, "quantity");
+            if (quantity < 1 || quantity > MAX_QUANTITY) {
+                throw new ApiException(400, "quantity must be between 1 and " + MAX_QUANTITY);
+            }
+            quantities.merge(productId, quantity, Integer::sum);
+        }
+
+        // The stock read with each product is what a 409 reports as available
+        ArrayList<LineItem> trolley = new ArrayList<>();
+        HashMap<Long, Integer> stockSeen = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            Product product = findProduct(entry.getKey());
+            trolley.add(product.toLineItem(entry.getValue()));
+            stockSeen.put(product.getProductKey(), product.getStockQuantity());
+        }
+
+        CheckoutEvent event = new CheckoutEvent(); // recorded only while JFR is running
+        event.begin();
+        event.source = "api";
+        ArrayList<LineItem> insufficientProducts = databaseRW.purchaseStocks(trolley);
+        if (!insufficientProducts.isEmpty()) {
+            if (event.shouldCommit()) {
+                event.setProducts(trolley);
+                event.insufficientCount = insufficientProducts.size();
+                event.commit();
+            }
+            return new Response(409, json -> {
+                json.beginObject().name("error").value("Insufficient stock").name("insufficient").beginArray();
+                for (LineItem p : insufficientProducts) {
+                    json.beginObject()
+                            .name("productId").value(p.getProductId())
+                            .name("requested").value(p.getQuantity())
+                            .name("available").value(stockSeen.get(p.getProductKey()))
+                            .endObject();
+                }
+                json.endArray().endObject();
+            });
+        }
+
+        Order order;
+        try {
+            order = orderHub.newOrder(trolley);
+        } catch (Exception e) {
+            // The stock is already taken; without an order behind it nobody would ever collect it
+            returnStock(trolley, e);
+            throw e;
+        }
+        if (event.shouldCommit()) {
+            event.setProducts(trolley);
+            event.orderId = order.getOrderId();
+            event.commit();
+        }
+        return new Response(201, json -> {
+            double total = 0;
+            json.beginObject()
+                    .name("orderId").value(order.getOrderId())
+                    .name("state").value(order.getState().name())
+                    .name("orderedAt").value(order.getOrderedDateTime())
+                    .name("items").beginArray();
+            for (LineItem p : order.getLineItems()) {
+                json.beginObject()
+                        .name("productId").value(p.getProductId())
+                        .name("description").value(p.getProductDescription())
+                        .name("quantity").value(p.getQuantity())
+                        .name("unitPrice").value(p.getUnitPrice())
+                        .endObject();
+                total += p.getTotalPrice();
+            }
+            json.endArray().name("total").value(Math.round(total * 100) / 100.0).endObject();
+        });
+    }
+
+    // Puts back the stock of a checkout whose order could not be created; failures to do so are
+    // attached to the original failure and logged, so the missing stock can be put back by hand
+    private void returnStock(List<LineItem> trolley, Exception failure) {
+        for (LineItem line : trolley) {
+            try {
+                databaseRW.addStock(line.getProductId(), line.getQuantity());
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+                System.out.println("⚠️ Could not return " + line.getQuantity() + " units of product "
+                        + line.getProductId() + " after a failed checkout: " + e.getMessage());
+            }
+        }
+    }
+
+    // GET /api/orders  and  POST /api/orders/{id}/state
+    private Response orders(HttpExchange exchange, byte[] body) throws Exception {
+        String rest = pathParam(exchange, "/api/orders");
+        if (rest == null) {
+            requireMethod(exchange, "GET");
+            TreeMap<Integer, OrderState> orders = orderHub.getOrderMapSnapshot();
+            return Response.ok(json -> {
+                json.beginObject().name("count").value(orders.size()).name("orders").beginArray();
+                for (Map.Entry<Integer, OrderState> entry : orders.entrySet()) {
+                    json.beginObject()
+                            .name("orderId").value(entry.getKey())
+                            .name("state").value(entry.getValue().name())
+                            .endObject();
+                }
+                json.endArray().endObject();
+            });
+        }
+
+        if (!rest.endsWith("/state")) {
+            throw new ApiException(404, "Unknown path " + exchange.getRequestURI().getPath());
+        }
+        requireMethod(exchange, "POST");
+        User user = requireUser(exchange);
+        if (!user.canAccessWarehouse()) {
+            throw new ApiException(403, "Only staff can change order states");
+        }
+        int orderId;
+        try {
+            orderId = Integer.parseInt(rest.substring(0, rest.length() - "/state".length()));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Order ID must be a number");
+        }
+
+        String stateName = requireString(asObject(JsonReader.parse(new String(body, StandardCharsets.UTF_8))), "state");
+        OrderState newState;
+        try {
+            newState = OrderState.valueOf(stateName);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Unknown state " + stateName + ", expected Progressing or Collected");
+        }
+
+        OrderState currentState = orderHub.getOrderState(orderId);
+        if (currentState == null) {
+            throw new ApiException(404, "Order " + orderId + " not found");
+        }
+        if (!orderHub.changeOrderStateMoveFile(orderId, newState)) {
+            throw new ApiException(409, "Order " + orderId + " cannot move from " + currentState + " to " + newState);
+        }
+        return Response.ok(json -> json.beginObject()
+                .name("orderId").value(orderId)
+                .name("state").value(newState.name())
+                .endObject());
+    }
+
+    // GET /api/metrics and GET /api/metrics?format=json
+    private Response metrics(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "GET");
+        if (pathParam(exchange, "/api/metrics") != null) {
+            throw new ApiException(404, "Unknown path " + exchange.getRequestURI().getPath());
+        }
+        String format = queryParams(exchange).getOrDefault("format", "prometheus");
+        return switch (format) {
+            case "json" -> new Response(200, JSON_TYPE, MetricsRegistry::writeJson);
+            case "prometheus" -> new Response(200, PROMETHEUS_TYPE, MetricsRegistry::writePrometheus);
+            default -> throw new ApiException(400, "Unknown format " + format + ", expected prometheus or json");
+        };
+    }
+
+    // GET /api/metrics/orders
+    private Response orderMetrics(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "GET");
+        OrderMetrics.Snapshot snapshot = orderHub.getOrderMetrics().snapshot();
+        return Response.ok(json -> {
+            json.beginObject()
+                    .name("takenAtMillis").value(snapshot.takenAtMillis())
+                    .name("uptimeMillis").value(snapshot.uptimeMillis())
+                    .name("depth").beginObject()
+                    .name("ordered").value(snapshot.orderedDepth())
+                    .name("progressing").value(snapshot.progressingDepth())
+                    .name("collected").value(snapshot.collectedDepth())
+                    .endObject()
+                    .name("throughput").beginObject()
+                    .name("created").value(snapshot.ordersCreated())
+                    .name("progressed").value(snapshot.ordersProgressed())
+                    .name("collected").value(snapshot.ordersCollected())
+                    .name("collectedPerMinute").value(snapshot.collectedPerMinute())
+                    .endObject()
+                    .name("latencyNanos").beginObject();
+            writeLatency(json, "orderedToProgressing", snapshot.orderedToProgressing());
+            writeLatency(json, "progressingToCollected", snapshot.progressingToCollected());
+            writeLatency(json, "orderedToCollected", snapshot.orderedToCollected());
+            json.endObject().endObject();
+        });
+    }
+
+    // GET /api/metrics/sql?limit=
+    private Response sqlMetrics(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "GET");
+        int limit;
+        try {
+            limit = Integer.parseInt(queryParams(exchange).getOrDefault("limit", "20"));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "limit must be a number");
+        }
+        List<SqlStatistics.Entry> entries = SqlStatistics.top(Math.max(1, limit));
+        return Response.ok(json -> {
+            json.beginObject().name("statements").beginArray();
+            for (SqlStatistics.Entry entry : entries) {
+                json.beginObject()
+                        .name("sql").value(entry.sql())
+                        .name("count").value(entry.count())
+                        .name("totalNanos").value(entry.totalNanos())
+                        .name("meanNanos").value(entry.count() == 0 ? 0 : entry.totalNanos() / entry.count())
+                        .name("maxNanos").value(entry.maxNanos())
+                        .name("rows").value(entry.rows())
+                        .name("errors").value(entry.errors())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    // POST /api/login
+    private Response login(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "POST");
+        Map<String, Object> request = asObject(JsonReader.parse(new String(body, StandardCharsets.UTF_8)));
+        Session session = authManager.login(requireString(request, "username"), requireString(request, "password"));
+        if (session == null) {
+            throw new ApiException(401, "Invalid username or password");
+        }
+        return Response.ok(json -> json.beginObject()
+                .name("token").value(session.getToken())
+                .name("username").value(session.getUser().getUsername())
+                .name("role").value(session.getUser().getRole().name())
+                .endObject());
+    }
+
+    // POST /api/logout
+    private Response logout(HttpExchange exchange, byte[] body) throws Exception {
+        requireMethod(exchange, "POST");
+        authManager.logout(bearerToken(exchange));
+        return Response.ok(json -> json.beginObject().name("loggedOut").value(true).endObject());
+    }
+
+    // ==================== JSON HELPERS ====================
+
+    private static void writeProduct(JsonWriter json, Product product) throws IOException {
+        json.beginObject()
+                .name("productId").value(product.getProductId())
+                .name("description").value(product.getProductDescription())
+                .name("imageName").value(product.getProductImageName())
+                .name("unitPrice").value(product.getUnitPrice())
+                .name("inStock").value(product.getStockQuantity())
+                .name("stockLevel").value(product.getStockLevel().name())
+                .endObject();
+    }
+
+    private static void writeLatency(JsonWriter json, String name, OrderMetrics.LatencySummary latency) throws IOException {
+        json.name(name).beginObject()
+                .name("count").value(latency.count())
+                .name("p50").value(latency.p50())
+                .name("p95").value(latency.p95())
+                .name("p99").value(latency.p99())
+                .name("max").value(latency.max())
+                .endObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value) throws ApiException {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        throw new ApiException(400, "Expected a JSON object");
+    }
+
+    private static String requireString(Map<String, Object> object, String name) throws ApiException {
+        if (object.get(name) instanceof String s && !s.isBlank()) {
+            return s.trim();
+        }
+        throw new ApiException(400, "\"" + name + "\" must be a non-empty string");
+    }
+
+    private static int requireInt(Map<String, Object> object, String name) throws ApiException {
+        if (object.get(name) instanceof Long n && n >= Integer.MIN_VALUE && n <= Integer.MAX_VALUE) {
+            return n.intValue();
+        }
+        throw new ApiException(400, "\"" + name + "\" must be a whole number");
+    }
+
+    // ==================== REQUEST HANDLING ====================
+
+    private Product findProduct(String productId) throws Exception {
+        Product product = databaseRW.searchByProductId(productId);
+        if (product == null) {
+            throw new ApiException(404, "Product " + productId + " not found");
+        }
+        return product;
+    }
+
+    // The user of the request's bearer token; 401 if there is none or it has expired
+    private User requireUser(HttpExchange exchange) throws ApiException {
+        User user = authManager.getUser(bearerToken(exchange));
+        if (user == null) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new ApiException(401, "Log in via /api/login and send \"Authorization: Bearer <token>\"");
+        }
+        return user;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws ApiException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new ApiException(405, "Use " + method + " for " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    // The part of the path after the context, eg. "0001" for /api/products/0001, or null if there is none
+    private static String pathParam(HttpExchange exchange, String context) throws ApiException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() > context.length() && path.charAt(context.length()) != '/') {
+            throw new ApiException(404, "Unknown path " + path); // eg. /api/productsX
+        }
+        if (path.length() <= context.length() + 1) {
+            return null;
+        }
+        return URLDecoder.decode(path.substring(context.length() + 1), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Runs one route and writes its response.
+     * The request body is always read in full and the exchange always closed, which is what keeps
+     * the connection alive for the client's next request.
+     */
+    private void handle(HttpExchange exchange, Route route) {
+        try (exchange) {
+            Response response;
+            try {
+                byte[] body = readBody(exchange.getRequestBody());
+                response = route.handle(exchange, body);
+            } catch (ApiException e) {
+                response = error(e.getStatus(), e.getMessage());
+            } catch (Exception e) {
+                System.out.println("API error on " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI() + ": " + e.getMessage());
+                e.printStackTrace();
+                response = error(500, "Internal error");
+            }
+            send(exchange, response);
+        } catch (IOException e) {
+            // The client went away mid-response; nothing more to do
+            System.out.println("API response not sent: " + e.getMessage());
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException, ApiException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new ApiException(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        return body;
+    }
+
+    // Streams the body with chunked encoding (content length 0 means "unknown")
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), 0);
+        OutputStream out = exchange.getResponseBody();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        response.body().write(writer);
+        writer.flush();
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+
+    // A route does all of its fallible work (database, OrderHub) before returning, so the
+    // status is known before the first byte of the body is streamed
+    @FunctionalInterface
+    private interface Route {
+        Response handle(HttpExchange exchange, byte[] body) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(Writer out) throws IOException;
+    }
+
+    private record Response(int status, String contentType, Body body) {
+        Response(int status, JsonBody body) {
+            this(status, JSON_TYPE, out -> {
+                JsonWriter json = new JsonWriter(out);
+                body.write(json);
+                json.flush();
+            });
+        }
+
+        static Response ok(JsonBody body) {
+            return new Response(200, body);
+        }
+    }
+}
@@ -6,37 +6,41 @@ import java.sql.SQLException;
 /**
  * AuthenticationManager - Central authentication system
  * Single pattern for managing user authentication
+ *
+ * Each successful login gets its own Session with an opaque token (see SessionManager), so the
+ * customer and warehouse windows, and any number of API clients, stay logged in side by side.
+ * Callers keep the token and ask getUser(token) who it belongs to. Sessions expire after
+ * -Dhappyshop.session.idleMinutes (default 30) without use.
  */
 public class AuthenticationManager {
 
-    private static AuthenticationManager instance;
-    private UserDatabaseRW userDatabase;
-    private User currentUser;
+    private static final AuthenticationManager instance = new AuthenticationManager();
+    private final UserDatabaseRW userDatabase;
+    private final SessionManager sessionManager;
 
     private AuthenticationManager() {
         this.userDatabase = new UserDatabaseRW();
+        long idleMinutes = Long.getLong("happyshop.session.idleMinutes", 30);
+        this.sessionManager = new SessionManager(idleMinutes * 60_000);
     }
 
     public static AuthenticationManager getInstance() {
-        if (instance == null) {
-            instance = new AuthenticationManager();
-        }
         return instance;
     }
 
 
       //a user with username and password
 
-    public User login(String username, String password) {
+    public Session login(String username, String password) {
         try {
             User user = userDatabase.authenticateUser(username, password);
-            if (user != null) {
-                this.currentUser = user;
-                System.out.println("Login successful: " + username);
-            } else {
+            if (user == null) {
                 System.out.println("Login failed: Invalid credentials for " + username);
+                return null;
             }
-            return user;
+            Session session = sessionManager.create(user);
+            System.out.println("Login successful: " + username + " (" + sessionManager.activeSessionCount() + " sessions)");
+            return session;
         } catch (SQLException e) {
             System.err.println("===========================================");
             System.err.println("DATABASE ERROR DURING LOGIN");
@@ -65,6 +69,10 @@ public class AuthenticationManager {
             System.err.println("===========================================");
             e.printStackTrace();
             return null;
+        } catch (IllegalStateException e) {
+            // Password pool saturated by a burst of logins
+            System.err.println("Login refused for " + username + ": " + e.getMessage());
+            return null;
         }
     }
 
@@ -87,7 +95,8 @@ public class AuthenticationManager {
                 return new RegistrationResult(false, "Invalid email address");
             }
 
-            // Check if username exists
+            // Check if username exists (answered from the user cache / username filter where possible;
+            // registerUser() itself relies on the UNIQUE constraint, so the name is not checked twice in the database)
             if (userDatabase.usernameExists(username)) {
                 return new RegistrationResult(false, "Username already exists");
             }
@@ -98,20 +107,35 @@ public class AuthenticationManager {
             if (success) {
                 return new RegistrationResult(true, "Account created successfully! Please login.");
             } else {
-                return new RegistrationResult(false, "Registration failed. Please try again.");
+                return new RegistrationResult(false, "Username already exists");
             }
 
         } catch (SQLException e) {
             System.err.println("Registration error: " + e.getMessage());
             e.printStackTrace();
             return new RegistrationResult(false, "Database error: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            return new RegistrationResult(false, e.getMessage());
         }
     }
 
-    //Get currently logged in user
+    //Get the user a session token belongs to, or null if it is unknown or expired
+
+    public User getUser(String token) {
+        Session session = sessionManager.validate(token);
+        return session != null ? session.getUser() : null;
+    }
+
+    public Session getSession(String token) {
+        return sessionManager.validate(token);
+    }
+
+    public void logout(String token) {
+        sessionManager.invalidate(token);
+    }
 
-    public User getCurrentUser() {
-        return currentUser;
+    public int getActiveSessionCount() {
+        return sessionManager.activeSessionCount();
     }
 
     /**
@@ -0,0 +1,69 @@
+package ci553.happyshop.auth;
+
+import java.util.Arrays;
+
+/**
+ * PasswordHashCalibrator measures PBKDF2 on this machine and suggests an iteration count
+ * that makes one password check take about the target time.
+ *
+ * Run it on the till or server hardware that will do the logins:
+ * <pre>
+ *     mvn javafx:run@calibrate-hash                 (target 100ms)
+ *     java ... ci553.happyshop.auth.PasswordHashCalibrator 250   (target 250ms)
+ * </pre>
+ * then start the shop with the printed -Dhappyshop.pbkdf2.iterations=... setting.
+ *
+ * It warms the JIT up first, then times a verify at increasing iteration counts, takes the
+ * median of several runs, and scales the last count linearly to the target (PBKDF2 cost is
+ * linear in iterations). Existing hashes with a lower count are upgraded as users log in.
+ */
+public class PasswordHashCalibrator {
+
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        System.out.println("Calibrating PBKDF2-HMAC-SHA256 for a verify time of about " + targetMillis + "ms");
+
+        // Warm up so the HMAC loop is compiled before timing
+        Pbkdf2PasswordEngine warmUp = new Pbkdf2PasswordEngine(10_000);
+        String warmHash = warmUp.hash("warm-up-password");
+        for (int i = 0; i < 50; i++) {
+            warmUp.verify("warm-up-password", warmHash);
+        }
+
+        int iterations = 10_000;
+        double millis = medianVerifyMillis(iterations);
+        // Double until a single check is long enough to time reliably
+        while (millis < targetMillis / 4.0 && iterations < 100_000_000) {
+            iterations *= 2;
+            millis = medianVerifyMillis(iterations);
+            System.out.printf("  %,d iterations: %.1fms%n", iterations, millis);
+        }
+
+        int suggested = (int) Math.max(1, Math.round(iterations * (targetMillis / millis)));
+        // Round down to a readable figure
+        suggested = Math.max(1_000, suggested / 1_000 * 1_000);
+        double check = medianVerifyMillis(suggested);
+
+        System.out.printf("✅ %,d iterations → %.1fms per verify%n", suggested, check);
+        System.out.println("   Start the shop with: -Dhappyshop.pbkdf2.iterations=" + suggested);
+        if (suggested < PasswordHasher.DEFAULT_ITERATIONS) {
+            System.out.println("⚠️ Below the default of " + PasswordHasher.DEFAULT_ITERATIONS
+                    + "; consider a larger target or faster hardware");
+        }
+    }
+
+    private static double medianVerifyMillis(int iterations) {
+        Pbkdf2PasswordEngine engine = new Pbkdf2PasswordEngine(iterations);
+        String stored = engine.hash("calibration-password");
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            engine.verify("calibration-password", stored);
+            times[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
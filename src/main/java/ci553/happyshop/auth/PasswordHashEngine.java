@@ -0,0 +1,23 @@
+package ci553.happyshop.auth;
+
+/**
+ * One way of hashing passwords, eg. PBKDF2 or the original salted SHA-256.
+ *
+ * Every engine writes its own parameters into the stored string (algorithm, cost, salt),
+ * so PasswordHasher can tell which engine made a hash and whether it is weaker than what
+ * the shop uses today. Engines must be safe to call from many threads at once.
+ */
+public interface PasswordHashEngine {
+
+    // Hashes the password with a fresh random salt
+    String hash(String password);
+
+    // True if this engine produced the stored hash (judged by its format only)
+    boolean canVerify(String storedHash);
+
+    // True if the password matches; false for a wrong password or a malformed hash
+    boolean verify(String password, String storedHash);
+
+    // True if the stored hash should be replaced with a fresh one from this engine
+    boolean needsRehash(String storedHash);
+}
@@ -1,88 +1,116 @@
 package ci553.happyshop.auth;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * PasswordHasher - Secure password hashing using SHA-256 with salt
- * (BCrypt alternative for environments without external libraries)
+ * PasswordHasher - hashes and verifies passwords through pluggable PasswordHashEngines.
+ *
+ * New hashes use PBKDF2-HMAC-SHA256 ({@link Pbkdf2PasswordEngine}); the iteration count comes from
+ * -Dhappyshop.pbkdf2.iterations (run PasswordHashCalibrator to pick one for the hardware).
+ * Old salt:hash SHA-256 hashes still verify, and {@link #needsRehash(String)} tells the caller
+ * to store a fresh hash after a successful login.
+ *
+ * Hashing is deliberately slow, so it runs on a small fixed pool of daemon threads
+ * (-Dhappyshop.auth.verifyThreads, default one per CPU) with a bounded queue
+ * (-Dhappyshop.auth.verifyQueue, default 256). A burst of logins waits its turn there instead of
+ * occupying every core, and when the queue is full further attempts are refused straight away.
+ * The pool threads are long-lived, so each engine's per-thread Mac / MessageDigest is reused.
  */
 public class PasswordHasher {
 
-    private static final int SALT_LENGTH = 16;
-    private static final String HASH_ALGORITHM = "SHA-256";
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final Pbkdf2PasswordEngine currentEngine =
+            new Pbkdf2PasswordEngine(Integer.getInteger("happyshop.pbkdf2.iterations", DEFAULT_ITERATIONS));
+
+    // Tried in order when verifying; the first that recognises the format is used
+    private static final List<PasswordHashEngine> engines = List.of(currentEngine, new Sha256PasswordEngine());
+
+    private static final ThreadPoolExecutor hashPool = createHashPool();
+
+    private PasswordHasher() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
 
     /**
-     * Hash a password with a random salt
+     * Hash a password with a random salt, using the current engine
      * @param password Plain text password
-     * @return Hashed password in format: salt:hash
+     * @return Hashed password in format: pbkdf2-sha256$iterations$salt$hash
      */
     public static String hashPassword(String password) {
-        try {
-            // Generate random salt
-            SecureRandom random = new SecureRandom();
-            byte[] salt = new byte[SALT_LENGTH];
-            random.nextBytes(salt);
-
-            // Hash password with salt
-            String hash = hashWithSalt(password, salt);
-
-            // Return salt:hash format
-            String saltBase64 = Base64.getEncoder().encodeToString(salt);
-            return saltBase64 + ":" + hash;
-
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Password hashing failed", e);
-        }
+        return runOnHashPool(() -> currentEngine.hash(password));
     }
 
     /**
-     * Verify a password against a stored hash
+     * Verify a password against a stored hash made by any known engine
      * @param password Plain text password to verify
-     * @param storedHash Stored hash in format: salt:hash
+     * @param storedHash Stored hash
      * @return true if password matches, false otherwise
      */
     public static boolean verifyPassword(String password, String storedHash) {
-        try {
-            // Split stored hash into salt and hash
-            String[] parts = storedHash.split(":");
-            if (parts.length != 2) {
-                return false;
-            }
-
-            String saltBase64 = parts[0];
-            String expectedHash = parts[1];
-
-            // Decode salt
-            byte[] salt = Base64.getDecoder().decode(saltBase64);
-
-            // Hash the input password with the same salt
-            String actualHash = hashWithSalt(password, salt);
-
-            // Compare hashes
-            return actualHash.equals(expectedHash);
-
-        } catch (Exception e) {
+        if (password == null || storedHash == null) {
             return false;
         }
+        PasswordHashEngine engine = engineFor(storedHash);
+        if (engine == null) {
+            return false;
+        }
+        return runOnHashPool(() -> engine.verify(password, storedHash));
     }
 
+    /**
+     * @return true if the stored hash was made by an older engine or with weaker parameters,
+     *         and should be replaced by hashPassword() once the password is known to be right
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (storedHash == null) {
+            return false;
+        }
+        PasswordHashEngine engine = engineFor(storedHash);
+        return engine != currentEngine || currentEngine.needsRehash(storedHash);
+    }
 
-     //Hash a password with a given salt
-
-    private static String hashWithSalt(String password, byte[] salt) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-
-        // Add salt to digest
-        digest.update(salt);
-
-        // Hash password
-        byte[] hashedBytes = digest.digest(password.getBytes());
+    private static PasswordHashEngine engineFor(String storedHash) {
+        for (PasswordHashEngine engine : engines) {
+            if (engine.canVerify(storedHash)) {
+                return engine;
+            }
+        }
+        return null;
+    }
 
-        // Convert to Base64
-        return Base64.getEncoder().encodeToString(hashedBytes);
+    // Runs the hash on the bounded pool and waits for it
+    private static <T> T runOnHashPool(Callable<T> work) {
+        try {
+            return hashPool.submit(work).get();
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Too many logins at once, please try again", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password check interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
     }
 
-}
\ No newline at end of file
+    private static ThreadPoolExecutor createHashPool() {
+        int threads = Integer.getInteger("happyshop.auth.verifyThreads", Runtime.getRuntime().availableProcessors());
+        int queue = Integer.getInteger("happyshop.auth.verifyQueue", 256);
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                r -> {
+                    Thread t = new Thread(r, "happyshop-password-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,125 @@
+package ci553.happyshop.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256 (RFC 8018), stored as
+ * <pre>
+ *     pbkdf2-sha256$&lt;iterations&gt;$&lt;salt&gt;$&lt;hash&gt;
+ * </pre>
+ * with salt and hash in Base64. Because the iteration count is part of the stored string,
+ * hashes made with an older, lower count still verify and are reported by needsRehash.
+ *
+ * The derivation is written out over a per-thread Mac rather than going through
+ * SecretKeyFactory, which looks up a provider and builds new objects on every call.
+ * Only the first 32-byte block is derived, the size of one SHA-256 output.
+ */
+public class Pbkdf2PasswordEngine implements PasswordHashEngine {
+
+    static final String PREFIX = "pbkdf2-sha256$";
+
+    private static final int SALT_LENGTH = 16;
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    });
+
+    private final int iterations;
+
+    public Pbkdf2PasswordEngine(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    @Override
+    public boolean canVerify(String storedHash) {
+        return storedHash.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        try {
+            int iterEnd = storedHash.indexOf('$', PREFIX.length());
+            int saltEnd = storedHash.indexOf('$', iterEnd + 1);
+            int storedIterations = Integer.parseInt(storedHash, PREFIX.length(), iterEnd, 10);
+            if (storedIterations < 1) {
+                return false;
+            }
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(storedHash.substring(iterEnd + 1, saltEnd));
+            byte[] expected = decoder.decode(storedHash.substring(saltEnd + 1));
+            return MessageDigest.isEqual(derive(password, salt, storedIterations), expected); // constant time
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    // Rehash anything made with fewer iterations than this engine uses today
+    @Override
+    public boolean needsRehash(String storedHash) {
+        int iterEnd = storedHash.indexOf('$', PREFIX.length());
+        try {
+            return Integer.parseInt(storedHash, PREFIX.length(), iterEnd, 10) < iterations;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return true;
+        }
+    }
+
+    // PBKDF2 block 1: U1 = HMAC(P, salt || 1), Uj = HMAC(P, Uj-1), result = U1 xor ... xor Uc
+    static byte[] derive(String password, byte[] salt, int iterations) {
+        byte[] key = password.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0) {
+            // SecretKeySpec rejects an empty key; HMAC zero-pads keys, so {0} is the same key
+            key = new byte[]{0};
+        }
+        Mac mac = hmac.get();
+        try {
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 key rejected", e);
+        }
+
+        mac.update(salt);
+        mac.update(new byte[]{0, 0, 0, 1}); // block index, big-endian
+        byte[] u = mac.doFinal();
+        byte[] result = u.clone();
+        try {
+            for (int i = 1; i < iterations; i++) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for (int j = 0; j < result.length; j++) {
+                    result[j] ^= u[j];
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 failed", e);
+        }
+        return result;
+    }
+}
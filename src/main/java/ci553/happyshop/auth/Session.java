@@ -0,0 +1,36 @@
+package ci553.happyshop.auth;
+
+/**
+ * A logged-in user, identified by an opaque random token.
+ *
+ * The token is what windows and API clients hold on to; the User itself never leaves the server
+ * side. lastAccess is refreshed by SessionManager when the token is validated and is used for
+ * idle expiry.
+ */
+public class Session {
+
+    private final String token;
+    private final User user;
+    private final long createdAtMillis;
+    private volatile long lastAccessNanos;
+
+    Session(String token, User user) {
+        this.token = token;
+        this.user = user;
+        this.createdAtMillis = System.currentTimeMillis();
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    public String getToken() { return token; }
+    public User getUser() { return user; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    long getLastAccessNanos() { return lastAccessNanos; }
+    void touch(long nowNanos) { lastAccessNanos = nowNanos; }
+
+    @Override
+    public String toString() {
+        // Never print the token itself
+        return String.format("Session{user='%s', role=%s}", user.getUsername(), user.getRole());
+    }
+}
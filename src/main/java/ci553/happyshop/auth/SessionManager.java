@@ -0,0 +1,96 @@
+package ci553.happyshop.auth;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionManager issues and checks session tokens for logged-in users.
+ *
+ * Tokens are 32 random bytes from SecureRandom, Base64url encoded, so they cannot be guessed and
+ * carry no information about the user. Sessions live in a ConcurrentHashMap keyed by token:
+ * validating a token is one map lookup, with no database access and no lock, so thousands of
+ * windows or API clients can be logged in at once.
+ *
+ * A session expires after it has not been used for the idle timeout. Expired sessions are refused
+ * as soon as they are looked up, and a daemon thread sweeps the rest out once a minute.
+ */
+public class SessionManager {
+
+    private static final int TOKEN_BYTES = 32;
+    // Refresh lastAccess at most this often, so busy sessions do not write on every request
+    private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutNanos;
+
+    /**
+     * @param idleTimeoutMillis how long a session may go unused before it expires
+     */
+    public SessionManager(long idleTimeoutMillis) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "happyshop-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::removeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // Starts a new session for an authenticated user
+    public Session create(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), user);
+        sessions.put(session.getToken(), session);
+        return session;
+    }
+
+    /**
+     * @return the live session for the token, or null if the token is unknown or has expired
+     */
+    public Session validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long idle = now - session.getLastAccessNanos();
+        if (idle > idleTimeoutNanos) {
+            sessions.remove(token, session);
+            return null;
+        }
+        if (idle > TOUCH_GRANULARITY_NANOS) {
+            session.touch(now);
+        }
+        return session;
+    }
+
+    // Ends the session; unknown tokens are ignored
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    // Ends every session of the user, eg. after a password change
+    public void invalidateUser(String username) {
+        sessions.values().removeIf(s -> s.getUser().getUsername().equals(username));
+    }
+
+    public int activeSessionCount() {
+        return sessions.size();
+    }
+
+    private void removeExpired() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(s -> now - s.getLastAccessNanos() > idleTimeoutNanos);
+    }
+}
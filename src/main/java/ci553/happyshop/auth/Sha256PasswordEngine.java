@@ -0,0 +1,68 @@
+package ci553.happyshop.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The original HappyShop hash: one round of SHA-256 over salt + password, stored as salt:hash
+ * (both Base64). Kept so accounts created before PBKDF2 can still log in; PasswordHasher
+ * upgrades them on their next successful login.
+ *
+ * The MessageDigest is created once per thread and reused.
+ */
+public class Sha256PasswordEngine implements PasswordHashEngine {
+
+    private static final int SALT_LENGTH = 16;
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return encoder.encodeToString(salt) + ":" + encoder.encodeToString(digest(password, salt));
+    }
+
+    @Override
+    public boolean canVerify(String storedHash) {
+        int colon = storedHash.indexOf(':');
+        return colon > 0 && colon == storedHash.lastIndexOf(':') && storedHash.indexOf('$') < 0;
+    }
+
+    @Override
+    public boolean verify(String password, String storedHash) {
+        try {
+            int colon = storedHash.indexOf(':');
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(storedHash.substring(0, colon));
+            byte[] expected = decoder.decode(storedHash.substring(colon + 1));
+            return MessageDigest.isEqual(digest(password, salt), expected); // constant time
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    // A single SHA-256 round is far too cheap to resist guessing, so always upgrade
+    @Override
+    public boolean needsRehash(String storedHash) {
+        return true;
+    }
+
+    private static byte[] digest(String password, byte[] salt) {
+        MessageDigest md = digest.get();
+        md.reset();
+        md.update(salt);
+        return md.digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -21,6 +21,7 @@ public class User {
     public String getUsername() { return username; }
     public String getPasswordHash() { return passwordHash; }
     public String getEmail() { return email; }
+    public String getFullName() { return fullName; }
     public UserRole getRole() { return role; }
 
     public void setEmail(String email) { this.email = email; }
@@ -0,0 +1,43 @@
+package ci553.happyshop.catalogue;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The catalogue data of one product: what it is and what it costs, without the stock figures
+ * (see Product) or the quantity someone wants (see LineItem).
+ *
+ * CatalogueItems never change, so one instance per product is shared by search results,
+ * trolleys and orders. {@link #of} returns that shared instance, so a product read from the
+ * database a thousand times is held once, however many orders contain it. When a product's
+ * details change (eg. the warehouse edits its price) the next read replaces the shared instance;
+ * orders placed before keep the item they were placed with.
+ *
+ * @param productKey ProductTable.productKey; 0 for a product not read from the database
+ * @param productId the SKU code people type and see
+ * @param name the product name (the description for products read from the database)
+ * @param description the product description
+ * @param imageName file name of the product image in the images folder
+ * @param unitPrice price of one unit
+ */
+public record CatalogueItem(long productKey,
+                            String productId,
+                            String name,
+                            String description,
+                            String imageName,
+                            double unitPrice) {
+
+    // Keyed by productKey; holds one entry per product read since start-up
+    private static final ConcurrentHashMap<Long, CatalogueItem> interned = new ConcurrentHashMap<>();
+
+    /**
+     * The shared item for these details. Items without a productKey are not shared.
+     */
+    public static CatalogueItem of(long productKey, String productId, String name, String description,
+                                   String imageName, double unitPrice) {
+        CatalogueItem item = new CatalogueItem(productKey, productId, name, description, imageName, unitPrice);
+        if (productKey == 0) {
+            return item;
+        }
+        return interned.compute(productKey, (key, current) -> item.equals(current) ? current : item);
+    }
+}
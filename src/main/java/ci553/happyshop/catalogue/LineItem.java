@@ -0,0 +1,48 @@
+package ci553.happyshop.catalogue;
+
+/**
+ * One line of a trolley or an order: a product and how many of it.
+ *
+ * The line refers to the shared CatalogueItem rather than copying the product, so a line costs
+ * a reference and an int. The quantity can change while the line sits in a trolley; Order takes
+ * its own copies of the lines, so later trolley changes do not reach a placed order.
+ *
+ * The getters for the product's details are there so trolley and receipt code can read a line
+ * the way it reads a Product.
+ */
+
+public final class LineItem {
+    private final CatalogueItem item;
+    private int quantity;
+
+    public LineItem(CatalogueItem item, int quantity) {
+        this.item = item;
+        this.quantity = quantity;
+    }
+
+    public CatalogueItem getItem() { return item; }
+    public int getQuantity() { return quantity; }
+
+    public long getProductKey() { return item.productKey(); }
+    public String getProductId() { return item.productId(); }
+    public String getProductDescription() { return item.description(); }
+    public String getProductImageName() { return item.imageName(); }
+    public double getUnitPrice() { return item.unitPrice(); }
+
+    // Price of the whole line
+    public double getTotalPrice() { return item.unitPrice() * quantity; }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    // A separate line for the same item, eg. for an order taken from a trolley
+    public LineItem copy() {
+        return new LineItem(item, quantity);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s x%d", item.productId(), quantity);
+    }
+}
@@ -2,41 +2,97 @@ package ci553.happyshop.catalogue;
 
 import ci553.happyshop.orderManagement.OrderState;
 import ci553.happyshop.utility.ProductListFormatter;
+import ci553.happyshop.utility.TimestampFormatter;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Order {
     private int orderId;
     private OrderState state;
-    private String orderedDateTime = "";
-    private String progressingDateTime = "";
-    private String collectedDateTime = "";
-    private ArrayList<Product> productList = new ArrayList<>();
+
+    // Lifecycle times as epoch-millis, 0 means the stage has not been reached yet.
+    // They are only formatted (via TimestampFormatter) when shown or written to the order file.
+    private long orderedTimeMillis;
+    private long progressingTimeMillis;
+    private long collectedTimeMillis;
+
+    // Monotonic (System.nanoTime) readings taken at each stage, used to measure
+    // the exact latency between stages. 0 means the stage has not been reached yet.
+    private long orderedNanos;
+    private long progressingNanos;
+    private long collectedNanos;
+
+    private final ArrayList<LineItem> lineItems;
 
     /**
      * Constructor used by OrderHub to create a new order for a customer.
-     * Initializes the order with an ID, state, order date/time, and a list of ordered products.
+     * Initializes the order with an ID, state, order time, and the lines ordered.
+     * The order keeps its own copies of the lines, which share the trolley's CatalogueItems.
      *
      * @param orderId Unique identifier for the order
      * @param state Initial state of the order (typically ORDERED)
-     * @param orderedDateTime Timestamp when order was placed
-     * @param productList List of products in the order
+     * @param orderedTimeMillis Epoch-millis when the order was placed
+     * @param orderedNanos Monotonic nanoTime reading when the order was placed
+     * @param lineItems the products in the order and how many of each
      */
-    public Order(int orderId, OrderState state, String orderedDateTime,
-                 ArrayList<Product> productList) {
+    public Order(int orderId, OrderState state, long orderedTimeMillis, long orderedNanos,
+                 List<LineItem> lineItems) {
         this.orderId = orderId;
         this.state = state;
-        this.orderedDateTime = orderedDateTime;
-        this.productList = new ArrayList<>(productList);
+        this.orderedTimeMillis = orderedTimeMillis;
+        this.orderedNanos = orderedNanos;
+        this.lineItems = new ArrayList<>(lineItems.size());
+        for (LineItem line : lineItems) {
+            this.lineItems.add(line.copy());
+        }
     }
 
     // Getter methods
     public int getOrderId() { return orderId; }
     public OrderState getState() { return state; }
-    public String getOrderedDateTime() { return orderedDateTime; }
-    public ArrayList<Product> getProductList() { return productList; }
+    public ArrayList<LineItem> getLineItems() { return lineItems; }
+
+    public long getOrderedTimeMillis() { return orderedTimeMillis; }
+    public long getProgressingTimeMillis() { return progressingTimeMillis; }
+    public long getCollectedTimeMillis() { return collectedTimeMillis; }
+
+    public long getOrderedNanos() { return orderedNanos; }
+    public long getProgressingNanos() { return progressingNanos; }
+    public long getCollectedNanos() { return collectedNanos; }
+
+    // Formatted for display, eg. "2025-03-11 19:53:45"
+    public String getOrderedDateTime() { return TimestampFormatter.formatOrderTime(orderedTimeMillis); }
+    public String getProgressingDateTime() { return TimestampFormatter.formatOrderTime(progressingTimeMillis); }
+    public String getCollectedDateTime() { return TimestampFormatter.formatOrderTime(collectedTimeMillis); }
 
     public void setState(OrderState state) { this.state = state; }
 
+    /**
+     * Moves the order to a new state and stamps the time the stage was reached.
+     * Used by OrderHub when a picker starts preparing or the customer collects the order.
+     *
+     * @param newState the state being entered
+     * @param epochMillis wall-clock time of the transition
+     * @param nanos monotonic nanoTime reading of the transition
+     */
+    public void markState(OrderState newState, long epochMillis, long nanos) {
+        this.state = newState;
+        switch (newState) {
+            case Ordered:
+                orderedTimeMillis = epochMillis;
+                orderedNanos = nanos;
+                break;
+            case Progressing:
+                progressingTimeMillis = epochMillis;
+                progressingNanos = nanos;
+                break;
+            case Collected:
+                collectedTimeMillis = epochMillis;
+                collectedNanos = nanos;
+                break;
+        }
+    }
+
     /**
      * Generates complete order details for file storage.
      * Used by OrderHub when writing orders to files.
@@ -56,10 +112,10 @@ public class Order {
                         "Items:\n%s",
                 orderId,
                 state,
-                orderedDateTime,
-                progressingDateTime,
-                collectedDateTime,
-                ProductListFormatter.buildString(productList)
+                getOrderedDateTime(),
+                getProgressingDateTime(),
+                getCollectedDateTime(),
+                ProductListFormatter.buildString(lineItems)
         );
     }
-}
\ No newline at end of file
+}
@@ -12,29 +12,21 @@ import ci553.happyshop.catalogue.StockLevelIndicator.StockLevel;
  * - Open/Closed: Extended functionality without modifying existing behavior
  * - Dependency Inversion: Depends on StockLevelIndicator abstraction
  *
+ * A Product is the catalogue data (a shared, immutable CatalogueItem) plus the stock figures read
+ * with it, and never changes once made. How many a customer wants belongs to a LineItem, so
+ * trolleys and orders hold LineItems that refer to the CatalogueItem instead of copying Products.
  */
 public class Product implements Comparable<Product> {
-    private String proId;
-    private String productName;          // NEW: Added product name field
-    private String proDescription;
-    private String proImageName;
-    private double unitPrice;
-    private int orderedQuantity = 1;
-    private int stockQuantity;
-    private int maxStockCapacity; // Track maximum stock for percentage calculation
+    private final CatalogueItem item;    // key, SKU, name, description, image and price
+    private final int stockQuantity;
+    private final int maxStockCapacity; // Track maximum stock for percentage calculation
 
     /**
-     * Primary constructor used by DatabaseRW.
+     * Constructor for a product without a database key.
      * Automatically sets maxStockCapacity to initial stock quantity.
      */
     public Product(String id, String name, String des, String image, double aPrice, int stockQuantity) {
-        this.proId = id;
-        this.productName = name;
-        this.proDescription = des;
-        this.proImageName = image;
-        this.unitPrice = aPrice;
-        this.stockQuantity = stockQuantity;
-        this.maxStockCapacity = stockQuantity; // Initialize max capacity
+        this(0, id, name, des, image, aPrice, stockQuantity, stockQuantity); // Initialize max capacity
     }
 
     /**
@@ -51,27 +43,34 @@ public class Product implements Comparable<Product> {
      */
     public Product(String id, String name, String des, String image, double aPrice,
                    int stockQuantity, int maxStockCapacity) {
-        this.proId = id;
-        this.productName = name;
-        this.proDescription = des;
-        this.proImageName = image;
-        this.unitPrice = aPrice;
+        this(0, id, name, des, image, aPrice, stockQuantity, maxStockCapacity);
+    }
+
+    /**
+     * Full constructor with the database key, used by DatabaseRW.
+     * The shop identifies products internally by productKey (eg. stock reservations, purchases);
+     * the id is the SKU code shown to people.
+     */
+    public Product(long productKey, String id, String name, String des, String image, double aPrice,
+                   int stockQuantity, int maxStockCapacity) {
+        this.item = CatalogueItem.of(productKey, id, name, des, image, aPrice);
         this.stockQuantity = stockQuantity;
         this.maxStockCapacity = maxStockCapacity;
     }
 
     // ========== GETTERS ==========
-    public String getProductId() { return proId; }
-    public String getProductDescription() { return proDescription; }
-    public String getProductImageName() { return proImageName; }
-    public double getUnitPrice() { return unitPrice; }
-    public int getOrderedQuantity() { return orderedQuantity; }
+    public CatalogueItem getCatalogueItem() { return item; }
+    public long getProductKey() { return item.productKey(); }
+    public String getProductId() { return item.productId(); }
+    public String getProductDescription() { return item.description(); }
+    public String getProductImageName() { return item.imageName(); }
+    public double getUnitPrice() { return item.unitPrice(); }
     public int getStockQuantity() { return stockQuantity; }
     public int getMaxStockCapacity() { return maxStockCapacity; }
 
-    // ========== SETTERS ==========
-    public void setOrderedQuantity(int orderedQuantity) {
-        this.orderedQuantity = orderedQuantity;
+    // A trolley or order line for quantity units of this product
+    public LineItem toLineItem(int quantity) {
+        return new LineItem(item, quantity);
     }
 
     // ========== STOCK LEVEL METHODS ==========
@@ -102,29 +101,22 @@ public class Product implements Comparable<Product> {
 
     @Override
     public int compareTo(Product otherProduct) {
-        return this.proId.compareTo(otherProduct.proId);
+        // Keys follow SKU order for the products that existed before keys were added and creation
+        // order after that; products without a key fall back to comparing SKUs
+        int byKey = Long.compare(getProductKey(), otherProduct.getProductKey());
+        return byKey != 0 ? byKey : getProductId().compareTo(otherProduct.getProductId());
     }
 
     @Override
     public String toString() {
         // Updated to include product name
         return String.format("ID: %s - %s, £%.2f/unit, stock: %d (%s)\nDescription: %s",
-                proId,
-                productName,
-                unitPrice,
+                item.productId(),
+                item.name(),
+                item.unitPrice(),
                 stockQuantity,
                 getStockStatusText(),
-                proDescription
+                item.description()
         );
     }
-
-
-    /**
-     * Clone method for creating copies of products
-     * A new Product instance with the same values
-     */
-    public Product clone() {
-        return new Product(proId, productName, proDescription, proImageName,
-                unitPrice, stockQuantity, maxStockCapacity);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package ci553.happyshop.catalogue;
+
+import ci553.happyshop.catalogue.StockLevelIndicator.StockLevel;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock figures for the whole catalogue, as returned by DatabaseRW.getStockSummary().
+ *
+ * @param totalProducts number of products in the catalogue
+ * @param levelCounts how many products are at each StockLevel (every level is present, possibly 0)
+ * @param outOfStock how many products have no stock left
+ * @param lowStockIds IDs of products at LOW or CRITICAL level, in productKey order
+ * @param takenAtMillis when the figures were read
+ */
+public record StockSummary(int totalProducts,
+                           Map<StockLevel, Integer> levelCounts,
+                           int outOfStock,
+                           List<String> lowStockIds,
+                           long takenAtMillis) {
+
+    public int count(StockLevel level) {
+        return levelCounts.getOrDefault(level, 0);
+    }
+}
@@ -3,7 +3,12 @@ package ci553.happyshop.client;
 import ci553.happyshop.client.auth.LoginController;
 import ci553.happyshop.client.auth.LoginModel;
 import ci553.happyshop.client.auth.LoginView;
+import ci553.happyshop.metrics.MetricsRegistry;
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.storageAccess.SqlStatistics;
+import ci553.happyshop.storageAccess.ThumbnailStore;
+import ci553.happyshop.systemSetup.SchemaMigrator;
+import ci553.happyshop.utility.StorageExecutor;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
@@ -42,8 +47,14 @@ public class Main extends Application {
         try {
             System.out.println("⚙️  Initializing system...");
 
+            // Bring the database schema up to date before anything queries it
+            SchemaMigrator.migrate();
+
             // Initialize backend OrderHub system
             initializeOrderHub();
+            generateMissingThumbnails();
+            MetricsRegistry.startFileDump(); // only if -Dhappyshop.metrics.file is set
+            SqlStatistics.startReporting();
             System.out.println("✅ Backend initialized");
 
             System.out.println();
@@ -88,6 +99,16 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Generate thumbnails for images added without going through the warehouse client (eg. copied in by hand).
+     * Runs in the background; until it finishes the views scale the original images.
+     */
+    private void generateMissingThumbnails() {
+        StorageExecutor.submit(ThumbnailStore::generateMissing,
+                count -> System.out.println("   ✓ Thumbnails up to date"),
+                e -> System.err.println("   ⚠️  Thumbnail generation failed (non-critical): " + e.getMessage()));
+    }
+
     /**
      * Start Customer Login Screen (LEFT SIDE)
      */
@@ -1,12 +1,12 @@
 package ci553.happyshop.client.auth;
 
-import ci553.happyshop.auth.User;
+import ci553.happyshop.auth.Session;
 
     //the maain responsiblity where it provdies a login method that take usernaame and password, then delegatess the actuall authentication work to a loginModel object
 public class LoginController {
     public LoginModel loginModel;
 
-    public User login(String username, String password) {
+    public Session login(String username, String password) {
         return loginModel.authenticateUser(username, password);
     }
 }
\ No newline at end of file
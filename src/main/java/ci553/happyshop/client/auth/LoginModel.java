@@ -1,7 +1,7 @@
 package ci553.happyshop.client.auth;
 
 import ci553.happyshop.auth.AuthenticationManager;
-import ci553.happyshop.auth.User;
+import ci553.happyshop.auth.Session;
 
     //the loginModel serves as a wrapper aroound the AuthenticaationManager providing two key function
 
@@ -13,7 +13,7 @@ public class LoginModel {
         this.authManager = AuthenticationManager.getInstance();
     }
 
-    public User authenticateUser(String username, String password) {
+    public Session authenticateUser(String username, String password) {
         return authManager.login(username, password);
     }
 
@@ -1,5 +1,7 @@
 package ci553.happyshop.client.auth;
 
+import ci553.happyshop.auth.AuthenticationManager;
+import ci553.happyshop.auth.Session;
 import ci553.happyshop.auth.User;
 import ci553.happyshop.auth.UserRole;
 import ci553.happyshop.client.customer.CustomerClient;
@@ -8,6 +10,7 @@ import ci553.happyshop.client.orderTracker.OrderTracker;
 import ci553.happyshop.client.picker.PickerClient;
 import ci553.happyshop.client.warehouse.WarehouseClient;
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.utility.StorageExecutor;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -158,23 +161,22 @@ public class LoginView {
         lblMessage.setStyle("-fx-text-fill: #4A90E2; -fx-font-size: 13px;");
         lblMessage.setVisible(true);
 
-        new Thread(() -> {
-            User user = loginController.login(username, password);
-
-            Platform.runLater(() -> {
-                if (user != null) {
-                    if (currentMode.equals("customer") && user.getRole() == UserRole.CUSTOMER) {
-                        launchClientForUser(user);
-                    } else if (currentMode.equals("warehouse") && user.getRole() != UserRole.CUSTOMER) {
-                        launchClientForUser(user);
-                    } else {
-                        showMessage("Access denied for this login screen", true);
-                    }
+        // The user lookup and password check run on a storage thread; the result comes back on the JavaFX thread
+        StorageExecutor.submit(() -> loginController.login(username, password), session -> {
+            if (session != null) {
+                User user = session.getUser();
+                if (currentMode.equals("customer") && user.getRole() == UserRole.CUSTOMER) {
+                    launchClientForUser(session);
+                } else if (currentMode.equals("warehouse") && user.getRole() != UserRole.CUSTOMER) {
+                    launchClientForUser(session);
                 } else {
-                    showMessage("Invalid username or password", true);
+                    AuthenticationManager.getInstance().logout(session.getToken());
+                    showMessage("Access denied for this login screen", true);
                 }
-            });
-        }).start();
+            } else {
+                showMessage("Invalid username or password", true);
+            }
+        }, e -> showMessage("Login failed: " + e.getMessage(), true));
     }
 
     private void showRegistrationScreen() {
@@ -183,8 +185,9 @@ public class LoginView {
         registerView.start(stage);
     }
 
-    private void launchClientForUser(User user) {
+    private void launchClientForUser(Session session) {
         stage.close();
+        User user = session.getUser();
 
         try {
             OrderHub orderHub = OrderHub.getOrderHub();
@@ -201,19 +204,20 @@ public class LoginView {
                     }
                 });
             } else if (user.getRole() == UserRole.STAFF) {
-                launchWarehouseSystem(false);
+                launchWarehouseSystem(session, false);
             } else if (user.getRole() == UserRole.ADMIN) {
-                launchWarehouseSystem(true);
+                launchWarehouseSystem(session, true);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void launchWarehouseSystem(boolean includeEmergencyExit) {
+    private void launchWarehouseSystem(Session session, boolean includeEmergencyExit) {
         Platform.runLater(() -> {
             try {
                 WarehouseClient warehouseClient = new WarehouseClient();
+                warehouseClient.sessionToken = session.getToken();
                 Stage warehouseStage = new Stage();
                 warehouseClient.start(warehouseStage);
             } catch (Exception e) {
@@ -1,6 +1,7 @@
 package ci553.happyshop.client.auth;
 
 import ci553.happyshop.auth.AuthenticationManager;
+import ci553.happyshop.utility.StorageExecutor;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -179,32 +180,32 @@ public class RegisterView {
         btnRegister.setDisable(true);
         btnRegister.setText("Creating Account...");
 
-        new Thread(() -> {
+        StorageExecutor.submit(() -> {
             AuthenticationManager authManager = AuthenticationManager.getInstance();
-            AuthenticationManager.RegistrationResult result = authManager.registerCustomer(
-                    username, password, email, fullName
-            );
-
-            Platform.runLater(() -> {
-                btnRegister.setDisable(false);
-                btnRegister.setText("Create Account");
-
-                if (result.isSuccess()) {
-                    showMessage("âœ… " + result.getMessage(), false);
-
-                    new Thread(() -> {
-                        try {
-                            Thread.sleep(2000);
-                            Platform.runLater(() -> goBackToLogin());
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }).start();
-                } else {
-                    showMessage("âŒ " + result.getMessage(), true);
-                }
-            });
-        }).start();
+            return authManager.registerCustomer(username, password, email, fullName);
+        }, result -> {
+            btnRegister.setDisable(false);
+            btnRegister.setText("Create Account");
+
+            if (result.isSuccess()) {
+                showMessage("âœ… " + result.getMessage(), false);
+
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(2000);
+                        Platform.runLater(() -> goBackToLogin());
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }).start();
+            } else {
+                showMessage("âŒ " + result.getMessage(), true);
+            }
+        }, e -> {
+            btnRegister.setDisable(false);
+            btnRegister.setText("Create Account");
+            showMessage("Registration failed: " + e.getMessage(), true);
+        });
     }
 
     private VBox createInputField(String label) {
@@ -1,31 +1,38 @@
 package ci553.happyshop.client.customer;
 
+import ci553.happyshop.catalogue.LineItem;
 import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.orderManagement.OrderHub;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.profiling.CheckoutEvent;
+import ci553.happyshop.utility.SearchCoordinator;
+import ci553.happyshop.utility.StorageExecutor;
 import ci553.happyshop.utility.ProductListFormatter;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
 //the customermodel is the business logic layer in the MVC pattern for the customer shoppign system
+//database lookups and checkout run on StorageExecutor threads; their results update the view back on the JavaFX thread
 
 public class CustomerModel {
     public CustomerView cusView;
     public DatabaseRW databaseRW;
 
     private Product theProduct = null;
-    private ArrayList<Product> trolley = new ArrayList<>();
+    private ArrayList<LineItem> trolley = new ArrayList<>();
+
+    // Stock of each product in the trolley when it was last added, keyed by productKey; lines only
+    // hold the shared CatalogueItem, so the figure used for stock limits and badges is kept here
+    private final HashMap<Long, Integer> stockSeen = new HashMap<>();
 
     // For UI display
-    private String imageName = "imageHolder.jpg";
+    private String imageName = null;
     private String displayLaSearchResult = "👋 Welcome to HappyShop!\n\nSearch for products using the form above to see detailed information, pricing, and availability.";
     private String displayTaReceipt = "";
 
@@ -33,6 +40,10 @@ public class CustomerModel {
     private String lastSearchedId = "";
     private boolean isCheckoutSuccess = false;
 
+    // Only the latest search may update the view; older results that arrive late are dropped
+    private final SearchCoordinator<ArrayList<Product>> searches = new SearchCoordinator<>();
+    private boolean isCheckoutRunning = false;
+
     /**
      * Search for products by Product ID or Product Name
      * Priority: If product name is provided, search by name; otherwise search by ID
@@ -46,57 +57,64 @@ public class CustomerModel {
         lastSearchedId = searchTerm;
 
         if(!searchTerm.isEmpty()){
-            // Use the generic searchProduct method which handles both ID and name
-            ArrayList<Product> results = databaseRW.searchProduct(searchTerm);
-
-            if(!results.isEmpty() && results.get(0).getStockQuantity() > 0){
-                theProduct = results.get(0); // Take the first result
-
-                double unitPrice = theProduct.getUnitPrice();
-                String description = theProduct.getProductDescription();
-                int stock = theProduct.getStockQuantity();
-                String imageName = theProduct.getProductImageName();
-
-                // Modern formatted product info
-                StringBuilder productInfo = new StringBuilder();
-                productInfo.append("✅ Product Found!\n\n");
-                productInfo.append("📦 ").append(description).append("\n");
-                productInfo.append("🏷️  ID: ").append(theProduct.getProductId()).append("\n");
-                productInfo.append("💰 Price: £").append(String.format("%.2f", unitPrice)).append("\n");
-
-                // Stock information with emojis
-                if (stock >= 50) {
-                    productInfo.append("📈 Stock: ").append(stock).append(" units (In Stock)");
-                } else if (stock >= 10) {
-                    productInfo.append("⚠️  Stock: ").append(stock).append(" units (Limited Stock)");
-                } else if (stock > 0) {
-                    productInfo.append("🚨 Stock: ").append(stock).append(" units (Low Stock - Order Soon!)");
-                } else {
-                    productInfo.append("❌ Out of Stock");
-                }
-
-                displayLaSearchResult = productInfo.toString();
-
-                // Clear any previous error messages
-                displayTaReceipt = "";
-
-                System.out.println("Product found: " + theProduct.getProductId() + " - " + description);
-            }
-            else{
-                theProduct = null;
-                if (results.isEmpty()) {
-                    displayLaSearchResult = "❌ Product Not Found\n\nNo product found matching: " + searchTerm +
-                            "\n\nPlease check your search term and try again.";
-                } else {
-                    displayLaSearchResult = "❌ Out of Stock\n\nProduct matching '" + searchTerm +
-                            "' is currently out of stock.\n\nPlease check back later or browse other products.";
-                }
-                System.out.println("No product found or out of stock: " + searchTerm);
-            }
+            // Use the generic searchProduct method which handles both ID and name;
+            // only the latest search's results are shown
+            searches.searchNow(() -> databaseRW.searchProduct(searchTerm),
+                    results -> showSearchResults(searchTerm, results), this::showStorageError);
         } else {
+            searches.cancel();
             theProduct = null;
             displayLaSearchResult = "👋 Welcome to HappyShop!\n\nSearch for products using the form above to see detailed information, pricing, and availability.";
             System.out.println("Empty search - showing welcome message.");
+            updateView();
+        }
+    }
+
+    // Shows the first search result, called on the JavaFX thread once the lookup finishes
+    private void showSearchResults(String searchTerm, ArrayList<Product> results) {
+        if(!results.isEmpty() && results.get(0).getStockQuantity() > 0){
+            theProduct = results.get(0); // Take the first result
+
+            double unitPrice = theProduct.getUnitPrice();
+            String description = theProduct.getProductDescription();
+            int stock = theProduct.getStockQuantity();
+            String imageName = theProduct.getProductImageName();
+
+            // Modern formatted product info
+            StringBuilder productInfo = new StringBuilder();
+            productInfo.append("✅ Product Found!\n\n");
+            productInfo.append("📦 ").append(description).append("\n");
+            productInfo.append("🏷️  ID: ").append(theProduct.getProductId()).append("\n");
+            productInfo.append("💰 Price: £").append(String.format("%.2f", unitPrice)).append("\n");
+
+            // Stock information with emojis
+            if (stock >= 50) {
+                productInfo.append("📈 Stock: ").append(stock).append(" units (In Stock)");
+            } else if (stock >= 10) {
+                productInfo.append("⚠️  Stock: ").append(stock).append(" units (Limited Stock)");
+            } else if (stock > 0) {
+                productInfo.append("🚨 Stock: ").append(stock).append(" units (Low Stock - Order Soon!)");
+            } else {
+                productInfo.append("❌ Out of Stock");
+            }
+
+            displayLaSearchResult = productInfo.toString();
+
+            // Clear any previous error messages
+            displayTaReceipt = "";
+
+            System.out.println("Product found: " + theProduct.getProductId() + " - " + description);
+        }
+        else{
+            theProduct = null;
+            if (results.isEmpty()) {
+                displayLaSearchResult = "❌ Product Not Found\n\nNo product found matching: " + searchTerm +
+                        "\n\nPlease check your search term and try again.";
+            } else {
+                displayLaSearchResult = "❌ Out of Stock\n\nProduct matching '" + searchTerm +
+                        "' is currently out of stock.\n\nPlease check back later or browse other products.";
+            }
+            System.out.println("No product found or out of stock: " + searchTerm);
         }
         updateView();
     }
@@ -106,28 +124,29 @@ public class CustomerModel {
         if(theProduct != null) {
             // Check if product already exists in trolley
             boolean found = false;
-            for(Product p : trolley) {
-                if(p.getProductId().equals(theProduct.getProductId())) {
+            for(LineItem p : trolley) {
+                if(p.getProductKey() == theProduct.getProductKey()) {
                     // Check if adding one more exceeds stock
-                    if(p.getOrderedQuantity() + 1 > theProduct.getStockQuantity()) {
+                    if(p.getQuantity() + 1 > theProduct.getStockQuantity()) {
                         displayLaSearchResult = "🚨 Cannot Add More\n\nProduct: " + theProduct.getProductDescription() +
                                 "\nOnly " + theProduct.getStockQuantity() + " units available.\n" +
-                                "You already have " + p.getOrderedQuantity() + " in your cart.";
+                                "You already have " + p.getQuantity() + " in your cart.";
                         updateView();
                         return;
                     }
 
                     // Product exists - increase quantity
-                    p.setOrderedQuantity(p.getOrderedQuantity() + 1);
+                    p.setQuantity(p.getQuantity() + 1);
+                    stockSeen.put(p.getProductKey(), theProduct.getStockQuantity());
                     found = true;
 
                     // Update success message
                     displayLaSearchResult = "✅ Added to Cart!\n\n" +
                             p.getProductDescription() +
-                            "\nQuantity: " + p.getOrderedQuantity() +
+                            "\nQuantity: " + p.getQuantity() +
                             "\nAdded to your shopping cart.";
 
-                    System.out.println("Product " + p.getProductId() + " quantity increased to " + p.getOrderedQuantity());
+                    System.out.println("Product " + p.getProductId() + " quantity increased to " + p.getQuantity());
                     break;
                 }
             }
@@ -143,23 +162,17 @@ public class CustomerModel {
                     return;
                 }
 
-                // Create a new Product instance to avoid reference issues
-                Product newProduct = new Product(
-                        theProduct.getProductId(),
-                        theProduct.getProductDescription(),
-                        theProduct.getProductImageName(),
-                        theProduct.getUnitPrice(),
-                        theProduct.getStockQuantity()
-                );
-                newProduct.setOrderedQuantity(1); // Set initial quantity to 1
-                trolley.add(newProduct);
+                // A new line referring to the product's shared CatalogueItem, quantity 1
+                LineItem newLine = theProduct.toLineItem(1);
+                trolley.add(newLine);
+                stockSeen.put(newLine.getProductKey(), theProduct.getStockQuantity());
 
                 // Update success message
                 displayLaSearchResult = "✅ Added to Cart!\n\n" +
-                        newProduct.getProductDescription() +
+                        newLine.getProductDescription() +
                         "\nSuccessfully added to your shopping cart.";
 
-                System.out.println("Product " + newProduct.getProductId() + " added to trolley");
+                System.out.println("Product " + newLine.getProductId() + " added to trolley");
             }
 
             // Sort trolley by product ID
@@ -181,33 +194,35 @@ public class CustomerModel {
 
     // ==================== SORT TROLLEY ====================
     private void sortTrolley() {
-        trolley.sort((p1, p2) -> p1.getProductId().compareTo(p2.getProductId()));
+        trolley.sort(Comparator.comparingLong(LineItem::getProductKey));
     }
 
     // ==================== changeProductQuantity() METHOD ====================
-    void changeProductQuantity(Product product, int change) throws SQLException {
+    void changeProductQuantity(LineItem line, int change) throws SQLException {
         for(int i = 0; i < trolley.size(); i++) {
-            Product p = trolley.get(i);
-            if(p.getProductId().equals(product.getProductId())) {
-                int newQuantity = p.getOrderedQuantity() + change;
+            LineItem p = trolley.get(i);
+            if(p.getProductKey() == line.getProductKey()) {
+                int newQuantity = p.getQuantity() + change;
+                int stock = stockSeen.getOrDefault(p.getProductKey(), 0);
 
                 // If quantity becomes 0 or negative, remove product from trolley
                 if(newQuantity <= 0) {
                     trolley.remove(i);
+                    stockSeen.remove(p.getProductKey());
                     displayLaSearchResult = "🗑️ Removed from Cart\n\n" +
                             p.getProductDescription() +
                             "\nhas been removed from your shopping cart.";
                     System.out.println("Product " + p.getProductId() + " removed from trolley");
                 } else {
                     // Check if new quantity exceeds stock
-                    if(newQuantity > p.getStockQuantity()) {
+                    if(newQuantity > stock) {
                         displayLaSearchResult = "🚨 Stock Limit\n\n" +
                                 p.getProductDescription() +
-                                "\nOnly " + p.getStockQuantity() + " units available.\n" +
+                                "\nOnly " + stock + " units available.\n" +
                                 "Cannot increase quantity further.";
                         System.out.println("Quantity exceeds available stock for " + p.getProductId());
                     } else {
-                        p.setOrderedQuantity(newQuantity);
+                        p.setQuantity(newQuantity);
                         displayLaSearchResult = "🛒 Cart Updated\n\n" +
                                 p.getProductDescription() +
                                 "\nQuantity updated to: " + newQuantity;
@@ -238,119 +253,174 @@ public class CustomerModel {
      * - Generates formatted receipt for user confirmation
      * - Clears cart only after successful stock verification
      * - Provides detailed error messages for insufficient stock
+     * - Steps 3 and 4 (JDBC and order files) run on a StorageExecutor thread; the receipt or the
+     *   error is shown when they finish, and a second click while they run is ignored
      *
      * @throws IOException if file operations fail during order processing
      * @throws SQLException if database operations fail
      */
     void checkOut() throws IOException, SQLException {
+        if (isCheckoutRunning) {
+            System.out.println("Checkout already in progress");
+            return;
+        }
         // 1. VALIDATE CART HAS ITEMS
         if(!trolley.isEmpty()){
             // 2. GROUP PRODUCTS - Consolidate duplicate items by product ID
             // This ensures quantities are summed correctly before stock check
-            ArrayList<Product> groupedTrolley = groupProductsById(trolley);
-
-            // 3. CRITICAL: VERIFY STOCK AVAILABILITY
-            // purchaseStocks() checks AND reserves stock atomically
-            // Returns list of products with insufficient stock (empty list if all OK)
-            ArrayList<Product> insufficientProducts = databaseRW.purchaseStocks(groupedTrolley);
+            // The grouped lines are copies, so changes to the cart while the checkout runs
+            // do not leak into the purchase or the order
+            ArrayList<LineItem> groupedTrolley = groupProductsById(trolley);
+            ArrayList<LineItem> checkedOutItems = new ArrayList<>(trolley);
 
-            // 4. PROCESS ORDER IF STOCK IS AVAILABLE
-            if(insufficientProducts.isEmpty()){
-                // 4a. CREATE ORDER via singleton OrderHub
-                // OrderHub manages order ID generation and persistence
-                OrderHub orderHub = OrderHub.getOrderHub();
-                Order theOrder = orderHub.newOrder(trolley);
-
-                // 4b. CLEAR CART - Only after successful order creation
-                // This prevents losing items if order creation fails
-                trolley.clear();
-
-                // 4c. GENERATE FORMATTED RECEIPT
-                // Uses ProductListFormatter for consistent product display
-                StringBuilder receiptBuilder = new StringBuilder();
-                receiptBuilder.append("🎉 ORDER CONFIRMED!\n");
-                receiptBuilder.append("═══════════════════════════\n\n");
-                receiptBuilder.append("📋 Order ID: ").append(theOrder.getOrderId()).append("\n");
-                receiptBuilder.append("📅 Date: ").append(theOrder.getOrderedDateTime()).append("\n\n");
-                receiptBuilder.append("📦 ORDER DETAILS:\n");
-                receiptBuilder.append(ProductListFormatter.buildString(theOrder.getProductList())).append("\n\n");
-                receiptBuilder.append("═══════════════════════════\n");
-                receiptBuilder.append("✅ Thank you for your purchase!\n");
-                receiptBuilder.append("   Your items will be processed shortly.\n\n");
-                receiptBuilder.append("📧 A confirmation email has been sent.\n");
-                receiptBuilder.append("📱 Track your order using the Order ID.");
-
-                // 4d. UPDATE VIEW STATE
-                displayTaReceipt = receiptBuilder.toString();
-                displayLaSearchResult = "✅ Checkout Successful!\n\nYour order has been processed.\nCheck your receipt for details.";
-
-                // 4e. SET CHECKOUT SUCCESS FLAG
-                // Used by closeReceipt() to show appropriate follow-up message
-                isCheckoutSuccess = true;
-                System.out.println("Checkout successful. Order ID: " + theOrder.getOrderId());
-            }
-            else{
-                // 5. HANDLE INSUFFICIENT STOCK SCENARIO
-                // Build detailed error message showing exactly which items are problematic
-                StringBuilder errorMsg = new StringBuilder();
-                errorMsg.append("🚨 Checkout Failed\n\n");
-                errorMsg.append("The following items have insufficient stock:\n\n");
-
-                for(Product p : insufficientProducts){
-                    errorMsg.append("• ").append(p.getProductDescription())
-                            .append(" (ID: ").append(p.getProductId()).append(")\n")
-                            .append("  Available: ").append(p.getStockQuantity())
-                            .append(" | Requested: ").append(p.getOrderedQuantity()).append("\n\n");
-
-                    // AUTO-REMOVE: Remove problematic items from cart
-                    // Prevents repeated checkout attempts with same insufficient items
-                    trolley.removeIf(item -> item.getProductId().equals(p.getProductId()));
-                }
+            isCheckoutRunning = true;
+            displayLaSearchResult = "⏳ Processing Checkout...\n\nPlease wait while we confirm your order.";
+            updateView();
 
-                errorMsg.append("These items have been removed from your cart.\n");
-                errorMsg.append("Please adjust quantities and try again.");
+            StorageExecutor.submit(() -> {
+                CheckoutEvent event = new CheckoutEvent(); // recorded only while JFR is running
+                event.begin();
 
-                // 5a. RESET PRODUCT SELECTION AND DISPLAY ERRORS
-                theProduct = null;
-                displayLaSearchResult = errorMsg.toString();
-                displayTaReceipt = "";
+                // 3. CRITICAL: VERIFY STOCK AVAILABILITY
+                // purchaseStocks() checks AND reserves stock atomically
+                // Returns list of products with insufficient stock (empty list if all OK)
+                ArrayList<LineItem> insufficientProducts = databaseRW.purchaseStocks(groupedTrolley);
 
-                System.out.println("Checkout failed due to insufficient stock");
-            }
+                // 4a. CREATE ORDER via singleton OrderHub if stock is available
+                // OrderHub manages order ID generation and persistence
+                Order theOrder = null;
+                if (insufficientProducts.isEmpty()) {
+                    theOrder = OrderHub.getOrderHub().newOrder(groupedTrolley);
+                }
+                if (event.shouldCommit()) {
+                    event.source = "customer client";
+                    event.setProducts(groupedTrolley);
+                    event.orderId = theOrder != null ? theOrder.getOrderId() : 0;
+                    event.insufficientCount = insufficientProducts.size();
+                    event.commit();
+                }
+                return new CheckoutResult(theOrder, insufficientProducts);
+            }, result -> {
+                isCheckoutRunning = false;
+                showCheckoutResult(result, checkedOutItems);
+            }, e -> {
+                isCheckoutRunning = false;
+                showStorageError(e);
+            });
         }
         else{
             // 6. HANDLE EMPTY CART SCENARIO
             // Prevents processing empty orders
             displayLaSearchResult = "🛒 Empty Cart\n\nYour shopping cart is empty.\n\nAdd some products before checking out.";
             System.out.println("Checkout attempted with empty trolley");
+            updateView();
+        }
+    }
+
+    // The outcome of the background part of checkOut(): an order, or the items short of stock
+    private record CheckoutResult(Order order, ArrayList<LineItem> insufficientProducts) {}
+
+    // Shows the receipt or the stock error, called on the JavaFX thread once checkout finishes
+    private void showCheckoutResult(CheckoutResult result, ArrayList<LineItem> checkedOutItems) {
+        // 4. PROCESS ORDER IF STOCK IS AVAILABLE
+        if(result.order() != null){
+            Order theOrder = result.order();
+
+            // 4b. CLEAR CART - Only after successful order creation
+            // This prevents losing items if order creation fails
+            trolley.removeAll(checkedOutItems);
+            forgetStockOfRemovedLines();
+
+            // 4c. GENERATE FORMATTED RECEIPT
+            // Uses ProductListFormatter for consistent product display
+            StringBuilder receiptBuilder = new StringBuilder();
+            receiptBuilder.append("🎉 ORDER CONFIRMED!\n");
+            receiptBuilder.append("═══════════════════════════\n\n");
+            receiptBuilder.append("📋 Order ID: ").append(theOrder.getOrderId()).append("\n");
+            receiptBuilder.append("📅 Date: ").append(theOrder.getOrderedDateTime()).append("\n\n");
+            receiptBuilder.append("📦 ORDER DETAILS:\n");
+            receiptBuilder.append(ProductListFormatter.buildString(theOrder.getLineItems())).append("\n\n");
+            receiptBuilder.append("═══════════════════════════\n");
+            receiptBuilder.append("✅ Thank you for your purchase!\n");
+            receiptBuilder.append("   Your items will be processed shortly.\n\n");
+            receiptBuilder.append("📧 A confirmation email has been sent.\n");
+            receiptBuilder.append("📱 Track your order using the Order ID.");
+
+            // 4d. UPDATE VIEW STATE
+            displayTaReceipt = receiptBuilder.toString();
+            displayLaSearchResult = "✅ Checkout Successful!\n\nYour order has been processed.\nCheck your receipt for details.";
+
+            // 4e. SET CHECKOUT SUCCESS FLAG
+            // Used by closeReceipt() to show appropriate follow-up message
+            isCheckoutSuccess = true;
+            System.out.println("Checkout successful. Order ID: " + theOrder.getOrderId());
+        }
+        else{
+            // 5. HANDLE INSUFFICIENT STOCK SCENARIO
+            // Build detailed error message showing exactly which items are problematic
+            StringBuilder errorMsg = new StringBuilder();
+            errorMsg.append("🚨 Checkout Failed\n\n");
+            errorMsg.append("The following items have insufficient stock:\n\n");
+
+            for(LineItem p : result.insufficientProducts()){
+                errorMsg.append("• ").append(p.getProductDescription())
+                        .append(" (ID: ").append(p.getProductId()).append(")\n")
+                        .append("  Available: ").append(stockSeen.getOrDefault(p.getProductKey(), 0))
+                        .append(" | Requested: ").append(p.getQuantity()).append("\n\n");
+
+                // AUTO-REMOVE: Remove problematic items from cart
+                // Prevents repeated checkout attempts with same insufficient items
+                trolley.removeIf(item -> item.getProductKey() == p.getProductKey());
+            }
+            forgetStockOfRemovedLines();
+
+            errorMsg.append("These items have been removed from your cart.\n");
+            errorMsg.append("Please adjust quantities and try again.");
+
+            // 5a. RESET PRODUCT SELECTION AND DISPLAY ERRORS
+            theProduct = null;
+            displayLaSearchResult = errorMsg.toString();
+            displayTaReceipt = "";
+
+            System.out.println("Checkout failed due to insufficient stock");
         }
         // 7. FINAL VIEW UPDATE
-        // Ensures UI reflects the new state (success, error, or empty cart)
+        // Ensures UI reflects the new state (success or error)
+        updateView();
+    }
+
+    // Reports a failed search or checkout, called on the JavaFX thread
+    private void showStorageError(Throwable e) {
+        displayLaSearchResult = "⚠️ System Error\n\nCould not reach the shop database: " + e.getMessage() + "\n\nPlease try again.";
         updateView();
     }
 
     // ==================== GROUP PRODUCTS BY ID ====================
-    private ArrayList<Product> groupProductsById(ArrayList<Product> proList) {
-        Map<String, Product> grouped = new HashMap<>();
-        for (Product p : proList) {
-            String id = p.getProductId();
-            if (grouped.containsKey(id)) {
-                Product existing = grouped.get(id);
-                existing.setOrderedQuantity(existing.getOrderedQuantity() + p.getOrderedQuantity());
+    // New lines, one per product, sharing the trolley's CatalogueItems
+    private ArrayList<LineItem> groupProductsById(ArrayList<LineItem> lines) {
+        Map<Long, LineItem> grouped = new HashMap<>();
+        for (LineItem p : lines) {
+            LineItem existing = grouped.get(p.getProductKey());
+            if (existing != null) {
+                existing.setQuantity(existing.getQuantity() + p.getQuantity());
             } else {
-                grouped.put(id, new Product(p.getProductId(), p.getProductDescription(),
-                        p.getProductImageName(), p.getUnitPrice(), p.getStockQuantity()));
-                grouped.get(id).setOrderedQuantity(p.getOrderedQuantity());
+                grouped.put(p.getProductKey(), p.copy());
             }
         }
         return new ArrayList<>(grouped.values());
     }
 
+    // Stock figures are only kept for products still in the trolley
+    private void forgetStockOfRemovedLines() {
+        stockSeen.keySet().removeIf(key -> trolley.stream().noneMatch(line -> line.getProductKey() == key));
+    }
+
     // ==================== CANCEL/CLEAR CART ====================
     void cancel(){
         if (!trolley.isEmpty()) {
             int itemCount = trolley.size();
             trolley.clear();
+            stockSeen.clear();
             displayLaSearchResult = "🗑️ Cart Cleared\n\n" + itemCount + " item(s) removed from your cart.\n\nYour cart is now empty.";
             System.out.println("Cart cleared - " + itemCount + " items removed");
         } else {
@@ -374,38 +444,27 @@ public class CustomerModel {
     // ==================== UPDATE VIEW ====================
     void updateView() {
         try {
-            if(theProduct != null){
-                imageName = theProduct.getProductImageName();
-                String relativeImageUrl = StorageLocation.imageFolder + imageName;
-                Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
-                if (imageFullPath.toFile().exists()) {
-                    imageName = imageFullPath.toUri().toString();
-                    System.out.println("Image loaded: " + imageFullPath);
-                } else {
-                    imageName = "imageHolder.jpg";
-                    System.out.println("Product image not found, using placeholder");
-                }
-            }
-            else{
-                imageName = "imageHolder.jpg";
-            }
+            // Name of the image in the images folder, or null for the placeholder;
+            // the view loads its thumbnail through ImageCache
+            imageName = theProduct != null ? theProduct.getProductImageName() : null;
 
             // Update the view with current state
-            cusView.update(imageName, displayLaSearchResult, trolley, displayTaReceipt);
+            cusView.update(imageName, displayLaSearchResult, trolley, stockSeen, displayTaReceipt);
 
         } catch (Exception e) {
             System.err.println("Error updating view: " + e.getMessage());
             e.printStackTrace();
             // Fallback to ensure view is updated
-            cusView.update("imageHolder.jpg",
+            cusView.update(null,
                     "⚠️ System Error\n\nAn error occurred. Please try again.",
                     trolley,
+                    stockSeen,
                     "");
         }
     }
 
     // ==================== GETTERS ====================
-    public ArrayList<Product> getTrolley() {
+    public ArrayList<LineItem> getTrolley() {
         return new ArrayList<>(trolley); // Return copy to prevent external modification
     }
 }
\ No newline at end of file
@@ -1,9 +1,9 @@
 package ci553.happyshop.client.customer;
 
-import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.utility.ImageCache;
 import ci553.happyshop.utility.WinPosManager;
 import ci553.happyshop.utility.WindowBounds;
-import ci553.happyshop.utility.StorageLocation;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -17,10 +17,10 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 
 //Modern HappyShop Customer View using CustomerUIStyles
@@ -43,7 +43,8 @@ public class CustomerView {
     private ImageView ivProduct;
     private Label lbProductInfo;
     private TextArea taReceipt;
-    private ListView<Product> lvTrolley;
+    private ListView<LineItem> lvTrolley;
+    private Map<Long, Integer> trolleyStock = Map.of(); // stock of each trolley product, by productKey
     private Label laTotalPrice;
     private Label laItemCount;
     private Stage viewWindow;
@@ -354,9 +355,9 @@ public class CustomerView {
             lvTrolley.setStyle(COMPS.getListView());
 
             // Modern cell factory
-            lvTrolley.setCellFactory(param -> new ListCell<Product>() {
+            lvTrolley.setCellFactory(param -> new ListCell<LineItem>() {
                 @Override
-                protected void updateItem(Product product, boolean empty) {
+                protected void updateItem(LineItem product, boolean empty) {
                     super.updateItem(product, empty);
 
                     if (empty || product == null) {
@@ -377,7 +378,7 @@ public class CustomerView {
         return cartCard;
     }
 
-    private HBox createCartItemCard(Product product) {
+    private HBox createCartItemCard(LineItem product) {
         HBox itemCard = new HBox(SPACE.LG);
         itemCard.setStyle(
                 "-fx-padding: " + SPACE.LG + "px; " +
@@ -387,17 +388,9 @@ public class CustomerView {
         itemCard.setAlignment(Pos.CENTER_LEFT);
 
         // Product image
-        String imageName = product.getProductImageName();
-        String relativeImageUrl = StorageLocation.imageFolder + imageName;
-        Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
-        String imageFullUri = imageFullPath.toUri().toString();
-
-        ImageView productImage;
-        try {
-            productImage = new ImageView(new Image(imageFullUri, 80, 80, true, true));
-        } catch (Exception e) {
-            productImage = new ImageView(new Image("imageHolder.jpg", 80, 80, true, true));
-        }
+        // Cached thumbnail, decoded in the background the first time it is shown
+        ImageView productImage = new ImageView();
+        ImageCache.loadThumbnail(productImage, product.getProductImageName(), 80, "imageHolder.jpg");
         productImage.setStyle("-fx-background-radius: " + BORDERS.MD + "px;");
 
         // Product info
@@ -413,8 +406,8 @@ public class CustomerView {
 
         // Stock status badge using CustomerUIStyles helper
         String stockStatus = CustomerUIStyles.getStockStatusStyle(
-                product.getStockQuantity(),
-                product.getOrderedQuantity()
+                trolleyStock.getOrDefault(product.getProductKey(), 0),
+                product.getQuantity()
         );
         Label stockBadge = new Label(stockStatus.toUpperCase());
         stockBadge.setStyle(COMPS.getStatusBadge(stockStatus));
@@ -441,7 +434,7 @@ public class CustomerView {
         btnDecrease.setOnAction(e -> changeQuantity(product, -1));
         setupButtonHover(btnDecrease, "#D32F2F"); // Darker red
 
-        Label quantity = new Label(String.valueOf(product.getOrderedQuantity()));
+        Label quantity = new Label(String.valueOf(product.getQuantity()));
         quantity.setStyle(COMPS.getBodyText() + " -fx-font-weight: " + TYPO.SEMIBOLD + "; -fx-min-width: 30px; -fx-alignment: center;");
 
         Button btnIncrease = new Button("+");
@@ -452,7 +445,7 @@ public class CustomerView {
         // Remove button
         Button btnRemove = new Button("×");
         btnRemove.setStyle(COMPS.getIconButton(COLORS.TEXT_TERTIARY));
-        btnRemove.setOnAction(e -> changeQuantity(product, -product.getOrderedQuantity()));
+        btnRemove.setOnAction(e -> changeQuantity(product, -product.getQuantity()));
         setupButtonHover(btnRemove, COLORS.ERROR);
 
         quantitySection.getChildren().addAll(btnDecrease, quantity, btnIncrease, btnRemove);
@@ -637,7 +630,7 @@ public class CustomerView {
         return null;
     }
 
-    public void changeQuantity(Product product, int delta) {
+    public void changeQuantity(LineItem product, int delta) {
         try {
             cusController.changeQuantity(product, delta);
             if (lvTrolley != null) {
@@ -668,20 +661,16 @@ public class CustomerView {
         alert.showAndWait();
     }
 
-    public void update(String imageName, String searchResult, List<Product> trolleyList, String receipt) {
-        // Update product image
-        try {
-            if (imageName != null && !imageName.isEmpty()) {
-                ivProduct.setImage(new Image(imageName));
-            }
-        } catch (Exception e) {
-            ivProduct.setImage(new Image("imageHolder.jpg"));
-        }
+    public void update(String imageName, String searchResult, List<LineItem> trolleyList,
+                       Map<Long, Integer> stockByProductKey, String receipt) {
+        // Update product image: the pre-generated 140px thumbnail, or the placeholder when imageName is null
+        ImageCache.loadThumbnail(ivProduct, imageName, 140, "imageHolder.jpg");
 
         // Update product info
         lbProductInfo.setText(searchResult);
 
         // Update trolley
+        trolleyStock = stockByProductKey != null ? new HashMap<>(stockByProductKey) : Map.of();
         updateTrolley(trolleyList != null ? trolleyList : new ArrayList<>());
 
         // Show receipt if available
@@ -691,7 +680,7 @@ public class CustomerView {
         }
     }
 
-    public void updateTrolley(List<Product> products) {
+    public void updateTrolley(List<LineItem> products) {
         if (lvTrolley != null) {
             lvTrolley.getItems().setAll(products);
             lvTrolley.refresh();
@@ -703,8 +692,8 @@ public class CustomerView {
     private void updateTotalPrice() {
         if (lvTrolley != null && laTotalPrice != null) {
             double total = 0.0;
-            for (Product product : lvTrolley.getItems()) {
-                total += product.getUnitPrice() * product.getOrderedQuantity();
+            for (LineItem product : lvTrolley.getItems()) {
+                total += product.getTotalPrice();
             }
             laTotalPrice.setText(String.format("£%.2f", total));
         }
@@ -1,7 +1,9 @@
 package ci553.happyshop.client.orderTracker;
 
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderMapListener;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.StorageExecutor;
 import ci553.happyshop.utility.WinPosManager;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -22,7 +24,7 @@ import java.util.TreeMap;
  * - Real-time updates from OrderHub
  * - Professional dashboard appearance
  */
-public class OrderTracker {
+public class OrderTracker implements OrderMapListener {
     private final int WIDTH = 500;
     private final int HEIGHT = 700;
 
@@ -286,12 +288,16 @@ public class OrderTracker {
 
     /**
      * Sets the order map with new data and refreshes the display.
-     * This method is called by OrderHub when order states are updated.
+     * This method is called by OrderHub when order states are updated,
+     * possibly from a storage thread, so the refresh is run on the JavaFX thread.
      */
+    @Override
     public void setOrderMap(TreeMap<Integer, OrderState> om) {
-        ordersMap.clear(); // Clears the current map to replace it with the new data
-        ordersMap.putAll(om); // Adds all new order data to the map
-        displayOrderMap(); // Updates the display with the new order map
+        StorageExecutor.runOnUiThread(() -> {
+            ordersMap.clear(); // Clears the current map to replace it with the new data
+            ordersMap.putAll(om); // Adds all new order data to the map
+            displayOrderMap(); // Updates the display with the new order map
+        });
     }
 
     /**
@@ -1,12 +1,15 @@
 package ci553.happyshop.client.picker;
 
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderMapListener;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.profiling.PickerClaimEvent;
+import ci553.happyshop.utility.IntHashSet;
+import ci553.happyshop.utility.StorageExecutor;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * PickerModel represents the logic order picker.
@@ -37,9 +40,13 @@ import java.util.TreeSet;
  *
  * This ensures that all PickerModels stay in sync by only updating their local state
  * in response to centralized changes made by the OrderHub.
+ *
+ * OrderHub moves order files, so state changes are submitted to StorageExecutor rather than run on
+ * the JavaFX thread. OrderHub's notifications may arrive on any thread; setOrderMap() hands them to
+ * the JavaFX thread, so orderMap and lockedOrderIds are only ever touched there.
  */
 
-public class PickerModel {
+public class PickerModel implements OrderMapListener {
     public PickerView pickerView;
     private OrderHub orderHub = OrderHub.getOrderHub();
 
@@ -49,7 +56,7 @@ public class PickerModel {
 
     // TreeMap (orderID,state) holding order IDs and their corresponding states.
     private static TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
-    private static TreeSet<Integer> lockedOrderIds = new TreeSet<>(); // Track locked orders by orderId
+    private static IntHashSet lockedOrderIds = new IntHashSet(); // Track locked orders by orderId
 
     private int theOrderId=0; //Order ID assigned to a picker;
                               // 0 means no order is currently assigned.
@@ -64,10 +71,14 @@ public class PickerModel {
         for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
             int orderId = entry.getKey();
             if (!isOrderLocked(orderId)) { // Find the first unlocked order
+                PickerClaimEvent claim = new PickerClaimEvent(); // recorded only while JFR is running
+                claim.begin();
+                claim.orderId = orderId;
+                claim.waitingOrders = orderMap.size();
                 lockOrder(orderId);// Lock the order to prevent other pickers from taking it
                 theOrderId = orderId; // Save the assigned orderId to this picker and update its state
                 theOrderState = OrderState.Progressing;
-                notifyOrderHub();// Notify the OrderHub about the state change
+                notifyOrderHub(claim);// Notify the OrderHub about the state change
                 updatePickerView(); // Refresh picker view
                 return; // Exit after handling one order
             }
@@ -97,11 +108,11 @@ public class PickerModel {
     public void doCollected() throws IOException {
         if(theOrderId!=0 && isOrderLocked(theOrderId)){
             theOrderState = OrderState.Collected;
-            notifyOrderHub(); // Notify the OrderHub about the state change
+            notifyOrderHub(null); // Notify the OrderHub about the state change
             displayTaOrderDetail = "";
             updatePickerView(); // update picker view
-            theOrderId=0;  //reset to no order is with the picker
             unlockOrder(theOrderId);//remove the order from locked orderId set
+            theOrderId=0;  //reset to no order is with the picker
         }
     }
 
@@ -115,21 +126,62 @@ public class PickerModel {
     //Notifies the OrderHub of a change in the order state.
     //If the order is moving to the 'Progressing' state, asks OrderHub to read the order detail
     // from the file system for displaying in the pickerView.
-    private void notifyOrderHub() throws IOException {
-        orderHub.changeOrderStateMoveFile(theOrderId, theOrderState);
-        if (theOrderState == OrderState.Progressing) {
-            // Read order file, ie. order details
-            displayTaOrderDetail = orderHub.getOrderDetailForPicker(theOrderId);
+    // claim is the picker's claim event when moving to 'Progressing', committed once the details are read.
+    // OrderHub refuses the move if the order has already moved on, eg. a picker in another client
+    // or the API took it first; the picker then lets go of the order and is told so.
+    private void notifyOrderHub(PickerClaimEvent claim) {
+        int orderId = theOrderId;
+        OrderState newState = theOrderState;
+        StorageExecutor.submit(() -> {
+            if (!orderHub.changeOrderStateMoveFile(orderId, newState)) {
+                return null; // not moved
+            }
+            if (newState == OrderState.Progressing) {
+                // Read order file, ie. order details
+                String orderDetail = orderHub.getOrderDetailForPicker(orderId);
+                if (claim != null) {
+                    claim.commit();
+                }
+                return orderDetail;
+            }
+            return "";
+        }, orderDetail -> {
+            if (orderDetail == null) {
+                orderNotMoved(orderId, newState, "⚠️ Order " + orderId + " was already taken by another picker");
+            } else if (newState == OrderState.Progressing && orderId == theOrderId) {
+                displayTaOrderDetail = orderDetail;
+                updatePickerView();
+            }
+        }, e -> {
+            System.err.println("Failed to move order " + orderId + " to " + newState + ": " + e.getMessage());
+            orderNotMoved(orderId, newState, "⚠️ Could not update order " + orderId + ": " + e.getMessage());
+        });
+    }
+
+    // The order stayed where it was: release it if this picker was about to progress it, and say why
+    private void orderNotMoved(int orderId, OrderState newState, String message) {
+        if (newState == OrderState.Progressing) {
+            unlockOrder(orderId);
+        }
+        if (orderId == theOrderId) {
+            theOrderId = 0;
+        }
+        if (theOrderId == 0) { // leave the details alone if the picker has moved on to another order
+            displayTaOrderDetail = message;
+            updatePickerView();
         }
     }
 
     // Sets the order map with new data and refreshes the display.
     // This method is called by OrderHub to set orderMap for picker.
+    @Override
     public void setOrderMap(TreeMap<Integer,OrderState> om) {
-        orderMap.clear();
-        orderMap.putAll(om);
-        displayTaOrderMap= buildOrderMapString();
-        updatePickerView();
+        StorageExecutor.runOnUiThread(() -> {
+            orderMap.clear();
+            orderMap.putAll(om);
+            displayTaOrderMap= buildOrderMapString();
+            updatePickerView();
+        });
     }
 
     //Builds a formatted string representing the current order map.
@@ -146,6 +198,8 @@ public class PickerModel {
 
     private void updatePickerView()
     {
-        pickerView.update(displayTaOrderMap,displayTaOrderDetail);
+        if (pickerView != null) {
+            pickerView.update(displayTaOrderMap,displayTaOrderDetail);
+        }
     }
 }
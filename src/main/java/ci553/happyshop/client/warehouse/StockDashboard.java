@@ -2,8 +2,14 @@ package ci553.happyshop.client.warehouse;
 
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.catalogue.StockLevelIndicator;
+import ci553.happyshop.catalogue.StockSummary;
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderMetrics;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.storageAccess.DatabaseRWFactory;
+import ci553.happyshop.storageAccess.StockEventBus;
+import ci553.happyshop.utility.SearchCoordinator;
+import ci553.happyshop.utility.StorageExecutor;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -14,6 +20,15 @@ import javafx.stage.Stage;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Stock Dashboard - Visual overview of inventory status
@@ -23,17 +38,41 @@ import java.util.ArrayList;
  * - Visual stock level indicators
  * - Search and filter functionality
  * - Responsive UI with product cards
+ * - Live stock: while the window is open it listens to StockEventBus and redraws only the cards
+ *   of changed products, at most 10 times a second (-Dhappyshop.dashboard.maxUpdatesPerSecond)
+ *   however busy the tills are
  */
 
 public class StockDashboard {
     private Stage dashboardWindow;
     private WarehouseView warehouseView;
     private DatabaseRW databaseRW;
+    private final SearchCoordinator<ArrayList<Product>> searches = new SearchCoordinator<>();
+
+    private static final long UPDATE_INTERVAL_NANOS =
+            1_000_000_000L / Math.max(1, Integer.getInteger("happyshop.dashboard.maxUpdatesPerSecond", 10));
+    private static final ScheduledExecutorService updateTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "happyshop-dashboard-updates");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Product IDs changed since the last update; filled by StockEventBus on storage threads
+    private final Set<String> changedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private volatile long lastUpdateNanos;
+    private Runnable unsubscribe;
+
+    // The card shown for each product ID; JavaFX thread only
+    private final Map<String, HBox> cardsById = new HashMap<>();
+    private boolean showingAllProducts;
 
     private VBox contentArea;
     private Label totalProductsLabel;
     private Label lowStockCountLabel;
     private Label outOfStockCountLabel;
+    private Tooltip lowStockTooltip;
+    private Label orderFlowLabel;
 
     private final int WIDTH = 800;
     private final int HEIGHT = 600;
@@ -57,6 +96,10 @@ public class StockDashboard {
         // Header with statistics
         HBox header = createHeader();
 
+        // Order flow (queue depth and wait times from OrderHub)
+        orderFlowLabel = new Label();
+        orderFlowLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #666; -fx-font-family: 'Consolas', monospace;");
+
         // Filter controls
         HBox filterBar = createFilterBar();
 
@@ -73,10 +116,11 @@ public class StockDashboard {
         HBox buttonBar = new HBox(btnRefresh);
         buttonBar.setAlignment(Pos.CENTER);
 
-        root.getChildren().addAll(header, filterBar, scrollPane, buttonBar);
+        root.getChildren().addAll(header, orderFlowLabel, filterBar, scrollPane, buttonBar);
 
         Scene scene = new Scene(root, WIDTH, HEIGHT);
         dashboardWindow.setScene(scene);
+        dashboardWindow.setOnHidden(e -> stopLiveUpdates());
 
         // Load initial data
         refresh();
@@ -96,6 +140,8 @@ public class StockDashboard {
         // Low stock stat
         VBox lowStockBox = createStatBox("⚠️ Low Stock", "0", "#FF9500");
         lowStockCountLabel = (Label) ((VBox) lowStockBox.getChildren().get(1)).getChildren().get(0);
+        lowStockTooltip = new Tooltip();
+        Tooltip.install(lowStockBox, lowStockTooltip);
 
         // Out of stock stat
         VBox outOfStockBox = createStatBox("❌ Out of Stock", "0", "#FF3B30");
@@ -163,44 +209,35 @@ public class StockDashboard {
         return scrollPane;
     }
 
+    // Queries run on a StorageExecutor thread; the cards are built when the results arrive
+    // Goes through the search coordinator too, so a late full load cannot replace newer search results
     private void loadProducts() {
-        contentArea.getChildren().clear();
-
-        try {
-            // Search for all products (empty keyword returns all in some implementations,
-            // or you could add a getAllProducts() method to DatabaseRW)
-            ArrayList<Product> allProducts = databaseRW.searchProduct("");
-
-            if (allProducts.isEmpty()) {
-                // If empty search doesn't work, try common IDs
-                allProducts = new ArrayList<>();
-                for (int i = 1; i <= 20; i++) {
-                    String id = String.format("%04d", i);
-                    Product p = databaseRW.searchByProductId(id);
-                    if (p != null) {
-                        allProducts.add(p);
-                    }
-                }
-            }
+        searches.searchNow(this::queryAllProducts, this::showAllProducts,
+                e -> showError("Database Error", "Failed to load products: " + e.getMessage()));
+    }
 
-            updateStatistics(allProducts);
+    private ArrayList<Product> queryAllProducts() throws SQLException {
+        return databaseRW.getAllProducts();
+    }
 
-            for (Product product : allProducts) {
-                HBox productCard = createProductCard(product);
-                contentArea.getChildren().add(productCard);
-            }
+    private void showAllProducts(ArrayList<Product> allProducts) {
+        contentArea.getChildren().clear();
+        cardsById.clear();
+        showingAllProducts = true;
 
-            if (allProducts.isEmpty()) {
-                Label noProducts = new Label("No products found in database");
-                noProducts.setStyle("-fx-font-size: 16px; -fx-text-fill: #999; -fx-padding: 50px;");
-                contentArea.getChildren().add(noProducts);
-                contentArea.setAlignment(Pos.CENTER);
-            } else {
-                contentArea.setAlignment(Pos.TOP_CENTER);
-            }
+        for (Product product : allProducts) {
+            HBox productCard = createProductCard(product);
+            cardsById.put(product.getProductId(), productCard);
+            contentArea.getChildren().add(productCard);
+        }
 
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to load products: " + e.getMessage());
+        if (allProducts.isEmpty()) {
+            Label noProducts = new Label("No products found in database");
+            noProducts.setStyle("-fx-font-size: 16px; -fx-text-fill: #999; -fx-padding: 50px;");
+            contentArea.getChildren().add(noProducts);
+            contentArea.setAlignment(Pos.CENTER);
+        } else {
+            contentArea.setAlignment(Pos.TOP_CENTER);
         }
     }
 
@@ -210,6 +247,7 @@ public class StockDashboard {
         card.setAlignment(Pos.CENTER_LEFT);
         card.setStyle("-fx-background-color: white; -fx-background-radius: 8px; " +
                 "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.08), 8, 0, 0, 2);");
+        card.setUserData(product.getProductKey()); // sort key for insertCard
 
         // Product ID
         Label idLabel = new Label(product.getProductId());
@@ -236,16 +274,17 @@ public class StockDashboard {
         Label stockLabel = new Label(String.valueOf(product.getStockQuantity()));
         stockLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold;");
 
-        Label stockText = new Label("units");
+        int reserved = OrderHub.getOrderHub().getReservedStock(product.getProductKey());
+        Label stockText = new Label(reserved > 0 ? "units, " + reserved + " reserved" : "units");
         stockText.setStyle("-fx-font-size: 12px; -fx-text-fill: #999;");
 
         stockBox.getChildren().addAll(stockLabel, stockText);
 
-        // Stock level indicator using the existing StockLevelIndicator
+        // Stock level against the product's maximum stock (ProductTable.maxStock)
         int currentStock = product.getStockQuantity();
-        int maxStock = currentStock > 0 ? currentStock * 2 : 100; // Approximate max
+        int maxStock = product.getMaxStockCapacity();
 
-        StockLevelIndicator.StockLevel level = StockLevelIndicator.determineStockLevel(currentStock, maxStock);
+        StockLevelIndicator.StockLevel level = product.getStockLevel();
 
         Label statusBadge = new Label(level.getDisplayText());
         statusBadge.setStyle(StockLevelIndicator.getStyleForLevel(level));
@@ -253,7 +292,8 @@ public class StockDashboard {
         statusBadge.setAlignment(Pos.CENTER);
 
         // Stock bar
-        ProgressBar stockBar = new ProgressBar(currentStock > 0 ? Math.min(currentStock / 100.0, 1.0) : 0);
+        ProgressBar stockBar = new ProgressBar(currentStock > 0 && maxStock > 0
+                ? Math.min((double) currentStock / maxStock, 1.0) : 0);
         stockBar.setPrefWidth(150);
         stockBar.setStyle(getProgressBarStyle(level));
 
@@ -288,23 +328,20 @@ public class StockDashboard {
         );
     }
 
-    private void updateStatistics(ArrayList<Product> products) {
-        int total = products.size();
-        int lowStock = 0;
-        int outOfStock = 0;
-
-        for (Product p : products) {
-            int stock = p.getStockQuantity();
-            if (stock == 0) {
-                outOfStock++;
-            } else if (stock < 10) {
-                lowStock++;
-            }
-        }
+    // The figures cover the whole catalogue whatever is shown below, and come from the storage
+    // layer's counters (DatabaseRW.getStockSummary) rather than from counting the cards
+    private void loadStatistics() {
+        StorageExecutor.submit(databaseRW::getStockSummary, this::updateStatistics,
+                e -> System.out.println("Stock summary not loaded: " + e.getMessage()));
+    }
 
-        totalProductsLabel.setText(String.valueOf(total));
-        lowStockCountLabel.setText(String.valueOf(lowStock));
-        outOfStockCountLabel.setText(String.valueOf(outOfStock));
+    private void updateStatistics(StockSummary summary) {
+        totalProductsLabel.setText(String.valueOf(summary.totalProducts()));
+        lowStockCountLabel.setText(String.valueOf(summary.count(StockLevelIndicator.StockLevel.LOW)));
+        outOfStockCountLabel.setText(String.valueOf(summary.outOfStock()));
+        lowStockTooltip.setText(summary.lowStockIds().isEmpty()
+                ? "No products low in stock"
+                : "Low or out of stock: " + String.join(", ", summary.lowStockIds()));
     }
 
     private void filterProducts(String filter) {
@@ -319,31 +356,34 @@ public class StockDashboard {
             return;
         }
 
-        contentArea.getChildren().clear();
-
-        try {
-            ArrayList<Product> results = databaseRW.searchProduct(query.trim());
-            updateStatistics(results);
+        // Called on every keystroke; queries once typing pauses
+        String keyword = query.trim();
+        searches.search(() -> databaseRW.searchProduct(keyword), this::showSearchResults,
+                e -> showError("Search Error", "Failed to search products: " + e.getMessage()));
+    }
 
-            for (Product product : results) {
-                HBox productCard = createProductCard(product);
-                contentArea.getChildren().add(productCard);
-            }
+    private void showSearchResults(ArrayList<Product> results) {
+        contentArea.getChildren().clear();
+        cardsById.clear();
+        showingAllProducts = false;
 
-            if (results.isEmpty()) {
-                Label noResults = new Label("No products match your search");
-                noResults.setStyle("-fx-font-size: 16px; -fx-text-fill: #999; -fx-padding: 50px;");
-                contentArea.getChildren().add(noResults);
-                contentArea.setAlignment(Pos.CENTER);
-            }
+        for (Product product : results) {
+            HBox productCard = createProductCard(product);
+            cardsById.put(product.getProductId(), productCard);
+            contentArea.getChildren().add(productCard);
+        }
 
-        } catch (SQLException e) {
-            showError("Search Error", "Failed to search products: " + e.getMessage());
+        if (results.isEmpty()) {
+            Label noResults = new Label("No products match your search");
+            noResults.setStyle("-fx-font-size: 16px; -fx-text-fill: #999; -fx-padding: 50px;");
+            contentArea.getChildren().add(noResults);
+            contentArea.setAlignment(Pos.CENTER);
         }
     }
 
     public void show() {
         if (dashboardWindow != null) {
+            startLiveUpdates();
             refresh();
             dashboardWindow.show();
             dashboardWindow.toFront();
@@ -352,6 +392,103 @@ public class StockDashboard {
 
     public void refresh() {
         loadProducts();
+        loadStatistics();
+        updateOrderFlow();
+    }
+
+    private void startLiveUpdates() {
+        if (unsubscribe == null) {
+            unsubscribe = StockEventBus.subscribe(change -> {
+                changedIds.add(change.productId());
+                scheduleUpdate();
+            });
+        }
+    }
+
+    private void stopLiveUpdates() {
+        if (unsubscribe != null) {
+            unsubscribe.run();
+            unsubscribe = null;
+        }
+        changedIds.clear();
+    }
+
+    // At most one update is pending; it waits until a frame interval has passed since the last one
+    private void scheduleUpdate() {
+        if (updateScheduled.compareAndSet(false, true)) {
+            long wait = Math.max(0, lastUpdateNanos + UPDATE_INTERVAL_NANOS - System.nanoTime());
+            updateTimer.schedule(this::applyChanges, wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Reads every product changed since the last update once, however many events it had
+    private void applyChanges() {
+        lastUpdateNanos = System.nanoTime();
+        updateScheduled.set(false); // events from now on schedule the next update
+        ArrayList<String> ids = new ArrayList<>(changedIds);
+        changedIds.removeAll(ids);
+        if (ids.isEmpty()) {
+            return;
+        }
+        StorageExecutor.submit(() -> {
+            LinkedHashMap<String, Product> changed = new LinkedHashMap<>();
+            for (String id : ids) {
+                changed.put(id, databaseRW.searchByProductId(id)); // null if deleted
+            }
+            return changed;
+        }, this::patchCards, e -> System.out.println("Dashboard update failed: " + e.getMessage()));
+    }
+
+    private void patchCards(Map<String, Product> changed) {
+        for (Map.Entry<String, Product> entry : changed.entrySet()) {
+            HBox oldCard = cardsById.get(entry.getKey());
+            Product product = entry.getValue();
+            if (product == null) {
+                if (oldCard != null) {
+                    contentArea.getChildren().remove(oldCard);
+                    cardsById.remove(entry.getKey());
+                }
+            } else if (oldCard != null) {
+                HBox newCard = createProductCard(product);
+                contentArea.getChildren().set(contentArea.getChildren().indexOf(oldCard), newCard);
+                cardsById.put(product.getProductId(), newCard);
+            } else if (showingAllProducts) {
+                insertCard(product);
+            }
+            // A new product outside the current search stays hidden until the next search
+        }
+        loadStatistics();
+    }
+
+    // Keeps the cards in productKey order, the order getAllProducts returns
+    private void insertCard(Product product) {
+        if (cardsById.isEmpty()) {
+            contentArea.getChildren().clear(); // the "No products" message
+            contentArea.setAlignment(Pos.TOP_CENTER);
+        }
+        HBox card = createProductCard(product);
+        int index = 0;
+        while (index < contentArea.getChildren().size()
+                && contentArea.getChildren().get(index).getUserData() instanceof Long key
+                && key < product.getProductKey()) {
+            index++;
+        }
+        contentArea.getChildren().add(index, card);
+        cardsById.put(product.getProductId(), card);
+    }
+
+    // Reads the lock-free OrderHub metrics snapshot
+    private void updateOrderFlow() {
+        OrderMetrics.Snapshot snapshot = OrderHub.getOrderHub().getOrderMetrics().snapshot();
+        orderFlowLabel.setText(String.format("🚚 Orders: %d waiting, %d being picked | wait to pick p95 %s | pick to collect p95 %s",
+                snapshot.orderedDepth(),
+                snapshot.progressingDepth(),
+                formatSeconds(snapshot.orderedToProgressing().p95()),
+                formatSeconds(snapshot.progressingToCollected().p95())));
+    }
+
+    private String formatSeconds(long nanos) {
+        return String.format("%.1fs", nanos / 1e9);
     }
 
     private void showError(String title, String message) {
@@ -15,6 +15,9 @@ import javafx.stage.Stage;
  */
 public class WarehouseClient extends Application {
 
+    // Token of the logged-in staff member, set by LoginView before start()
+    public String sessionToken;
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -50,6 +53,7 @@ public class WarehouseClient extends Application {
 
             // Link controller to model
             controller.model = model;
+            controller.sessionToken = sessionToken;
             System.out.println("  ✓ Controller → Model linked");
 
             // Link model to view
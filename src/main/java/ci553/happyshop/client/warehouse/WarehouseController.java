@@ -23,6 +23,7 @@ import java.sql.SQLException;
  */
 public class WarehouseController {
     public WarehouseModel model;
+    public String sessionToken; // whose permissions apply, checked on every action
 
     /**
      * Process user actions with role-based permission checks
@@ -34,11 +35,11 @@ public class WarehouseController {
         }
 
         // Get current user
-        User currentUser = AuthenticationManager.getInstance().getCurrentUser();
+        User currentUser = AuthenticationManager.getInstance().getUser(sessionToken);
 
         if (currentUser == null) {
-            System.err.println("ERROR: No user logged in!");
-            showAccessDenied("You must be logged in to perform this action.");
+            System.err.println("ERROR: No user logged in or session expired!");
+            showAccessDenied("You must be logged in to perform this action. If you were, your session has expired; please log in again.");
             return;
         }
 
@@ -3,26 +3,36 @@ package ci553.happyshop.client.warehouse;
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.storageAccess.ImageFileManager;
+import ci553.happyshop.utility.SearchCoordinator;
+import ci553.happyshop.utility.StorageExecutor;
 import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.TimestampFormatter;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * the bysiness logic layer for warehouse management in the MVC patter
  * this model handles alll product catalog oeprations, stock management, validation
  * and coordination betweeen the databse and teh warehosue view
+ *
+ * database and image file work is submitted to StorageExecutor so it never blocks the
+ * JavaFX thread; the view is updated from the result callbacks, which run back on the JavaFX thread
  */
 public class WarehouseModel {
     public WarehouseView view;
     public DatabaseRW databaseRW;
 
+    // Product IDs are SKU codes (ProductTable.productID VARCHAR(32)), eg. 0001 or TV-40-BLK
+    private static final String PRODUCT_ID_PATTERN = "[A-Za-z0-9-]{1,32}";
+
     private ArrayList<Product> productList = new ArrayList<>();
+    // Load-all and search share it, so whichever was asked for last is what the list shows
+    private final SearchCoordinator<ArrayList<Product>> searches = new SearchCoordinator<>();
     private Product theSelectedPro;
     private String theNewProId;
 
@@ -31,7 +41,7 @@ public class WarehouseModel {
     private String displayPriceEdit = "";
     private String displayStockEdit = "";
     private String displayDescriptionEdit = "";
-    private String displayImageUrlEdit = "WarehouseImageHolder.jpg";
+    private String displayImageNameEdit = null;
 
     public HistoryWindow historyWindow;
     public AlertSimulator alertSimulator;
@@ -60,44 +70,38 @@ public class WarehouseModel {
     /**
      * NEW: Load all products (for initial display)
      */
-    void doLoadAll() throws SQLException {
+    void doLoadAll() {
         System.out.println("Loading all products...");
-        // Get all products by searching with wildcard or getting all IDs
-        productList.clear();
-
-        // Try to load products with IDs from 0001 to 0100
-        for (int i = 1; i <= 100; i++) {
-            String productId = String.format("%04d", i);
-            try {
-                Product product = databaseRW.searchByProductId(productId);
-                if (product != null) {
-                    productList.add(product);
-                }
-            } catch (SQLException e) {
-                // Product doesn't exist, continue
-            }
-        }
+        searches.searchNow(this::loadAllProducts, products -> {
+            productList = products;
+            System.out.println("Loaded " + productList.size() + " products");
+            updateView(UpdateForAction.BTN_LOAD_ALL);
+        }, this::showStorageError);
+    }
 
-        System.out.println("Loaded " + productList.size() + " products");
-        updateView(UpdateForAction.BTN_LOAD_ALL);
+    // Runs on a storage thread
+    private ArrayList<Product> loadAllProducts() throws SQLException {
+        return databaseRW.getAllProducts();
     }
 
     /**
      * Searches products by keyword (ID or name)
      */
-    void doSearch() throws SQLException {
+    void doSearch() {
         String keyword = view.tfSearchKeyword.getText().trim();
         System.out.println("Searching for: '" + keyword + "'");
 
         if (!keyword.isEmpty()) {
-            productList = databaseRW.searchProduct(keyword);
-            System.out.println("Found " + productList.size() + " products");
+            searches.searchNow(() -> databaseRW.searchProduct(keyword), products -> {
+                productList = products;
+                Collections.sort(productList); // in key order, as getAllProducts returns them
+                System.out.println("Found " + productList.size() + " products");
+                updateView(UpdateForAction.BTN_SEARCH);
+            }, this::showStorageError);
         } else {
             // If empty search, load all products
             doLoadAll();
-            return;
         }
-        updateView(UpdateForAction.BTN_SEARCH);
     }
 
     /**
@@ -106,25 +110,21 @@ public class WarehouseModel {
     void doDelete() throws SQLException, IOException {
         Product pro = view.obrLvProducts.getSelectionModel().getSelectedItem();
         if (pro != null) {
-            theSelectedPro = pro;
-            productList.remove(theSelectedPro);
-
-            // Delete from database
-            databaseRW.deleteProduct(theSelectedPro.getProductId());
-
-            // Delete image file
-            String imageName = theSelectedPro.getProductImageName();
-            if (imageName != null && !imageName.isEmpty()) {
-                try {
-                    ImageFileManager.deleteImageFile(StorageLocation.imageFolder, imageName);
-                } catch (IOException e) {
-                    System.err.println("Warning: Could not delete image file: " + e.getMessage());
-                }
-            }
-
-            updateView(UpdateForAction.BTN_DELETE);
-            theSelectedPro = null;
-            showAlert("Product deleted successfully", "Success");
+            StorageExecutor.submit(() -> {
+                // Delete from database
+                databaseRW.deleteProduct(pro.getProductId());
+
+                // Delete image file, unless another product shows the same picture
+                deleteImageIfUnused(pro.getProductImageName());
+                return pro;
+            }, deleted -> {
+                theSelectedPro = deleted;
+                productList.remove(deleted);
+                view.removeProductFromList(deleted.getProductKey());
+                updateView(UpdateForAction.BTN_DELETE);
+                theSelectedPro = null;
+                showAlert("Product deleted successfully", "Success");
+            }, this::showStorageError);
         } else {
             showAlert("No product selected for deletion", "Selection Error");
         }
@@ -142,10 +142,7 @@ public class WarehouseModel {
             displayStockEdit = String.valueOf(theSelectedPro.getStockQuantity());
             displayDescriptionEdit = theSelectedPro.getProductDescription();
 
-            // Build image URL
-            String relativeImageUri = StorageLocation.imageFolder + theSelectedPro.getProductImageName();
-            Path imageFullPath = Paths.get(relativeImageUri).toAbsolutePath();
-            displayImageUrlEdit = imageFullPath.toUri().toString();
+            displayImageNameEdit = theSelectedPro.getProductImageName();
 
             updateView(UpdateForAction.BTN_EDIT);
         } else {
@@ -166,6 +163,30 @@ public class WarehouseModel {
         }
     }
 
+    // Keeps productList in step with a single saved product and updates only its row in the view.
+    // productList is in Product order (productKey), so the product stays at, or goes to, its place.
+    private void replaceInProductList(Product product) {
+        int index = Collections.binarySearch(productList, product);
+        if (index >= 0) {
+            productList.set(index, product);
+        } else {
+            productList.add(-index - 1, product);
+        }
+        view.updateProductInList(product);
+    }
+
+    // Runs on a storage thread; a failed delete only leaves an orphaned file behind
+    private void deleteImageIfUnused(String imageName) throws SQLException {
+        if (imageName == null || imageName.isEmpty() || databaseRW.isImageInUse(imageName)) {
+            return;
+        }
+        try {
+            ImageFileManager.deleteImageFile(StorageLocation.imageFolder, imageName);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not delete image file: " + e.getMessage());
+        }
+    }
+
     /**
      * Submits form based on current mode (edit or add new)
      */
@@ -189,28 +210,12 @@ public class WarehouseModel {
             String textPrice = view.tfPriceEdit.getText().trim();
             String textStock = view.tfStockEdit.getText().trim();
             String description = view.taDescriptionEdit.getText().trim();
+            boolean imageChanged = view.isUserSelectedImageEdit;
+            String selectedImageUri = view.userSelectedImageUriEdit;
 
             System.out.println("Submitting edit for product: " + id);
             System.out.println("Price: " + textPrice + ", Stock: " + textStock);
 
-            // Handle image changes
-            String newImageName = currentImageName;
-            if (view.isUserSelectedImageEdit) {
-                // Delete old image
-                try {
-                    ImageFileManager.deleteImageFile(StorageLocation.imageFolder, currentImageName);
-                } catch (IOException e) {
-                    System.err.println("Warning: Could not delete old image: " + e.getMessage());
-                }
-
-                // Copy new image
-                newImageName = ImageFileManager.copyFileToDestination(
-                        view.userSelectedImageUriEdit,
-                        StorageLocation.imageFolder,
-                        id
-                );
-            }
-
             // Validate input
             if (!validateInputEditChild(textPrice, textStock, description)) {
                 updateView(UpdateForAction.SHOW_INPUT_ERROR_MSG);
@@ -221,16 +226,33 @@ public class WarehouseModel {
             double price = Double.parseDouble(textPrice);
             int stock = Integer.parseInt(textStock);
 
-            // Update database
-            databaseRW.updateProduct(id, description, price, newImageName, stock);
+            StorageExecutor.submit(() -> {
+                // Store the new image (named by its content) and its thumbnails
+                String newImageName = currentImageName;
+                if (imageChanged) {
+                    newImageName = ImageFileManager.storeImage(selectedImageUri, StorageLocation.imageFolder);
+                }
 
-            // Update view and show success
-            updateView(UpdateForAction.BTN_SUBMIT_EDIT);
-            theSelectedPro = null;
-            showAlert("Product updated successfully", "Success");
+                // Update database
+                databaseRW.updateProduct(id, description, price, newImageName, stock);
 
-            // Reload all products to show updated data
-            doLoadAll();
+                // Only now the product no longer points at it, remove the old image if nothing else uses it
+                if (!Objects.equals(newImageName, currentImageName)) {
+                    deleteImageIfUnused(currentImageName);
+                }
+                // Read back the saved row so the list shows exactly what is stored
+                return databaseRW.searchByProductId(id);
+            }, updated -> {
+                // Update view and show success
+                updateView(UpdateForAction.BTN_SUBMIT_EDIT);
+                theSelectedPro = null;
+                showAlert("Product updated successfully", "Success");
+
+                // Replace just this product's row instead of reloading the whole list
+                if (updated != null) {
+                    replaceInProductList(updated);
+                }
+            }, this::showStorageError);
         } else {
             showAlert("No product selected for editing", "Selection Error");
         }
@@ -315,33 +337,37 @@ public class WarehouseModel {
         System.out.println("Description: " + description);
         System.out.println("Image: " + imagePath);
 
-        // Validate input
-        if (!validateInputNewProChild(theNewProId, textPrice, textStock, description, imagePath)) {
-            updateView(UpdateForAction.SHOW_INPUT_ERROR_MSG);
-            return;
-        }
+        String newProId = theNewProId;
+        StorageExecutor.submit(() -> {
+            // Validate input (checks the ID is free in the database)
+            if (!validateInputNewProChild(newProId, textPrice, textStock, description, imagePath)) {
+                return null;
+            }
 
-        // Copy image to destination
-        String imageNameWithExtension = ImageFileManager.copyFileToDestination(
-                imagePath,
-                StorageLocation.imageFolder,
-                theNewProId
-        );
+            // Store image (named by its content) and its thumbnails
+            String imageNameWithExtension = ImageFileManager.storeImage(imagePath, StorageLocation.imageFolder);
 
-        // Parse validated values
-        double price = Double.parseDouble(textPrice);
-        int stock = Integer.parseInt(textStock);
+            // Parse validated values
+            double price = Double.parseDouble(textPrice);
+            int stock = Integer.parseInt(textStock);
 
-        // Insert into database
-        databaseRW.insertNewProduct(theNewProId, description, price, imageNameWithExtension, stock);
+            // Insert into database, then read it back for the list
+            databaseRW.insertNewProduct(newProId, description, price, imageNameWithExtension, stock);
+            return Optional.ofNullable(databaseRW.searchByProductId(newProId));
+        }, inserted -> {
+            if (inserted == null) {
+                updateView(UpdateForAction.SHOW_INPUT_ERROR_MSG);
+                return;
+            }
 
-        // Update view and show success
-        updateView(UpdateForAction.BTN_SUBMIT_NEW);
-        theNewProId = null;
-        showAlert("New product added successfully", "Success");
+            // Update view and show success
+            updateView(UpdateForAction.BTN_SUBMIT_NEW);
+            theNewProId = null;
+            showAlert("New product added successfully", "Success");
 
-        // Reload all products to show new product
-        doLoadAll();
+            // Insert just the new product's row instead of reloading the whole list
+            inserted.ifPresent(this::replaceInProductList);
+        }, this::showStorageError);
     }
 
     /**
@@ -398,8 +424,8 @@ public class WarehouseModel {
         StringBuilder errorMessage = new StringBuilder();
 
         // Validate ID
-        if (id == null || !id.matches("\\d{4}")) {
-            errorMessage.append("• Product ID must be exactly 4 digits.\n");
+        if (id == null || !id.matches(PRODUCT_ID_PATTERN)) {
+            errorMessage.append("• Product ID must be 1 to 32 letters, digits or dashes.\n");
         }
 
         // Check ID availability
@@ -462,11 +488,10 @@ public class WarehouseModel {
                         displayPriceEdit,
                         displayStockEdit,
                         displayDescriptionEdit,
-                        displayImageUrlEdit
+                        displayImageNameEdit
                 );
                 break;
             case BTN_DELETE:
-                view.updateObservableProductList(productList);
                 showManageStockHistory(ManageProductType.DELETED);
                 view.resetEditChild();
                 closeAlertWindow();
@@ -505,7 +530,7 @@ public class WarehouseModel {
      * Adds entry to manage history
      */
     private void showManageStockHistory(ManageProductType type) {
-        String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+        String dateTime = TimestampFormatter.formatHistoryTime(System.currentTimeMillis());
         String record = "";
 
         switch (type) {
@@ -553,6 +578,11 @@ public class WarehouseModel {
         }
     }
 
+    // Reports a failed storage task, called on the JavaFX thread
+    private void showStorageError(Throwable e) {
+        showAlert("Storage error: " + e.getMessage(), "Database Error");
+    }
+
     /**
      * Closes alert window if open
      */
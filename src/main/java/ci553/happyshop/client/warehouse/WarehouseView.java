@@ -1,7 +1,7 @@
 package ci553.happyshop.client.warehouse;
 
 import ci553.happyshop.catalogue.Product;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.ImageCache;
 import ci553.happyshop.utility.WinPosManager;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -19,10 +19,10 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Objects;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
@@ -276,17 +276,9 @@ public class WarehouseView {
         ));
 
         // Product image
-        String imageName = product.getProductImageName();
-        String relativeImageUrl = StorageLocation.imageFolder + imageName;
-        Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
-        String imageFullUri = imageFullPath.toUri().toString();
-
-        ImageView ivPro;
-        try {
-            ivPro = new ImageView(new Image(imageFullUri, 60, 60, true, true));
-        } catch (Exception e) {
-            ivPro = new ImageView(new Image("imageHolder.jpg", 60, 60, true, true));
-        }
+        // Cached thumbnail, decoded in the background the first time it is shown
+        ImageView ivPro = new ImageView();
+        ImageCache.loadThumbnail(ivPro, product.getProductImageName(), 60, "imageHolder.jpg");
         ivPro.setStyle(String.format(
                 "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 4, 0, 0, 2); " +
                         "-fx-background-radius: %fpx;",
@@ -526,7 +518,7 @@ public class WarehouseView {
 
         // ID, Price, Stock
         VBox idBox = createFormField("Product ID*", tfIdNewPro = new TextField(), false);
-        tfIdNewPro.setPromptText("4 digits (e.g., 1234)");
+        tfIdNewPro.setPromptText("SKU code (e.g., 1234 or TV-40)");
 
         VBox priceBox = createFormField("Price (£)*", tfPriceNewPro = new TextField(), false);
         tfPriceNewPro.setPromptText("0.00");
@@ -646,12 +638,117 @@ public class WarehouseView {
     }
 
     // ==================== UPDATE METHODS ====================
+    /**
+     * Shows a new result list by applying only the differences to the displayed list, kept in Product
+     * order (by productKey, see Product.compareTo): rows that disappeared are removed, new rows inserted and changed rows replaced.
+     * The ListView then rebuilds only the visible cells those changes touch. When most rows differ
+     * (eg. a new search), one setAll is cheaper than many single changes and is used instead.
+     */
     void updateObservableProductList(ArrayList<Product> productList) {
-        int proCounter = productList.size();
-        laSearchSummary.setText(String.format("📦 %d product(s) found", proCounter));
-        obeProductList.clear();
-        obeProductList.addAll(productList);
-        obrLvProducts.refresh();
+        ArrayList<Product> target = new ArrayList<>(productList);
+        Collections.sort(target); // by productKey
+
+        if (countStructuralChanges(target) * 4 > Math.max(obeProductList.size(), target.size())) {
+            obeProductList.setAll(target);
+        } else {
+            int i = 0;
+            int j = 0;
+            while (j < target.size()) {
+                if (i == obeProductList.size()) {
+                    obeProductList.addAll(target.subList(j, target.size()));
+                    break;
+                }
+                Product shown = obeProductList.get(i);
+                Product wanted = target.get(j);
+                int cmp = shown.compareTo(wanted);
+                if (cmp == 0) {
+                    if (!sameContent(shown, wanted)) {
+                        obeProductList.set(i, wanted);
+                    }
+                    i++;
+                    j++;
+                } else if (cmp < 0) {
+                    obeProductList.remove(i); // no longer in the results
+                } else {
+                    obeProductList.add(i, wanted);
+                    i++;
+                    j++;
+                }
+            }
+            if (i < obeProductList.size()) {
+                obeProductList.remove(i, obeProductList.size());
+            }
+        }
+        updateSearchSummary();
+    }
+
+    // Replaces one product's row, or inserts it in productKey order; only that row's cell is rebuilt
+    void updateProductInList(Product product) {
+        int index = indexOfProduct(product.getProductKey());
+        if (index >= 0) {
+            obeProductList.set(index, product);
+        } else {
+            obeProductList.add(-index - 1, product);
+        }
+        updateSearchSummary();
+    }
+
+    void removeProductFromList(long productKey) {
+        int index = indexOfProduct(productKey);
+        if (index >= 0) {
+            obeProductList.remove(index);
+        }
+        updateSearchSummary();
+    }
+
+    // Binary search by product key (the list's sort order); like Collections.binarySearch, returns -(insertion point) - 1 if absent
+    private int indexOfProduct(long productKey) {
+        int low = 0;
+        int high = obeProductList.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compare(obeProductList.get(mid).getProductKey(), productKey);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Inserts plus removals needed to turn the shown list into the sorted target
+    private int countStructuralChanges(ArrayList<Product> target) {
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < obeProductList.size() && j < target.size()) {
+            int cmp = obeProductList.get(i).compareTo(target.get(j));
+            if (cmp == 0) {
+                i++;
+                j++;
+            } else if (cmp < 0) {
+                i++;
+                changes++;
+            } else {
+                j++;
+                changes++;
+            }
+        }
+        return changes + (obeProductList.size() - i) + (target.size() - j);
+    }
+
+    private static boolean sameContent(Product a, Product b) {
+        return a.getUnitPrice() == b.getUnitPrice()
+                && a.getStockQuantity() == b.getStockQuantity()
+                && Objects.equals(a.getProductDescription(), b.getProductDescription())
+                && Objects.equals(a.getProductImageName(), b.getProductImageName());
+    }
+
+    private void updateSearchSummary() {
+        laSearchSummary.setText(String.format("📦 %d product(s) found", obeProductList.size()));
     }
 
     void updateBtnAddSub(String stock) {
@@ -659,17 +756,14 @@ public class WarehouseView {
         tfChangeByEdit.clear();
     }
 
-    void updateEditProductChild(String id, String price, String stock, String des, String imageUrl) {
+    void updateEditProductChild(String id, String price, String stock, String des, String imageName) {
         tfIdEdit.setText(id);
         tfPriceEdit.setText(price);
         tfStockEdit.setText(stock);
         taDescriptionEdit.setText(des);
 
-        try {
-            ivProEdit.setImage(new Image(imageUrl));
-        } catch (Exception e) {
-            ivProEdit.setImage(new Image("WarehouseImageHolder.jpg"));
-        }
+        // The pre-generated 120px thumbnail, the size of the edit panel
+        ImageCache.loadThumbnail(ivProEdit, imageName, 120, "WarehouseImageHolder.jpg");
     }
 
     void resetEditChild() {
@@ -0,0 +1,442 @@
+package ci553.happyshop.loadtest;
+
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.storageAccess.DatabaseRW;
+import ci553.happyshop.storageAccess.DatabaseRWFactory;
+import ci553.happyshop.storageAccess.SqlStatistics;
+import ci553.happyshop.systemSetup.SchemaMigrator;
+import ci553.happyshop.systemSetup.SetOrderFileSystem;
+import ci553.happyshop.utility.LatencyHistogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator is a headless soak test: simulated customers, pickers and warehouse staff use the
+ * storage layer and OrderHub directly, the same calls the clients make, while it reports
+ * throughput and latency and checks that no stock is oversold or lost.
+ *
+ * - Customers arrive at random (a Poisson process, -Dhappyshop.load.arrivalsPerSecond), up to
+ *   -Dhappyshop.load.customers shopping at once; arrivals while all are busy are counted as
+ *   dropped. Each does 1-3 searches, then checks out a trolley of 1-5 products as CustomerModel
+ *   does: purchaseStocks, then OrderHub.newOrder.
+ * - Pickers (-Dhappyshop.load.pickers) take the oldest waiting order, move it to Progressing,
+ *   spend a random time picking (mean -Dhappyshop.load.pickMillis), then move it to Collected.
+ *   This follows PickerModel's claim-then-collect steps without its JavaFX view.
+ * - Staff (-Dhappyshop.load.staff) restock a product every -Dhappyshop.load.restockMillis on
+ *   average, adding RESTOCK_UNITS to its stock with DatabaseRW.addStock. (Reading the stock and
+ *   writing back a new figure, as the warehouse edit form does, would undo purchases made in
+ *   between, and the stock check would report them as lost.)
+ *
+ * Products are chosen with Zipf popularity (-Dhappyshop.load.zipfSkew, 0 for uniform).
+ * Every -Dhappyshop.load.reportSeconds it prints the rate and p50/p95/p99/max latency of each
+ * operation. After -Dhappyshop.load.durationSeconds (0 = until Ctrl+C) arrivals stop, pickers
+ * finish the waiting orders and it checks:
+ * - every product's stock equals its starting stock minus what was sold plus what was restocked
+ *   (a difference means a purchase or restock was lost, or an order was placed without its stock
+ *   being taken)
+ * - no stock is negative, and OrderHub's reserved stock matches the orders not yet collected
+ * The final report also lists the SQL statements that took the most time (SqlStatistics).
+ * It exits with status 1 if any check failed. The shop's own logging is hidden so the reports
+ * stay readable; -Dhappyshop.load.quiet=false shows it.
+ *
+ * It changes stock and writes order files, so it refuses to run on the shop's own data: point it
+ * at copies with -Dhappyshop.db.url and -Dhappyshop.storage.root, eg.
+ * <pre>
+ *     cp -r happyShopDB /tmp/soak/ && cp -r orders /tmp/soak/
+ *     mvn javafx:run@soak -Dhappyshop.db.url=jdbc:derby:/tmp/soak/happyShopDB -Dhappyshop.storage.root=/tmp/soak
+ * </pre>
+ */
+
+public class LoadGenerator {
+
+    private static final int CUSTOMERS = Integer.getInteger("happyshop.load.customers", 50);
+    private static final double ARRIVALS_PER_SECOND = Double.parseDouble(System.getProperty("happyshop.load.arrivalsPerSecond", "20"));
+    private static final int PICKERS = Integer.getInteger("happyshop.load.pickers", 4);
+    private static final long PICK_MILLIS = Long.getLong("happyshop.load.pickMillis", 200);
+    private static final int STAFF = Integer.getInteger("happyshop.load.staff", 1);
+    private static final long RESTOCK_MILLIS = Long.getLong("happyshop.load.restockMillis", 2000);
+    private static final int RESTOCK_UNITS = Integer.getInteger("happyshop.load.restockUnits", 50);
+    private static final double ZIPF_SKEW = Double.parseDouble(System.getProperty("happyshop.load.zipfSkew", "1.0"));
+    private static final long DURATION_SECONDS = Long.getLong("happyshop.load.durationSeconds", 60);
+    private static final long REPORT_SECONDS = Long.getLong("happyshop.load.reportSeconds", 10);
+    private static final long DRAIN_SECONDS = Long.getLong("happyshop.load.drainSeconds", 60);
+    private static final int MAX_TROLLEY_LINES = 5;
+
+    // Reports go here; System.out itself is silenced unless -Dhappyshop.load.quiet=false
+    private static final PrintStream console = System.out;
+
+    private final OrderHub orderHub = OrderHub.getOrderHub();
+    private final List<Product> catalogue;
+    private final ZipfDistribution popularity;
+
+    // What stock and reservations should be, from the operations that succeeded
+    private final ConcurrentHashMap<String, AtomicLong> expectedStock = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> expectedReserved = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Order> waitingOrders = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger ordersBeingPicked = new AtomicInteger();
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final Operation search = operation("search");
+    private final Operation checkout = operation("checkout");
+    private final Operation pick = operation("pick");
+    private final Operation collect = operation("collect");
+    private final Operation restock = operation("restock");
+
+    private final AtomicLong outOfStock = new AtomicLong();
+    private final AtomicLong droppedArrivals = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+
+    private final Semaphore customerSlots = new Semaphore(CUSTOMERS);
+    private final CountDownLatch stopRequested = new CountDownLatch(1);
+    private volatile boolean shopOpen = true;   // customers arriving, staff restocking
+    private volatile boolean pickersWorking = true;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("happyshop.db.url") == null || System.getProperty("happyshop.storage.root") == null) {
+            System.err.println("The load test changes stock and writes orders. Run it on copies of the shop data:");
+            System.err.println("  -Dhappyshop.db.url=jdbc:derby:/path/to/copy/happyShopDB -Dhappyshop.storage.root=/path/to/copy");
+            System.exit(2);
+        }
+        if (Boolean.parseBoolean(System.getProperty("happyshop.load.quiet", "true"))) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        SetOrderFileSystem.ensureFolderStructure();
+        SchemaMigrator.migrate();
+        boolean passed = new LoadGenerator().run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    private LoadGenerator() throws Exception {
+        ArrayList<Product> products = DatabaseRWFactory.createDatabaseRW().getAllProducts();
+        if (products.isEmpty()) {
+            throw new IllegalStateException("No products in " + DatabaseRWFactory.dbURL);
+        }
+        Collections.shuffle(products, new Random(553)); // so popularity does not follow product ID
+        catalogue = products;
+        popularity = new ZipfDistribution(products.size(), ZIPF_SKEW);
+        for (Product product : products) {
+            expectedStock.put(product.getProductId(), new AtomicLong(product.getStockQuantity()));
+            expectedReserved.put(product.getProductId(), new AtomicLong(orderHub.getReservedStock(product.getProductKey())));
+        }
+    }
+
+    private boolean run() throws Exception {
+        console.printf("🏋️ Load test: %d products, %.1f arrivals/s, %d customers, %d pickers, %d staff, Zipf skew %.2f, %s%n",
+                catalogue.size(), ARRIVALS_PER_SECOND, CUSTOMERS, PICKERS, STAFF, ZIPF_SKEW,
+                DURATION_SECONDS > 0 ? DURATION_SECONDS + "s" : "until Ctrl+C");
+
+        // Platform threads, not virtual: embedded Derby waits for row and table locks inside its own
+        // synchronized blocks, and on JDK 21 that pins a virtual thread's carrier; with every carrier
+        // pinned behind a lock wait, the transaction holding the lock could never run to release it,
+        // hanging the test. customerSlots keeps at most CUSTOMERS busy
+        AtomicInteger customerNumber = new AtomicInteger();
+        ExecutorService customers = Executors.newFixedThreadPool(CUSTOMERS,
+                task -> Thread.ofPlatform().name("load-customer-" + customerNumber.incrementAndGet()).unstarted(task));
+        Thread arrivals = Thread.ofPlatform().name("load-arrivals").start(() -> arrive(customers));
+        List<Thread> pickers = new ArrayList<>();
+        for (int i = 0; i < PICKERS; i++) {
+            pickers.add(Thread.ofPlatform().name("load-picker-" + i).start(this::pickOrders));
+        }
+        List<Thread> staff = new ArrayList<>();
+        for (int i = 0; i < STAFF; i++) {
+            staff.add(Thread.ofPlatform().name("load-staff-" + i).start(this::restockProducts));
+        }
+        var reporter = Executors.newSingleThreadScheduledExecutor();
+        long startNanos = System.nanoTime();
+        reporter.scheduleAtFixedRate(() -> report(startNanos), REPORT_SECONDS, REPORT_SECONDS, TimeUnit.SECONDS);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopRequested.countDown();
+            try {
+                finished.await(DRAIN_SECONDS + 30, TimeUnit.SECONDS); // let the final checks print
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        if (DURATION_SECONDS > 0) {
+            stopRequested.await(DURATION_SECONDS, TimeUnit.SECONDS);
+        } else {
+            stopRequested.await();
+        }
+
+        // Close the shop, let customers already inside finish, then let pickers empty the queue
+        shopOpen = false;
+        arrivals.join();
+        customerSlots.tryAcquire(CUSTOMERS, DRAIN_SECONDS, TimeUnit.SECONDS);
+        customers.shutdown();
+        for (Thread t : staff) {
+            t.join();
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+        while ((!waitingOrders.isEmpty() || ordersBeingPicked.get() > 0) && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        pickersWorking = false;
+        for (Thread t : pickers) {
+            t.join();
+        }
+        reporter.shutdownNow();
+
+        boolean passed = finalReport(startNanos);
+        finished.countDown();
+        return passed;
+    }
+
+    // Poisson arrivals: exponential gaps, scheduled from the previous arrival so the rate does not drift
+    private void arrive(ExecutorService customers) {
+        long next = System.nanoTime();
+        while (shopOpen) {
+            next += exponentialNanos(1e9 / ARRIVALS_PER_SECOND);
+            LockSupport.parkNanos(next - System.nanoTime());
+            if (!shopOpen) {
+                return;
+            }
+            if (customerSlots.tryAcquire()) {
+                customers.execute(() -> {
+                    try {
+                        visitShop();
+                    } finally {
+                        customerSlots.release();
+                    }
+                });
+            } else {
+                droppedArrivals.incrementAndGet();
+            }
+        }
+    }
+
+    private void visitShop() {
+        DatabaseRW databaseRW = DatabaseRWFactory.createDatabaseRW(); // each customer has their own client
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            int searches = 1 + random.nextInt(3);
+            for (int i = 0; i < searches; i++) {
+                Product wanted = popularProduct();
+                String keyword = random.nextBoolean()
+                        ? wanted.getProductId()
+                        : wanted.getProductDescription().split(" ")[0];
+                search.time(() -> databaseRW.searchProduct(keyword));
+            }
+
+            LinkedHashMap<String, LineItem> lines = new LinkedHashMap<>();
+            int lineCount = 1 + random.nextInt(MAX_TROLLEY_LINES);
+            for (int i = 0; i < lineCount; i++) {
+                LineItem line = popularProduct().toLineItem(1 + random.nextInt(3));
+                lines.putIfAbsent(line.getProductId(), line);
+            }
+            ArrayList<LineItem> trolley = new ArrayList<>(lines.values());
+
+            long start = System.nanoTime();
+            ArrayList<LineItem> insufficient = databaseRW.purchaseStocks(trolley);
+            if (!insufficient.isEmpty()) {
+                outOfStock.incrementAndGet();
+                checkout.record(System.nanoTime() - start);
+                return;
+            }
+            for (LineItem line : trolley) {
+                expectedStock.get(line.getProductId()).addAndGet(-line.getQuantity());
+            }
+            Order order = orderHub.newOrder(trolley);
+            checkout.record(System.nanoTime() - start);
+            for (LineItem line : trolley) {
+                expectedReserved.get(line.getProductId()).addAndGet(line.getQuantity());
+            }
+            waitingOrders.add(order);
+        } catch (Exception e) {
+            error("customer", e);
+        }
+    }
+
+    private void pickOrders() {
+        while (pickersWorking) {
+            Order order = waitingOrders.poll();
+            if (order == null) {
+                sleepMillis(20);
+                continue;
+            }
+            ordersBeingPicked.incrementAndGet();
+            try {
+                int orderId = order.getOrderId();
+                if (!pick.time(() -> orderHub.changeOrderStateMoveFile(orderId, OrderState.Progressing))) {
+                    violations.add("Order " + orderId + " could not be moved to Progressing");
+                    continue;
+                }
+                sleepMillis(exponentialNanos(PICK_MILLIS * 1e6) / 1_000_000);
+                if (!collect.time(() -> orderHub.changeOrderStateMoveFile(orderId, OrderState.Collected))) {
+                    violations.add("Order " + orderId + " could not be moved to Collected");
+                    continue;
+                }
+                for (LineItem line : order.getLineItems()) {
+                    expectedReserved.get(line.getProductId()).addAndGet(-line.getQuantity());
+                }
+            } catch (Exception e) {
+                error("picker", e);
+            } finally {
+                ordersBeingPicked.decrementAndGet();
+            }
+        }
+    }
+
+    private void restockProducts() {
+        DatabaseRW databaseRW = DatabaseRWFactory.createDatabaseRW();
+        while (shopOpen) {
+            sleepMillis(exponentialNanos(RESTOCK_MILLIS * 1e6) / 1_000_000);
+            if (!shopOpen) {
+                return;
+            }
+            String productId = popularProduct().getProductId();
+            try {
+                boolean restocked = restock.time(() -> databaseRW.addStock(productId, RESTOCK_UNITS));
+                if (restocked) {
+                    expectedStock.get(productId).addAndGet(RESTOCK_UNITS);
+                } else {
+                    violations.add("Product " + productId + " disappeared during the test");
+                }
+            } catch (Exception e) {
+                error("staff", e);
+            }
+        }
+    }
+
+    private void report(long startNanos) {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+        StringBuilder sb = new StringBuilder(String.format("[%5ds]", seconds));
+        for (Operation op : operations.values()) {
+            sb.append(String.format("%n  %-8s %s", op.name, op.describe(op.interval, REPORT_SECONDS)));
+            op.interval.reset();
+        }
+        sb.append(String.format("%n  waiting orders %d, out of stock %d, dropped arrivals %d, errors %d, violations %d",
+                waitingOrders.size(), outOfStock.get(), droppedArrivals.get(), errors.get(), violations.size()));
+        console.println(sb);
+    }
+
+    private boolean finalReport(long startNanos) throws Exception {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        console.printf("%n📊 Load test finished after %.0fs%n", seconds);
+        for (Operation op : operations.values()) {
+            console.printf("  %-8s %s%n", op.name, op.describe(op.total, seconds));
+        }
+        console.printf("  out of stock %d, dropped arrivals %d, errors %d, orders not collected %d%n",
+                outOfStock.get(), droppedArrivals.get(), errors.get(), waitingOrders.size() + ordersBeingPicked.get());
+        console.println();
+        console.print(SqlStatistics.report(10));
+
+        // Consistency checks
+        DatabaseRW databaseRW = DatabaseRWFactory.createDatabaseRW();
+        for (Product product : catalogue) {
+            String id = product.getProductId();
+            Product now = databaseRW.searchByProductId(id);
+            if (now == null) {
+                violations.add("Product " + id + " disappeared during the test");
+                continue;
+            }
+            long expected = expectedStock.get(id).get();
+            if (now.getStockQuantity() < 0) {
+                violations.add("Product " + id + " oversold: stock is " + now.getStockQuantity());
+            }
+            if (now.getStockQuantity() != expected) {
+                violations.add("Product " + id + " stock is " + now.getStockQuantity() + ", expected " + expected);
+            }
+            long reserved = orderHub.getReservedStock(product.getProductKey());
+            if (reserved != expectedReserved.get(id).get()) {
+                violations.add("Product " + id + " reserved " + reserved + ", expected " + expectedReserved.get(id).get());
+            }
+        }
+
+        if (violations.isEmpty()) {
+            console.println("✅ No oversold, lost or mis-reserved stock");
+            return true;
+        }
+        console.println("❌ " + violations.size() + " consistency violations:");
+        violations.forEach(v -> console.println("  " + v));
+        return false;
+    }
+
+    private Product popularProduct() {
+        return catalogue.get(popularity.next());
+    }
+
+    private void error(String who, Exception e) {
+        // Print the first few in full; after that just count them
+        if (errors.incrementAndGet() <= 10) {
+            System.err.println("⚠️ " + who + " failed: " + e);
+        }
+    }
+
+    private Operation operation(String name) {
+        Operation op = new Operation(name);
+        operations.put(name, op);
+        return op;
+    }
+
+    private static long exponentialNanos(double meanNanos) {
+        return (long) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanNanos);
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Step<T> {
+        T run() throws Exception;
+    }
+
+    // Latencies of one kind of operation: for the whole run and since the last report
+    private static class Operation {
+        final String name;
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram interval = new LatencyHistogram();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        <T> T time(Step<T> step) throws Exception {
+            long start = System.nanoTime();
+            try {
+                return step.run();
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        void record(long nanos) {
+            total.recordNanos(nanos);
+            interval.recordNanos(nanos);
+        }
+
+        String describe(LatencyHistogram h, double seconds) {
+            return String.format("%7d  %7.1f/s  p50 %7.2fms  p95 %7.2fms  p99 %7.2fms  max %8.2fms",
+                    h.getCount(), h.getCount() / seconds,
+                    h.percentile(50) / 1e6, h.percentile(95) / 1e6, h.percentile(99) / 1e6, h.getMax() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ci553.happyshop.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks ranks 0..n-1 with Zipf popularity: rank r is chosen with probability proportional to
+ * 1 / (r + 1)^skew. With skew 1.0 and 100 products the top 10 take about half of all picks,
+ * which is closer to real shop traffic than picking every product equally often.
+ *
+ * The cumulative probabilities are computed once, so each pick is one random number and a
+ * binary search. Safe to use from many threads.
+ */
+
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double skew) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    public int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int index = Arrays.binarySearch(cumulative, u);
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
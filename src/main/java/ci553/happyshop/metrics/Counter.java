@@ -0,0 +1,29 @@
+package ci553.happyshop.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, eg. the number of failed database calls.
+ * Backed by a LongAdder, so many threads can increment it without contending on one value.
+ * Get one from {@link MetricsRegistry#counter(String, String, String...)}.
+ */
+
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,280 @@
+package ci553.happyshop.metrics;
+
+import ci553.happyshop.utility.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * MetricsRegistry holds the shop's in-process metrics: counters, gauges and timers, each
+ * identified by a name and optional labels, eg. happyshop_db_seconds{method="purchaseStocks"}.
+ *
+ * Code that wants to be measured asks for its metric once and keeps it in a static field, so
+ * recording is just the metric's own atomic update:
+ * <pre>
+ *     private static final Timer searchTimer =
+ *             MetricsRegistry.timer("happyshop_db_seconds", "Time spent in DatabaseRW calls", "method", "searchProduct");
+ *     searchTimer.time(() -> ...);
+ * </pre>
+ * Asking again for the same name and labels returns the same metric.
+ *
+ * Everything can be exported in two formats:
+ * - Prometheus text format ({@link #writePrometheus(Writer)}); timers are written as summaries
+ *   in seconds with 0.5/0.95/0.99 quantiles, a _sum and a _count
+ * - JSON ({@link #writeJson(Writer)}), with timer figures in nanoseconds
+ *
+ * The API server serves both from GET /api/metrics. Without the API, -Dhappyshop.metrics.file=path
+ * makes {@link #startFileDump()} rewrite that file every happyshop.metrics.fileSeconds (default 15);
+ * a name ending in .json gets JSON, anything else Prometheus text (eg. for node_exporter's textfile collector).
+ */
+
+public final class MetricsRegistry {
+
+    private static final String FILE = System.getProperty("happyshop.metrics.file");
+    private static final long FILE_SECONDS = Long.getLong("happyshop.metrics.fileSeconds", 15);
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    // Keyed by the series, eg. happyshop_db_seconds{method="searchProduct"}, so the export
+    // comes out sorted with every series of a name together
+    private static final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    private static ScheduledExecutorService fileDumper;
+
+    private MetricsRegistry() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    /**
+     * The counter with this name and labels, created on first use.
+     * @param name metric name, eg. "happyshop_db_errors_total"
+     * @param help one line describing it, exported with the metric
+     * @param labels label names and values in pairs, eg. "method", "purchaseStocks"
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return register(name, help, labels, Type.COUNTER, new Counter()).value() instanceof Counter c ? c : conflict(name, labels);
+    }
+
+    // The timer with this name and labels, created on first use; see counter() for the parameters
+    public static Timer timer(String name, String help, String... labels) {
+        return register(name, help, labels, Type.TIMER, new Timer()).value() instanceof Timer t ? t : conflict(name, labels);
+    }
+
+    /**
+     * Registers a gauge whose value is read from the supplier at export time, eg. a queue depth.
+     * Registering the same name and labels again replaces the supplier.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        Metric metric = new Metric(name, help, labels.clone(), labelText(labels), Type.GAUGE, value);
+        metrics.put(metric.series(), metric);
+    }
+
+    // Writes every metric in the Prometheus text exposition format (version 0.0.4)
+    public static void writePrometheus(Writer out) throws IOException {
+        String lastName = null;
+        for (Metric metric : metrics.values()) {
+            if (!metric.name().equals(lastName)) {
+                out.write("# HELP " + metric.name() + " " + metric.help() + "\n");
+                out.write("# TYPE " + metric.name() + " " + metric.type().prometheusType + "\n");
+                lastName = metric.name();
+            }
+            switch (metric.type()) {
+                case COUNTER -> sample(out, metric.name(), metric.labels(), null, ((Counter) metric.value()).get());
+                case GAUGE -> sample(out, metric.name(), metric.labels(), null, readGauge(metric));
+                case TIMER -> {
+                    LatencyHistogram h = ((Timer) metric.value()).getHistogram();
+                    for (double q : QUANTILES) {
+                        sample(out, metric.name(), metric.labels(), "quantile=\"" + q + "\"", seconds(h.percentile(q * 100)));
+                    }
+                    sample(out, metric.name() + "_sum", metric.labels(), null, seconds(h.getTotalNanos()));
+                    sample(out, metric.name() + "_count", metric.labels(), null, h.getCount());
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // Writes every metric as one JSON object: {"takenAtMillis":..., "metrics":[{...}, ...]}
+    public static void writeJson(Writer out) throws IOException {
+        out.write("{\"takenAtMillis\":" + System.currentTimeMillis() + ",\"metrics\":[");
+        boolean first = true;
+        for (Metric metric : metrics.values()) {
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":" + quote(metric.name())
+                    + ",\"type\":" + quote(metric.type().name().toLowerCase())
+                    + ",\"help\":" + quote(metric.help())
+                    + ",\"labels\":" + labelsJson(metric.labelPairs()));
+            switch (metric.type()) {
+                case COUNTER -> out.write(",\"value\":" + ((Counter) metric.value()).get());
+                case GAUGE -> {
+                    double value = readGauge(metric);
+                    out.write(",\"value\":" + (Double.isNaN(value) ? "null" : number(value)));
+                }
+                case TIMER -> {
+                    LatencyHistogram h = ((Timer) metric.value()).getHistogram();
+                    out.write(",\"count\":" + h.getCount()
+                            + ",\"totalNanos\":" + h.getTotalNanos()
+                            + ",\"meanNanos\":" + Math.round(h.getMean())
+                            + ",\"p50Nanos\":" + h.percentile(50)
+                            + ",\"p95Nanos\":" + h.percentile(95)
+                            + ",\"p99Nanos\":" + h.percentile(99)
+                            + ",\"maxNanos\":" + h.getMax());
+                }
+            }
+            out.write("}");
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    /**
+     * Starts rewriting -Dhappyshop.metrics.file in the background, if that property is set.
+     * Does nothing otherwise, or if the dump is already running.
+     */
+    public static synchronized void startFileDump() {
+        if (FILE == null || FILE.isBlank() || fileDumper != null) {
+            return;
+        }
+        Path file = Paths.get(FILE).toAbsolutePath();
+        fileDumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-file-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, FILE_SECONDS);
+        fileDumper.scheduleAtFixedRate(() -> dumpTo(file), period, period, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dumpTo(file), "metrics-final-dump"));
+        System.out.println("📈 Metrics written to " + file + " every " + period + "s");
+    }
+
+    // Writes a temporary file and moves it over the old one, so readers never see half a dump
+    private static void dumpTo(Path file) {
+        try {
+            StringWriter text = new StringWriter();
+            if (file.getFileName().toString().endsWith(".json")) {
+                writeJson(text);
+            } else {
+                writePrometheus(text);
+            }
+            Path parent = file.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, text.toString(), StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Metrics not written to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static Metric register(String name, String help, String[] labels, Type type, Object value) {
+        Metric metric = new Metric(name, help, labels.clone(), labelText(labels), type, value);
+        Metric existing = metrics.putIfAbsent(metric.series(), metric);
+        return existing != null ? existing : metric;
+    }
+
+    private static <T> T conflict(String name, String[] labels) {
+        throw new IllegalArgumentException("Metric " + name + "{" + labelText(labels) + "} is already registered with another type");
+    }
+
+    private static double readGauge(Metric metric) {
+        try {
+            return ((DoubleSupplier) metric.value()).getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN; // a broken gauge must not stop the rest of the export
+        }
+    }
+
+    private static void sample(Writer out, String name, String labels, String extraLabel, double value) throws IOException {
+        String allLabels = extraLabel == null ? labels : labels.isEmpty() ? extraLabel : labels + "," + extraLabel;
+        out.write(name);
+        if (!allLabels.isEmpty()) {
+            out.write("{" + allLabels + "}");
+        }
+        out.write(" " + number(value) + "\n");
+    }
+
+    // eg. ("method", "search") → method="search"
+    private static String labelText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return text.toString();
+    }
+
+    // ("method", "search") → {"method":"search"}
+    private static String labelsJson(String[] labels) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(quote(labels[i])).append(':').append(quote(labels[i + 1]));
+        }
+        return json.append('}').toString();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    // Prometheus label values and JSON strings escape the same three characters here
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String quote(String value) {
+        return "\"" + escape(value) + "\"";
+    }
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), TIMER("summary");
+
+        final String prometheusType;
+
+        Type(String prometheusType) {
+            this.prometheusType = prometheusType;
+        }
+    }
+
+    // labels is the Prometheus form of labelPairs, eg. method="search"
+    private record Metric(String name, String help, String[] labelPairs, String labels, Type type, Object value) {
+        String series() {
+            return labels.isEmpty() ? name : name + "{" + labels + "}";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ci553.happyshop.metrics;
+
+import ci553.happyshop.utility.LatencyHistogram;
+
+/**
+ * Records how long an operation takes, in a LatencyHistogram, so both totals (count, sum) and
+ * percentiles can be exported. Recording is a handful of atomic increments and never blocks.
+ * Get one from {@link MetricsRegistry#timer(String, String, String...)}.
+ *
+ * Example usage:
+ * <pre>
+ *     Product p = searchTimer.time(() -> delegate.searchByProductId(id));
+ *
+ *     long start = System.nanoTime();
+ *     try { ... } finally { writeTimer.recordSince(start); }
+ * </pre>
+ */
+
+public final class Timer {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer() {
+    }
+
+    public void recordNanos(long nanos) {
+        histogram.recordNanos(nanos);
+    }
+
+    // Records the time from a System.nanoTime() reading until now
+    public void recordSince(long startNanos) {
+        histogram.recordNanos(System.nanoTime() - startNanos);
+    }
+
+    // Runs the call and records how long it took, whether it returned or threw
+    public <T, E extends Exception> T time(TimedCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * OrderCounter is responsible for generating unique, sequential orderIDs for new orders.
@@ -28,11 +29,27 @@ import java.nio.channels.FileLock;
  * <p> ByteBuffer allows you to work with raw byte data efficiently.
  * It interacts directly with FileChannel for reading and writing,
  * making file access faster and more flexible than traditional streams.</p>
+ *
+ * <p>A FileLock is held by the whole JVM, so a second thread asking for it while the first holds
+ * it gets an OverlappingFileLockException rather than waiting. Threads in this JVM therefore take
+ * turns on a ReentrantLock first (not synchronized, which would pin a virtual thread's carrier
+ * during the file I/O).</p>
  */
 
 public class OrderCounter {
 
+    private static final ReentrantLock threadLock = new ReentrantLock();
+
     public static int generateOrderId() throws IOException {
+        threadLock.lock();
+        try {
+            return nextOrderId();
+        } finally {
+            threadLock.unlock();
+        }
+    }
+
+    private static int nextOrderId() throws IOException {
         Path path = StorageLocation.orderCounterPath;
 
         // Lock and increment the ID
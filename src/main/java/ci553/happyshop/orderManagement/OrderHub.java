@@ -1,26 +1,32 @@
 package ci553.happyshop.orderManagement;
 
 import ci553.happyshop.catalogue.Order;
-import ci553.happyshop.catalogue.Product;
-import ci553.happyshop.client.orderTracker.OrderTracker;
-import ci553.happyshop.client.picker.PickerModel;
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
+import ci553.happyshop.profiling.OrderCreatedEvent;
+import ci553.happyshop.profiling.OrderTransitionEvent;
 import ci553.happyshop.storageAccess.OrderFileManager;
+import ci553.happyshop.storageAccess.StockEventBus;
+import ci553.happyshop.utility.IntHashSet;
+import ci553.happyshop.utility.IntObjectHashMap;
+import ci553.happyshop.utility.LongIntHashMap;
 import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.TimestampFormatter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 /**
@@ -31,6 +37,23 @@ import java.util.stream.Stream;
  * - Tracks reserved quantities per product
  * - Prevents overselling
  *
+ * OrderHub does not depend on JavaFX: observers register as {@link OrderMapListener}s,
+ * so the same hub runs behind the GUI clients or headless (see HeadlessLauncher).
+ * The order maps are guarded by a ReentrantLock, so many tills, pickers and API threads can share
+ * one instance. The lock is only held while the maps change: order files are written, listeners
+ * notified and log lines printed after it is released. Callers are often virtual threads (API
+ * handlers, StorageExecutor), and a virtual thread blocked on a monitor or doing I/O inside
+ * synchronized pins its carrier thread, so a few slow file writes could stall every other
+ * virtual thread in the JVM.
+ *
+ * The time each transition takes (file write, reservations, notifying observers) is recorded in
+ * happyshop_order_transition_seconds{state=...}, labelled with the state the order moved to,
+ * and, while a Flight Recording is running, as OrderCreated and OrderTransition JFR events.
+ *
+ * The order and reservation maps are keyed by plain ints and longs (IntObjectHashMap,
+ * LongIntHashMap), so a busy hub does not create an Integer or Long for every lookup and keeps
+ * far less per open order than boxed TreeMaps and HashMaps (see OrderFootprint in benchmarks).
+ * Listeners still receive a sorted TreeMap copy.
  */
 public class OrderHub {
     private static OrderHub orderHub;
@@ -39,27 +62,47 @@ public class OrderHub {
     private final Path progressingPath = StorageLocation.progressingPath;
     private final Path collectedPath = StorageLocation.collectedPath;
 
-    private TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
-    private TreeMap<Integer, OrderState> OrderedOrderMap = new TreeMap<>();
-    private TreeMap<Integer, OrderState> progressingOrderMap = new TreeMap<>();
+    private final IntObjectHashMap<OrderState> orderMap = new IntObjectHashMap<>();
+    // Key: orderId, Value: the order's current state
 
     // NEW: Track reserved stock per product
-    private HashMap<String, Integer> reservedStockMap = new HashMap<>();
-    // Key: productId, Value: total quantity reserved across all active orders
+    private final LongIntHashMap reservedStockMap = new LongIntHashMap();
+    // Key: productKey, Value: total quantity reserved across all active orders
+
+    // Track active orders for stock release and lifecycle timestamps
+    private final IntObjectHashMap<Order> activeOrderMap = new IntObjectHashMap<>();
+    // Key: orderId, Value: the Order (products plus the time each stage was reached)
+
+    // Orders whose file is being moved to the next state's folder; they cannot move again until done
+    private final IntHashSet ordersInTransit = new IntHashSet();
+
+    // Guards the maps above; never held during file I/O or printing, see the class comment
+    private final ReentrantLock lock = new ReentrantLock();
 
-    // NEW: Track order contents for stock release
-    private HashMap<Integer, ArrayList<Product>> orderContentsMap = new HashMap<>();
-    // Key: orderId, Value: list of products in that order
+    // Held while listeners are sent a snapshot, so they receive snapshots in the order taken
+    private final ReentrantLock notifyLock = new ReentrantLock();
 
-    private ArrayList<OrderTracker> orderTrackerList = new ArrayList<>();
-    private ArrayList<PickerModel> pickerModelList = new ArrayList<>();
+    // Observers, eg. OrderTracker (every order) and PickerModel (Ordered and Progressing orders only)
+    private final CopyOnWriteArrayList<OrderMapListener> orderTrackerList = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<OrderMapListener> pickerModelList = new CopyOnWriteArrayList<>();
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
+    // Lifecycle latency, queue depth and throughput figures; readable without locking the hub
+    private final OrderMetrics orderMetrics = new OrderMetrics();
+
+    // Time spent moving an order into each state, see the class comment
+    private final EnumMap<OrderState, Timer> transitionTimers = new EnumMap<>(OrderState.class);
+
     // Singleton pattern
-    private OrderHub() {}
+    private OrderHub() {
+        for (OrderState state : OrderState.values()) {
+            transitionTimers.put(state, MetricsRegistry.timer("happyshop_order_transition_seconds",
+                    "Time OrderHub spends moving an order into a state", "state", state.name()));
+        }
+    }
 
-    public static OrderHub getOrderHub() {
+    public static synchronized OrderHub getOrderHub() {
         if (orderHub == null)
             orderHub = new OrderHub();
         return orderHub;
@@ -69,193 +112,361 @@ public class OrderHub {
      * Creates a new order and reserves stock.
      * FIXED: Now properly reserves stock to prevent overselling.
      */
-    public Order newOrder(ArrayList<Product> trolley) throws IOException, SQLException {
+    public Order newOrder(List<LineItem> trolley) throws IOException, SQLException {
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            Order order = createOrder(trolley);
+            if (event.shouldCommit()) {
+                event.orderId = order.getOrderId();
+                event.setProducts(trolley);
+                event.commit();
+            }
+            return order;
+        } finally {
+            transitionTimers.get(OrderState.Ordered).recordSince(startNanos);
+        }
+    }
+
+    private Order createOrder(List<LineItem> trolley) throws IOException, SQLException {
         int orderId = OrderCounter.generateOrderId();
-        String orderedDateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        long orderedTimeMillis = System.currentTimeMillis();
+        long orderedNanos = TimestampFormatter.monotonicNanos();
 
-        Order theOrder = new Order(orderId, OrderState.Ordered, orderedDateTime, trolley);
+        Order theOrder = new Order(orderId, OrderState.Ordered, orderedTimeMillis, orderedNanos, trolley);
 
-        // Write order details to file
+        // Write order details to file; no one else knows this orderId yet, so no lock is needed
         String orderDetail = theOrder.orderDetails();
         OrderFileManager.createOrderFile(orderedPath, orderId, orderDetail);
 
-        // NEW: Reserve stock for this order
-        reserveStockForOrder(orderId, trolley);
+        String reservations;
+        String reservedStatus;
+        lock.lock();
+        try {
+            // NEW: Reserve stock for this order
+            reservations = reserveStockForOrder(theOrder);
+
+            // Add order to map
+            orderMap.put(orderId, theOrder.getState());
+            orderMetrics.recordCreated();
+            reservedStatus = reservedStockStatus();
+        } finally {
+            lock.unlock();
+        }
 
-        // Add order to map
-        orderMap.put(orderId, theOrder.getState());
+        publishStockChanges(theOrder);
 
         // Notify observers
         notifyOrderTrackers();
         notifyPickerModels();
 
+        System.out.print(reservations);
         System.out.println("✅ Order " + orderId + " created. Stock reserved.");
-        printReservedStockStatus();
+        System.out.print(reservedStatus);
 
         return theOrder;
     }
 
     /**
      * Reserves stock for an order.
-     * Increments reserved quantity for each product.
+     * Increments reserved quantity for each product. Call while holding the lock.
+     * @return a log line per product, printed once the lock is released
      */
-    private void reserveStockForOrder(int orderId, ArrayList<Product> products) {
-        // Store order contents for later release
-        orderContentsMap.put(orderId, new ArrayList<>(products));
+    private String reserveStockForOrder(Order order) {
+        // Store the order for later release
+        activeOrderMap.put(order.getOrderId(), order);
 
+        StringBuilder log = new StringBuilder();
         // Reserve stock for each product
-        for (Product product : products) {
-            String productId = product.getProductId();
-            int quantity = product.getOrderedQuantity();
+        for (LineItem line : order.getLineItems()) {
+            int quantity = line.getQuantity();
 
             // Add to reserved stock
-            reservedStockMap.put(productId,
-                    reservedStockMap.getOrDefault(productId, 0) + quantity);
+            int newReserved = reservedStockMap.addTo(line.getProductKey(), quantity);
 
-            System.out.println(String.format(
-                    "🔒 Reserved %d units of product %s (Total reserved: %d)",
-                    quantity, productId, reservedStockMap.get(productId)
-            ));
+            log.append(String.format("🔒 Reserved %d units of product %s (Total reserved: %d)%n",
+                    quantity, line.getProductId(), newReserved));
         }
+        return log.toString();
     }
 
     /**
-     * Releases reserved stock when order is collected.
+     * Releases reserved stock when order is collected. Call while holding the lock.
+     * @return a log line per product, printed once the lock is released
      */
-    private void releaseReservedStock(int orderId) {
-        ArrayList<Product> orderProducts = orderContentsMap.get(orderId);
+    private String releaseReservedStock(Order order) {
+        StringBuilder log = new StringBuilder();
+        for (LineItem line : order.getLineItems()) {
+            int quantity = line.getQuantity();
 
-        if (orderProducts != null) {
-            for (Product product : orderProducts) {
-                String productId = product.getProductId();
-                int quantity = product.getOrderedQuantity();
+            // Reduce reserved stock; the entry goes once nothing is reserved
+            int newReserved = reservedStockMap.addTo(line.getProductKey(), -quantity);
 
-                // Reduce reserved stock
-                int currentReserved = reservedStockMap.getOrDefault(productId, 0);
-                int newReserved = Math.max(0, currentReserved - quantity);
-
-                if (newReserved == 0) {
-                    reservedStockMap.remove(productId);
-                } else {
-                    reservedStockMap.put(productId, newReserved);
-                }
+            log.append(String.format("🔓 Released %d units of product %s (Remaining reserved: %d)%n",
+                    quantity, line.getProductId(), newReserved));
+        }
 
-                System.out.println(String.format(
-                        "🔓 Released %d units of product %s (Remaining reserved: %d)",
-                        quantity, productId, newReserved
-                ));
-            }
+        // Remove order from tracking
+        activeOrderMap.remove(order.getOrderId());
+        return log.toString();
+    }
 
-            // Remove order contents from tracking
-            orderContentsMap.remove(orderId);
+    // Tells stock views the reserved quantity of each product in the order has changed
+    private static void publishStockChanges(Order order) {
+        for (LineItem line : order.getLineItems()) {
+            StockEventBus.publish(line.getProductId(), StockEventBus.Kind.RESERVATION);
         }
     }
 
-    //Gets reserved quantity for a specific product.
+    // Gets the order lifecycle metrics, eg. orderHub.getOrderMetrics().snapshot()
+    public OrderMetrics getOrderMetrics() {
+        return orderMetrics;
+    }
 
-    public int getReservedStock(String productId) {
-        return reservedStockMap.getOrDefault(productId, 0);
+    //Gets reserved quantity for a specific product, by its productKey.
+
+    public int getReservedStock(long productKey) {
+        lock.lock();
+        try {
+            return reservedStockMap.getOrDefault(productKey, 0);
+        } finally {
+            lock.unlock();
+        }
     }
 
 
-     //Prints current reserved stock status (for debugging).
+     //Current reserved stock status (for debugging); call while holding the lock and print it after.
 
-    private void printReservedStockStatus() {
+    private String reservedStockStatus() {
         if (reservedStockMap.isEmpty()) {
-            System.out.println("📦 No stock currently reserved");
-        } else {
-            System.out.println("📦 Current Reserved Stock:");
-            for (Map.Entry<String, Integer> entry : reservedStockMap.entrySet()) {
-                System.out.println(String.format("   Product %s: %d units reserved",
-                        entry.getKey(), entry.getValue()));
-            }
+            return String.format("📦 No stock currently reserved%n");
         }
+        StringBuilder status = new StringBuilder(String.format("📦 Current Reserved Stock:%n"));
+        reservedStockMap.forEach((productKey, reserved) ->
+                status.append(String.format("   Product key %d: %d units reserved%n", productKey, reserved)));
+        return status.toString();
     }
 
     /**
      * Changes order state and manages stock accordingly.
+     * Orders only move forward one stage at a time: Ordered → Progressing → Collected.
+     * The order is claimed under the lock, its file moved without it, and the new state recorded
+     * once the file is in place; a second call for the same order meanwhile returns false.
+     * @return true if the order was moved, false if it is unknown or cannot move to newState
      */
-    public void changeOrderStateMoveFile(int orderId, OrderState newState) throws IOException {
-        if (orderMap.containsKey(orderId) && !orderMap.get(orderId).equals(newState)) {
-            orderMap.put(orderId, newState);
-            notifyOrderTrackers();
-            notifyPickerModels();
+    public boolean changeOrderStateMoveFile(int orderId, OrderState newState) throws IOException {
+        OrderState currentState;
+        lock.lock();
+        try {
+            currentState = orderMap.get(orderId);
+            if (currentState == null || !isNextState(currentState, newState) || !ordersInTransit.add(orderId)) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        OrderTransitionEvent event = new OrderTransitionEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            moveOrder(orderId, newState);
+        } finally {
+            transitionTimers.get(newState).recordSince(startNanos);
+        }
+        if (event.shouldCommit()) {
+            event.orderId = orderId;
+            event.fromState = currentState.name();
+            event.toState = newState.name();
+            event.commit();
+        }
+        return true;
+    }
+
+    // Moves a claimed order (see changeOrderStateMoveFile) into newState
+    private void moveOrder(int orderId, OrderState newState) throws IOException {
+        long transitionTimeMillis = System.currentTimeMillis();
+        long transitionNanos = TimestampFormatter.monotonicNanos();
 
+        try {
             switch (newState) {
-                case OrderState.Progressing:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState, orderedPath, progressingPath);
-                    System.out.println("📋 Order " + orderId + " now being prepared");
-                    break;
+                case OrderState.Progressing ->
+                        OrderFileManager.updateAndMoveOrderFile(orderId, newState, orderedPath, progressingPath, transitionTimeMillis);
+                case OrderState.Collected ->
+                        OrderFileManager.updateAndMoveOrderFile(orderId, newState, progressingPath, collectedPath, transitionTimeMillis);
+                default -> { }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The file stayed where it was, so the order stays in its current state
+            lock.lock();
+            try {
+                ordersInTransit.remove(orderId);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
 
-                case OrderState.Collected:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState, progressingPath, collectedPath);
+        Order order;
+        String releases = "";
+        String reservedStatus = "";
+        lock.lock();
+        try {
+            ordersInTransit.remove(orderId);
+            OrderState oldState = orderMap.put(orderId, newState);
+            order = activeOrderMap.get(orderId);
+            if (order != null) { // null for orders reloaded from files at startup
+                order.markState(newState, transitionTimeMillis, transitionNanos);
+                orderMetrics.recordTransition(oldState, newState,
+                        order.getOrderedNanos(), order.getProgressingNanos(), transitionNanos);
+            } else {
+                orderMetrics.recordTransition(oldState, newState, 0, 0, transitionNanos);
+            }
+            if (newState == OrderState.Collected) {
+                // NEW: Release reserved stock when collected
+                if (order != null) {
+                    releases = releaseReservedStock(order);
+                }
+                reservedStatus = reservedStockStatus();
+            }
+        } finally {
+            lock.unlock();
+        }
 
-                    // NEW: Release reserved stock when collected
-                    releaseReservedStock(orderId);
+        if (order != null && newState == OrderState.Collected) {
+            publishStockChanges(order);
+        }
+        notifyOrderTrackers();
+        notifyPickerModels();
 
-                    System.out.println("✅ Order " + orderId + " collected. Stock released.");
-                    printReservedStockStatus();
+        switch (newState) {
+            case OrderState.Progressing:
+                System.out.println("📋 Order " + orderId + " now being prepared");
+                break;
 
-                    removeCollectedOrder(orderId);
-                    break;
-            }
+            case OrderState.Collected:
+                System.out.print(releases);
+                System.out.println("✅ Order " + orderId + " collected. Stock released.");
+                System.out.print(reservedStatus);
+
+                removeCollectedOrder(orderId);
+                break;
         }
+
+    }
+
+    private static boolean isNextState(OrderState current, OrderState next) {
+        return (current == OrderState.Ordered && next == OrderState.Progressing)
+                || (current == OrderState.Progressing && next == OrderState.Collected);
     }
 
     /**
      * Removes collected orders after delay (unchanged).
      */
     private void removeCollectedOrder(int orderId) {
-        if (orderMap.containsKey(orderId)) {
-            scheduler.schedule(() -> {
-                orderMap.remove(orderId);
-                System.out.println("Order " + orderId + " removed from tracker and OrdersMap.");
-                notifyOrderTrackers();
-            }, 10, TimeUnit.SECONDS);
-        }
+        scheduler.schedule(() -> {
+            lock.lock();
+            try {
+                OrderState removedState = orderMap.remove(orderId);
+                if (removedState != null) {
+                    orderMetrics.recordRemoved(removedState);
+                }
+            } finally {
+                lock.unlock();
+            }
+            System.out.println("Order " + orderId + " removed from tracker and OrdersMap.");
+            notifyOrderTrackers();
+        }, 10, TimeUnit.SECONDS);
     }
 
     // ========== EXISTING METHODS ==========
 
-    public void registerOrderTracker(OrderTracker orderTracker) {
+    // Registers a listener that receives every order, eg. OrderTracker
+    public void registerOrderTracker(OrderMapListener orderTracker) {
         orderTrackerList.add(orderTracker);
     }
 
     public void notifyOrderTrackers() {
-        for (OrderTracker orderTracker : orderTrackerList) {
-            orderTracker.setOrderMap(orderMap);
+        notifyLock.lock();
+        try {
+            for (OrderMapListener orderTracker : orderTrackerList) {
+                orderTracker.setOrderMap(getOrderMapSnapshot()); // each listener gets its own copy
+            }
+        } finally {
+            notifyLock.unlock();
         }
     }
 
-    public void registerPickerModel(PickerModel pickerModel) {
+    // Registers a listener that receives the orders a picker can work on, eg. PickerModel
+    public void registerPickerModel(OrderMapListener pickerModel) {
         pickerModelList.add(pickerModel);
     }
 
     public void notifyPickerModels() {
-        TreeMap<Integer, OrderState> orderMapForPicker = new TreeMap<>();
-        progressingOrderMap = filterOrdersByState(OrderState.Progressing);
-        OrderedOrderMap = filterOrdersByState(OrderState.Ordered);
-        orderMapForPicker.putAll(progressingOrderMap);
-        orderMapForPicker.putAll(OrderedOrderMap);
-
-        for (PickerModel pickerModel : pickerModelList) {
-            pickerModel.setOrderMap(orderMapForPicker);
+        notifyLock.lock();
+        try {
+            TreeMap<Integer, OrderState> orderMapForPicker;
+            lock.lock();
+            try {
+                orderMapForPicker = filterOrdersByState(OrderState.Ordered, OrderState.Progressing);
+            } finally {
+                lock.unlock();
+            }
+
+            for (OrderMapListener pickerModel : pickerModelList) {
+                pickerModel.setOrderMap(new TreeMap<>(orderMapForPicker));
+            }
+        } finally {
+            notifyLock.unlock();
         }
     }
 
-    private TreeMap<Integer, OrderState> filterOrdersByState(OrderState state) {
+    // A copy of every order currently tracked, eg. for the API order list
+    public TreeMap<Integer, OrderState> getOrderMapSnapshot() {
+        lock.lock();
+        try {
+            return filterOrdersByState(OrderState.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The state of one order, or null if the hub does not track it
+    public OrderState getOrderState(int orderId) {
+        lock.lock();
+        try {
+            return orderMap.get(orderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TreeMap<Integer, OrderState> filterOrdersByState(OrderState... states) {
         TreeMap<Integer, OrderState> filteredOrderMap = new TreeMap<>();
-        for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            if (entry.getValue() == state) {
-                filteredOrderMap.put(entry.getKey(), entry.getValue());
+        orderMap.forEach((orderId, state) -> {
+            for (OrderState wanted : states) {
+                if (state == wanted) {
+                    filteredOrderMap.put(orderId, state);
+                }
             }
-        }
+        });
         return filteredOrderMap;
     }
 
+    private int countOrdersInState(OrderState state) {
+        int[] count = {0};
+        orderMap.forEach((orderId, orderState) -> {
+            if (orderState == state) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
     public String getOrderDetailForPicker(int orderId) throws IOException {
-        OrderState state = orderMap.get(orderId);
-        if (state.equals(OrderState.Progressing)) {
+        OrderState state = getOrderState(orderId);
+        if (state == OrderState.Progressing) {
             return OrderFileManager.readOrderFile(progressingPath, orderId);
         } else {
             return "the function is only for picker";
@@ -269,24 +480,32 @@ public class OrderHub {
         ArrayList<Integer> orderedIds = orderIdsLoader(orderedPath);
         ArrayList<Integer> progressingIds = orderIdsLoader(progressingPath);
 
-        if (orderedIds.size() > 0) {
+        int orderCount;
+        lock.lock();
+        try {
             for (Integer orderId : orderedIds) {
                 orderMap.put(orderId, OrderState.Ordered);
                 // TODO: Reload order contents to rebuild reserved stock
             }
-        }
 
-        if (progressingIds.size() > 0) {
             for (Integer orderId : progressingIds) {
                 orderMap.put(orderId, OrderState.Progressing);
                 // TODO: Reload order contents to rebuild reserved stock
             }
+
+            orderMetrics.resetDepths(
+                    countOrdersInState(OrderState.Ordered),
+                    countOrdersInState(OrderState.Progressing),
+                    countOrdersInState(OrderState.Collected));
+            orderCount = orderMap.size();
+        } finally {
+            lock.unlock();
         }
 
         notifyOrderTrackers();
         notifyPickerModels();
 
-        System.out.println("orderMap initialized. " + orderMap.size() + " orders in total, including:");
+        System.out.println("orderMap initialized. " + orderCount + " orders in total, including:");
         System.out.println(orderedIds.size() + " Ordered orders, " + progressingIds.size() + " Progressing orders");
     }
 
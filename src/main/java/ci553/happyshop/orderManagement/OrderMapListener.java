@@ -0,0 +1,25 @@
+package ci553.happyshop.orderManagement;
+
+import java.util.TreeMap;
+
+/**
+ * An OrderMapListener receives the order map from OrderHub whenever an order is created,
+ * changes state, or is removed.
+ *
+ * OrderHub only knows its observers through this interface, so the order engine does not depend
+ * on any JavaFX client. The OrderTracker and PickerModel implement it in the GUI, and the
+ * headless service can register its own listeners (eg. for logging) instead.
+ *
+ * The map passed in is a copy owned by the listener, so it can be kept or changed freely.
+ * Calls come from whichever thread changed the order (a till, a picker, the API or the
+ * OrderHub scheduler), so a GUI listener must move any UI work onto the JavaFX thread itself.
+ */
+
+public interface OrderMapListener {
+
+    /**
+     * Receives the latest order map.
+     * @param orderMap orderId → state, sorted by orderId
+     */
+    void setOrderMap(TreeMap<Integer, OrderState> orderMap);
+}
@@ -0,0 +1,192 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.utility.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OrderMetrics records how orders flow through the lifecycle Ordered → Progressing → Collected.
+ *
+ * It is owned by OrderHub and tracks three kinds of figures:
+ * 1. Latency: how long each order waited between stages, in three histograms
+ *    (Ordered→Progressing, Progressing→Collected and the whole Ordered→Collected time).
+ * 2. Queue depth: how many orders are currently in each state.
+ * 3. Throughput: how many orders were created, started and collected since start-up.
+ *
+ * All fields are atomics, so OrderHub records without extra locking and readers such as the
+ * warehouse dashboard or the API export endpoint call {@link #snapshot()} at any time without
+ * taking the OrderHub lock. The queue depths are also registered as happyshop_orders{state=...}
+ * gauges in MetricsRegistry.
+ */
+
+public class OrderMetrics {
+
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private final LatencyHistogram orderedToProgressing = new LatencyHistogram();
+    private final LatencyHistogram progressingToCollected = new LatencyHistogram();
+    private final LatencyHistogram orderedToCollected = new LatencyHistogram();
+
+    private final AtomicInteger orderedDepth = new AtomicInteger();
+    private final AtomicInteger progressingDepth = new AtomicInteger();
+    private final AtomicInteger collectedDepth = new AtomicInteger(); // collected but not yet removed from the map
+
+    private final LongAdder ordersCreated = new LongAdder();
+    private final LongAdder ordersProgressed = new LongAdder();
+    private final LongAdder ordersCollected = new LongAdder();
+
+    OrderMetrics() {
+        String help = "Orders currently in each state";
+        MetricsRegistry.gauge("happyshop_orders", help, orderedDepth::get, "state", OrderState.Ordered.name());
+        MetricsRegistry.gauge("happyshop_orders", help, progressingDepth::get, "state", OrderState.Progressing.name());
+        MetricsRegistry.gauge("happyshop_orders", help, collectedDepth::get, "state", OrderState.Collected.name());
+    }
+
+    // Called by OrderHub when a customer places an order
+    void recordCreated() {
+        ordersCreated.increment();
+        orderedDepth.incrementAndGet();
+    }
+
+    /**
+     * Called by OrderHub when an order changes state.
+     * Stage timestamps are monotonic nanoTime readings; 0 means the stage time is unknown
+     * (eg. orders reloaded from files at start-up), in which case no latency is recorded.
+     */
+    void recordTransition(OrderState from, OrderState to, long orderedNanos, long progressingNanos, long nowNanos) {
+        depthFor(from).decrementAndGet();
+        depthFor(to).incrementAndGet();
+
+        switch (to) {
+            case Progressing:
+                ordersProgressed.increment();
+                if (orderedNanos != 0) {
+                    orderedToProgressing.recordNanos(nowNanos - orderedNanos);
+                }
+                break;
+            case Collected:
+                ordersCollected.increment();
+                if (progressingNanos != 0) {
+                    progressingToCollected.recordNanos(nowNanos - progressingNanos);
+                }
+                if (orderedNanos != 0) {
+                    orderedToCollected.recordNanos(nowNanos - orderedNanos);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Called by OrderHub when a collected order is removed from the order map
+    void recordRemoved(OrderState state) {
+        depthFor(state).decrementAndGet();
+    }
+
+    // Called by OrderHub after (re)loading order files, with the counts taken from its order map
+    void resetDepths(int ordered, int progressing, int collected) {
+        orderedDepth.set(ordered);
+        progressingDepth.set(progressing);
+        collectedDepth.set(collected);
+    }
+
+    private AtomicInteger depthFor(OrderState state) {
+        switch (state) {
+            case Ordered:
+                return orderedDepth;
+            case Progressing:
+                return progressingDepth;
+            default:
+                return collectedDepth;
+        }
+    }
+
+    /**
+     * Takes a read-only copy of the current figures.
+     * @return the snapshot, safe to hand to any thread
+     */
+    public Snapshot snapshot() {
+        long now = System.currentTimeMillis();
+        return new Snapshot(
+                now,
+                now - startedAtMillis,
+                orderedDepth.get(),
+                progressingDepth.get(),
+                collectedDepth.get(),
+                ordersCreated.sum(),
+                ordersProgressed.sum(),
+                ordersCollected.sum(),
+                LatencySummary.of(orderedToProgressing),
+                LatencySummary.of(progressingToCollected),
+                LatencySummary.of(orderedToCollected)
+        );
+    }
+
+    /**
+     * Percentiles of one lifecycle stage, all values in nanoseconds.
+     */
+    public record LatencySummary(long count, long p50, long p95, long p99, long max) {
+        static LatencySummary of(LatencyHistogram histogram) {
+            return new LatencySummary(
+                    histogram.getCount(),
+                    histogram.percentile(50.0),
+                    histogram.percentile(95.0),
+                    histogram.percentile(99.0),
+                    histogram.getMax()
+            );
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%s p95=%s p99=%s max=%s",
+                    count, formatNanos(p50), formatNanos(p95), formatNanos(p99), formatNanos(max));
+        }
+    }
+
+    /**
+     * A point-in-time copy of all order metrics.
+     */
+    public record Snapshot(long takenAtMillis,
+                           long uptimeMillis,
+                           int orderedDepth,
+                           int progressingDepth,
+                           int collectedDepth,
+                           long ordersCreated,
+                           long ordersProgressed,
+                           long ordersCollected,
+                           LatencySummary orderedToProgressing,
+                           LatencySummary progressingToCollected,
+                           LatencySummary orderedToCollected) {
+
+        // Orders collected per minute since start-up
+        public double collectedPerMinute() {
+            return uptimeMillis == 0 ? 0 : ordersCollected * 60_000.0 / uptimeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Queue: %d ordered, %d progressing, %d collected\n" +
+                            "Throughput: %d created, %d progressed, %d collected (%.1f/min)\n" +
+                            "Ordered→Progressing:   %s\n" +
+                            "Progressing→Collected: %s\n" +
+                            "Ordered→Collected:     %s",
+                    orderedDepth, progressingDepth, collectedDepth,
+                    ordersCreated, ordersProgressed, ordersCollected, collectedPerMinute(),
+                    orderedToProgressing, progressingToCollected, orderedToCollected);
+        }
+    }
+
+    // eg. 850µs, 12.3ms, 4.2s, 3.5min
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000_000L) {
+            return (nanos / 1_000) + "µs";
+        } else if (nanos < 1_000_000_000L) {
+            return String.format("%.1fms", nanos / 1e6);
+        } else if (nanos < 60_000_000_000L) {
+            return String.format("%.1fs", nanos / 1e9);
+        }
+        return String.format("%.1fmin", nanos / 6e10);
+    }
+}
@@ -0,0 +1,25 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A whole checkout: the stock purchase and, if every product was in stock, the new order
+@Name("happyshop.Checkout")
+@Label("Checkout")
+@Category({"HappyShop", "Orders"})
+@Description("A customer checkout, from the stock check to the order being created")
+public class CheckoutEvent extends TrolleyEvent {
+
+    @Label("Source")
+    @Description("Where the checkout came from: customer client or api")
+    public String source;
+
+    @Label("Order ID")
+    @Description("The new order, or 0 if the checkout failed for lack of stock")
+    public int orderId;
+
+    @Label("Insufficient Products")
+    public int insufficientCount;
+}
@@ -0,0 +1,15 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// OrderHub.newOrder: order ID, order file and stock reservations
+@Name("happyshop.OrderCreated")
+@Label("Order Created")
+@Category({"HappyShop", "Orders"})
+public class OrderCreatedEvent extends TrolleyEvent {
+
+    @Label("Order ID")
+    public int orderId;
+}
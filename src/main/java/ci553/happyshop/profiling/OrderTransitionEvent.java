@@ -0,0 +1,22 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// OrderHub.changeOrderStateMoveFile: Ordered → Progressing or Progressing → Collected
+@Name("happyshop.OrderTransition")
+@Label("Order State Transition")
+@Category({"HappyShop", "Orders"})
+public class OrderTransitionEvent extends Event {
+
+    @Label("Order ID")
+    public int orderId;
+
+    @Label("From State")
+    public String fromState;
+
+    @Label("To State")
+    public String toState;
+}
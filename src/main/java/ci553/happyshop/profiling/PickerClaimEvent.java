@@ -0,0 +1,22 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A picker taking the next order, until its details are ready to show
+@Name("happyshop.PickerClaim")
+@Label("Picker Claim")
+@Category({"HappyShop", "Orders"})
+@Description("A picker claiming an order: the move to Progressing and reading the order file")
+public class PickerClaimEvent extends Event {
+
+    @Label("Order ID")
+    public int orderId;
+
+    @Label("Waiting Orders")
+    @Description("Orders the picker could see when it claimed this one")
+    public int waitingOrders;
+}
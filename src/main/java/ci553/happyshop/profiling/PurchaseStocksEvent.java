@@ -0,0 +1,21 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// DatabaseRW.purchaseStocks: checks and takes the stock of every product in one transaction
+@Name("happyshop.PurchaseStocks")
+@Label("Purchase Stocks")
+@Category({"HappyShop", "Storage"})
+@Description("Stock check and update for a trolley, in one database transaction")
+public class PurchaseStocksEvent extends TrolleyEvent {
+
+    @Label("Insufficient Products")
+    public int insufficientCount;
+
+    @Label("Committed")
+    @Description("False if the transaction was rolled back")
+    public boolean committed;
+}
@@ -0,0 +1,25 @@
+package ci553.happyshop.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A product search in DatabaseRW.searchProduct, by ID first and then by description
+@Name("happyshop.Search")
+@Label("Product Search")
+@Category({"HappyShop", "Storage"})
+@Description("A product search by ID or description")
+public class SearchEvent extends Event {
+
+    @Label("Keyword")
+    public String keyword;
+
+    @Label("Results")
+    public int resultCount;
+
+    @Label("Matched By ID")
+    @Description("True if the keyword was a product ID, so no description search was needed")
+    public boolean matchedById;
+}
@@ -0,0 +1,34 @@
+package ci553.happyshop.profiling;
+
+import ci553.happyshop.catalogue.LineItem;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.util.List;
+
+/**
+ * Base class of the JFR events that carry a list of products (checkout, stock purchase, order
+ * creation): how many product lines and how many units in total.
+ */
+
+public abstract class TrolleyEvent extends Event {
+
+    @Label("Products")
+    @Description("Number of product lines")
+    public int productCount;
+
+    @Label("Units")
+    @Description("Sum of the ordered quantities")
+    public int unitCount;
+
+    // Fills productCount and unitCount; only worth calling when shouldCommit() is true
+    public void setProducts(List<LineItem> lineItems) {
+        productCount = lineItems.size();
+        int units = 0;
+        for (LineItem line : lineItems) {
+            units += line.getQuantity();
+        }
+        unitCount = units;
+    }
+}
@@ -1,6 +1,8 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.catalogue.LineItem;
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.StockSummary;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -10,7 +12,7 @@ import java.util.ArrayList;
  * It is currently implemented by the DerbyRW class, which provides the actual functionality.
  *
  * Responsibilities:
- * - Searching for products by keyword or product ID.
+ * - Searching for products by keyword or product ID, or listing the whole catalogue.
  * - Performing stock updates and validations during purchases.
  * - Updating, deleting, or inserting products.
  * - Checking whether a product ID is available before insertion.
@@ -26,10 +28,20 @@ public interface DatabaseRW {
 
     Product searchByProductId(String productId) throws SQLException;
 
-    ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException;
+    // Every product in the catalogue, in productKey order.
+
+    ArrayList<Product> getAllProducts() throws SQLException;
+
+    // Takes the ordered quantities off the stock, all or nothing; returns the lines short of stock (empty if it succeeded).
+
+    ArrayList<LineItem> purchaseStocks(ArrayList<LineItem> lineItems) throws SQLException;
 
     void updateProduct(String id, String des, double price, String imageName, int stock) throws SQLException;
 
+    // Adds units to a product's stock in one statement, so it cannot undo a purchase made meanwhile; false if the product does not exist.
+
+    boolean addStock(String id, int units) throws SQLException;
+
     // Deletes a product identified by its ID.
     void deleteProduct(String id) throws SQLException;
 
@@ -39,6 +51,14 @@ public interface DatabaseRW {
     //Checks whether the given product ID is available for use (i.e., not already in use).
 
     boolean isProIdAvailable(String productId) throws SQLException;
+
+    //Checks whether any product still uses the image file (images are shared when their content is identical).
+
+    boolean isImageInUse(String imageName) throws SQLException;
+
+    //Stock level counts and low-stock product IDs for the whole catalogue, without loading every product.
+
+    StockSummary getStockSummary() throws SQLException;
 }
 
 
@@ -5,8 +5,10 @@ package ci553.happyshop.storageAccess;
  * It acts as a factory pattern to provide flexible instantiation of the DatabaseRW interface.
  *
  * Responsibilities:
- * - Holds the database URL used to connect to the database.
- * - Creates instances of DatabaseRW (e.g., DerbyRW, MySQLRW, SQLiteRW).
+ * - Holds the database URL used to connect to the database
+ *   (-Dhappyshop.db.url=... to use another database, eg. a temporary one for benchmarks).
+ * - Creates instances of DatabaseRW (e.g., DerbyRW, MySQLRW, SQLiteRW), wrapped in
+ *   TimedDatabaseRW so every call is recorded in the metrics registry.
  *
  * Benefits:
  * - Database Abstraction: Keeps the system decoupled from specific database implementations.
@@ -22,10 +24,11 @@ package ci553.happyshop.storageAccess;
 
 public class DatabaseRWFactory {
 
-    public static String dbURL = "jdbc:derby:happyShopDB;create=true";
+    // Read once by each storage class when it is first loaded, so it must be set before then
+    public static String dbURL = System.getProperty("happyshop.db.url", "jdbc:derby:happyShopDB;create=true");
 
     public static DatabaseRW createDatabaseRW() {
-        return new DerbyRW();
+        return new TimedDatabaseRW(new DerbyRW());
     }
 }
 
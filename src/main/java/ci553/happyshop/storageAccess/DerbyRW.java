@@ -1,9 +1,14 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.catalogue.LineItem;
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.StockSummary;
+import ci553.happyshop.profiling.PurchaseStocksEvent;
+import ci553.happyshop.profiling.SearchEvent;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -16,6 +21,8 @@ public class DerbyRW implements DatabaseRW {
 
     // Search product by product Id or name
     public ArrayList<Product> searchProduct(String keyword) throws SQLException {
+        SearchEvent event = new SearchEvent();
+        event.begin();
         ArrayList<Product> productList = new ArrayList<>();
 
         // Search by product ID first
@@ -30,6 +37,12 @@ public class DerbyRW implements DatabaseRW {
         if (productList.isEmpty()) {
             System.out.println("Product " + keyword + " not found.");
         }
+        if (event.shouldCommit()) {
+            event.keyword = keyword;
+            event.resultCount = productList.size();
+            event.matchedById = product != null;
+            event.commit();
+        }
         return productList;
     }
 
@@ -38,7 +51,7 @@ public class DerbyRW implements DatabaseRW {
         Product product = null;
         String query = "SELECT * FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setString(1, proId);
@@ -52,17 +65,36 @@ public class DerbyRW implements DatabaseRW {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            // Rethrown: a null here would read as "no such product"
+            System.out.println("Database query error, search by ID: " + proId + " " + e.getMessage());
+            throw e;
         }
         return product;
     }
 
-    // Search by product name
+    // Every product, in productKey order
+    public ArrayList<Product> getAllProducts() throws SQLException {
+        ArrayList<Product> productList = new ArrayList<>();
+        String query = "SELECT * FROM ProductTable ORDER BY productKey";
+
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                productList.add(makeProObjFromDbRecord(rs));
+            }
+        }
+        return productList;
+    }
+
+    // Search by product name, matched against the lower-cased copy of the description that
+    // Derby keeps in descriptionLower (see SchemaMigrator), so LOWER() is not run on every row.
+    // The word may appear anywhere in the description, so this scans the table rather than an index
     private ArrayList<Product> searchByProName(String name) {
         ArrayList<Product> productList = new ArrayList<>();
-        String query = "SELECT * FROM ProductTable WHERE LOWER(description) LIKE LOWER(?)";
+        String query = "SELECT * FROM ProductTable WHERE descriptionLower LIKE ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, "%" + name.toLowerCase() + "%");
@@ -87,12 +119,15 @@ public class DerbyRW implements DatabaseRW {
     // Make a Product object from database record
     private Product makeProObjFromDbRecord(ResultSet rs) throws SQLException {
         Product product = null;
+        long productKey = rs.getLong("productKey");
         String productId = rs.getString("productID");
         String description = rs.getString("description");
         String imagePath = rs.getString("image");
         double unitPrice = rs.getDouble("unitPrice");
         int inStock = rs.getInt("inStock");
-        product = new Product(productId, description, imagePath, unitPrice, inStock);
+        int maxStock = rs.getInt("maxStock"); // 0 if never set; the product is then measured against its stock
+        product = new Product(productKey, productId, description, description, imagePath, unitPrice,
+                inStock, maxStock > 0 ? maxStock : inStock);
 
         System.out.println("Product ID: " + productId);
         System.out.println("Description: " + description);
@@ -111,83 +146,111 @@ public class DerbyRW implements DatabaseRW {
         return product;
     }
 
-    public ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException {
-        lock.lock();
-        ArrayList<Product> insufficientProducts = new ArrayList<>();
-
-        String checkSql = "SELECT inStock FROM ProductTable WHERE productId = ?";
-        String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productId = ?";
-
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
+    /**
+     * Takes the ordered quantities off the stock in one transaction, all or nothing.
+     *
+     * Each line is a conditional update (inStock - quantity, only while inStock covers it), so the
+     * check and the change are one statement and no other checkout can slip in between, whichever
+     * DerbyRW instance it runs on. Rows are updated in productKey order, so two checkouts that
+     * share products lock them in the same order and queue rather than deadlock.
+     */
+    public ArrayList<LineItem> purchaseStocks(ArrayList<LineItem> lineItems) throws SQLException {
+        PurchaseStocksEvent event = new PurchaseStocksEvent();
+        event.begin();
+        ArrayList<LineItem> insufficientProducts = new ArrayList<>();
+        long ticket = 0;
+
+        ArrayList<LineItem> inKeyOrder = new ArrayList<>(lineItems);
+        inKeyOrder.sort(Comparator.comparingLong(LineItem::getProductKey));
+
+        // By productKey: trolley lines refer to products read from the database, so they all have one
+        String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productKey = ? AND inStock >= ?";
+
+        try (Connection conn = TimedJdbc.getConnection(dbURL)) {
             conn.setAutoCommit(false);
 
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                 PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-
-                boolean allSufficient = true;
-
-                for (Product product : proList) {
-                    checkStmt.setString(1, product.getProductId());
-                    ResultSet rs = checkStmt.executeQuery();
-
-                    if (rs.next()) {
-                        int currentStock = rs.getInt("inStock");
-                        int newStock = currentStock - product.getOrderedQuantity();
-
-                        System.out.println("Product ID: " + product.getProductId());
-                        System.out.println("Before change: " + currentStock);
-                        System.out.println("Quantity Ordered: " + product.getOrderedQuantity());
-
-                        if (newStock >= 0) {
-                            updateStmt.setInt(1, product.getOrderedQuantity());
-                            updateStmt.setString(2, product.getProductId());
-                            updateStmt.addBatch();
-
-                            System.out.println("After change: " + newStock);
-                            System.out.println("Update successful for Product ID: " + product.getProductId());
-                        } else {
-                            insufficientProducts.add(product);
-                            allSufficient = false;
-                            System.out.println("Not enough stock for Product ID: " + product.getProductId());
-                        }
-                        System.out.println("--------------------------------");
+            try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                for (LineItem line : inKeyOrder) {
+                    updateStmt.setInt(1, line.getQuantity());
+                    updateStmt.setLong(2, line.getProductKey());
+                    updateStmt.setInt(3, line.getQuantity());
+                    if (updateStmt.executeUpdate() == 0) { // not enough stock, or the product is gone
+                        insufficientProducts.add(line);
                     }
                 }
 
-                if (allSufficient) {
-                    updateStmt.executeBatch();
+                if (insufficientProducts.isEmpty()) {
+                    ticket = StockAggregates.shared.changeTicket();
                     conn.commit();
-                    System.out.println("Database update successful.");
+                    event.committed = true;
                 } else {
                     conn.rollback();
-                    System.out.println("Insufficient stock for some products, all updates rolled back.");
                 }
-
             } catch (SQLException e) {
                 conn.rollback();
-                System.out.println("Database update error, update failed");
+                System.out.println("Database update error, stock purchase rolled back: " + e.getMessage());
+                throw e;
             }
         } finally {
-            lock.unlock();
+            if (event.shouldCommit()) {
+                event.setProducts(lineItems);
+                event.insufficientCount = insufficientProducts.size();
+                event.commit();
+            }
         }
 
+        if (insufficientProducts.isEmpty()) {
+            for (LineItem line : lineItems) {
+                StockAggregates.shared.adjustStock(ticket, line.getProductKey(), -line.getQuantity());
+                StockEventBus.publish(line.getProductId(), StockEventBus.Kind.STOCK);
+            }
+            System.out.println("Stock purchased for " + lineItems.size() + " product(s)");
+        } else {
+            for (LineItem line : insufficientProducts) {
+                System.out.println("Not enough stock for Product ID: " + line.getProductId());
+            }
+            System.out.println("Insufficient stock for some products, all updates rolled back.");
+        }
         return insufficientProducts;
     }
 
+    // Update count and StockAggregates ticket of a committed stock change
+    private record Committed(int rows, long ticket) {}
+
+    // Runs a statement that changes stock in its own transaction, taking the StockAggregates
+    // ticket after the statement and before the commit (see StockAggregates); the connection is
+    // back in auto-commit mode afterwards
+    private static Committed commitWithTicket(Connection conn, PreparedStatement stmt) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            int rows = stmt.executeUpdate();
+            long ticket = StockAggregates.shared.changeTicket();
+            conn.commit();
+            return new Committed(rows, ticket);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
     // Warehouse edits an existing product
     public void updateProduct(String id, String des, double price, String iName, int stock) throws SQLException {
         lock.lock();
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String updateSql = "UPDATE ProductTable SET description = ?, unitPrice = ?, image = ?, inStock = ? WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement selectStmt = conn.prepareStatement(selectSql);
              PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
 
             // Print Before Update
+            long productKey;
             selectStmt.setString(1, id);
             try (ResultSet rs = selectStmt.executeQuery()) {
                 if (rs.next()) {
+                    productKey = rs.getLong("productKey");
                     System.out.println("Before Update:");
                     System.out.println("ID: " + rs.getString("productID"));
                     System.out.println("Description: " + rs.getString("description"));
@@ -206,7 +269,9 @@ public class DerbyRW implements DatabaseRW {
             updateStmt.setString(3, iName);
             updateStmt.setInt(4, stock);
             updateStmt.setString(5, id);
-            updateStmt.executeUpdate();
+            long ticket = commitWithTicket(conn, updateStmt).ticket();
+            StockAggregates.shared.setStock(ticket, productKey, id, stock);
+            StockEventBus.publish(id, StockEventBus.Kind.STOCK);
 
             // Print After Update
             try (ResultSet rs = selectStmt.executeQuery()) {
@@ -224,20 +289,58 @@ public class DerbyRW implements DatabaseRW {
         }
     }
 
+    /**
+     * Restocks a product: inStock = inStock + units in a single UPDATE, rather than reading the
+     * stock and writing back a new figure, which would undo any purchase made in between.
+     */
+    public boolean addStock(String id, int units) throws SQLException {
+        String selectSql = "SELECT productKey FROM ProductTable WHERE productID = ?";
+        String updateSql = "UPDATE ProductTable SET inStock = inStock + ? WHERE productKey = ?";
+
+        long productKey = 0;
+        Committed update = null;
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
+             PreparedStatement selectStmt = conn.prepareStatement(selectSql);
+             PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+            selectStmt.setString(1, id);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                if (rs.next()) {
+                    productKey = rs.getLong("productKey");
+                }
+            }
+            if (productKey != 0) {
+                // By the key just read, so the change reported below is to the row updated
+                updateStmt.setInt(1, units);
+                updateStmt.setLong(2, productKey);
+                update = commitWithTicket(conn, updateStmt);
+            }
+        }
+        if (update == null || update.rows() == 0) {
+            System.out.println("Product not found: " + id);
+            return false;
+        }
+        StockAggregates.shared.adjustStock(update.ticket(), productKey, units);
+        StockEventBus.publish(id, StockEventBus.Kind.STOCK);
+        System.out.println("Added " + units + " units to the stock of Product ID: " + id);
+        return true;
+    }
+
     // Warehouse delete an existing product
     public void deleteProduct(String proId) throws SQLException {
         lock.lock();
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String deleteSql = "DELETE FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement selectStmt = conn.prepareStatement(selectSql);
              PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
             conn.setAutoCommit(true);
 
+            long productKey;
             selectStmt.setString(1, proId);
             try (ResultSet rs = selectStmt.executeQuery()) {
                 if (rs.next()) {
+                    productKey = rs.getLong("productKey");
                     System.out.println("Before delete:");
                     System.out.println("ID: " + rs.getString("productID"));
                     System.out.println("Description: " + rs.getString("description"));
@@ -250,7 +353,9 @@ public class DerbyRW implements DatabaseRW {
             }
 
             deleteStmt.setString(1, proId);
-            deleteStmt.executeUpdate();
+            long ticket = commitWithTicket(conn, deleteStmt).ticket();
+            StockAggregates.shared.remove(ticket, productKey);
+            StockEventBus.publish(proId, StockEventBus.Kind.REMOVED);
             System.out.println("Product " + proId + " deleted from database.");
         } finally {
             lock.unlock();
@@ -261,7 +366,7 @@ public class DerbyRW implements DatabaseRW {
     public boolean isProIdAvailable(String proId) throws SQLException {
         String query = "SELECT COUNT(*) FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, proId);
             ResultSet rs = stmt.executeQuery();
@@ -274,6 +379,23 @@ public class DerbyRW implements DatabaseRW {
         }
     }
 
+    public boolean isImageInUse(String imageName) throws SQLException {
+        String query = "SELECT 1 FROM ProductTable WHERE image = ? FETCH FIRST ROW ONLY";
+
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, imageName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Served from StockAggregates, which is kept up to date by the writes above
+    public StockSummary getStockSummary() throws SQLException {
+        return StockAggregates.shared.summary();
+    }
+
     public void insertNewProduct(String id, String des, double price, String image, int stock) throws SQLException {
         lock.lock();
 
@@ -281,14 +403,14 @@ public class DerbyRW implements DatabaseRW {
         String insertSql = "INSERT INTO ProductTable (productID, description, unitPrice, image, inStock) VALUES (?, ?, ?, ?, ?)";
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
+             PreparedStatement insertStmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
              PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
 
             conn.setAutoCommit(true);
 
             // Set parameters in correct order matching column definition
-            insertStmt.setString(1, id);           // productID CHAR(4)
+            insertStmt.setString(1, id);           // productID VARCHAR(32) SKU
             insertStmt.setString(2, des);          // description VARCHAR(100)
             insertStmt.setDouble(3, price);        // unitPrice DOUBLE
             insertStmt.setString(4, image);        // image VARCHAR(100)
@@ -301,7 +423,14 @@ public class DerbyRW implements DatabaseRW {
             System.out.println("  image: " + image);
             System.out.println("  inStock: " + stock);
 
-            insertStmt.executeUpdate();
+            long ticket = commitWithTicket(conn, insertStmt).ticket();
+            long productKey;
+            try (ResultSet keys = insertStmt.getGeneratedKeys()) { // productKey, an identity column
+                keys.next();
+                productKey = keys.getLong(1);
+            }
+            StockAggregates.shared.setStock(ticket, productKey, id, stock);
+            StockEventBus.publish(id, StockEventBus.Kind.ADDED);
 
             // Verify insertion
             selectStmt.setString(1, id);
@@ -1,20 +1,28 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.utility.ImageCache;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 /**
  * The ImageFileManager class handles the file operations related to product images in the warehouse system.
  * It is used by the Warehouse model to manage product images.
  *
  * - When a product is deleted from stock, its image file is also deleted from the storage location.
- * - When a new product is added or an existing product's image is changed, the image is copied to the specified
- *  destination folder with the product's ID as the image file name, including the original file extension.
+ * - When a new product is added or an existing product's image is changed, the image is stored in the
+ *  destination folder under a name taken from a hash of its content, so identical pictures are kept once,
+ *  and its thumbnails are generated (see ThumbnailStore).
  *
- * The class provides utility methods to delete image files and copy them to a new location.
+ * The class provides utility methods to delete image files and store new ones.
  */
 
 public class ImageFileManager {
@@ -31,6 +39,8 @@ public class ImageFileManager {
 
         if (Files.exists(iPath)) { // Check if the file exists
             Files.delete(iPath); // Permanently delete the file
+            ThumbnailStore.delete(fileName);
+            ImageCache.invalidate(fileName); // drop its cached thumbnails
             System.out.println("Deleted: " + iPath);
         } else {
             System.out.println("File not found: " + iPath);
@@ -38,32 +48,53 @@ public class ImageFileManager {
     }
 
     /**
-     * Copies an image file from the source URI to a specified destination folder with a new name.
-     * The new name is the product ID (fileNameWithoutExtension) with the original file extension.
+     * Stores an image file in the destination folder under a name derived from its content
+     * (the first 20 hex digits of its SHA-256, plus the original extension), and generates its thumbnails.
+     * Storing the same picture again, for the same or another product, reuses the existing file.
      *
-     * @param sourceUri The URI of the source image file.
-     * @param destinationFolder The destination folder where the image will be copied.
-     * @param fileNameWithoutExtension The name to assign to the copied image file (without extension).
-     * @return The name of the copied image file (with extension).
+     * @param sourceUri The path of the source image file (e.g., "C:/Users/shan/Desktop/mark.jpg").
+     * @param destinationFolder The destination folder where the image will be stored.
+     * @return The name of the stored image file (with extension), e.g. "3fa94c0be1d27a6b5c01.jpg".
      */
-    public static String copyFileToDestination(String sourceUri, String destinationFolder, String fileNameWithoutExtension) throws IOException {
-        // Get the source file path and file name
-        Path sourcePath = Paths.get(sourceUri);  // Source image uri (e.g., "C:/Users/shan/Desktop/mark.jpg")
+    public static String storeImage(String sourceUri, String destinationFolder) throws IOException {
+        Path sourcePath = Paths.get(sourceUri);
         String sourceFileName = sourcePath.getFileName().toString();  // e.g., "mark.jpg"
+        String fileExtension = sourceFileName.substring(sourceFileName.lastIndexOf('.')).toLowerCase();  // e.g., ".jpg"
 
-        // Extract file extension from the source file
-        String fileExtension = sourceFileName.substring(sourceFileName.lastIndexOf('.'));  // e.g., ".jpg"
+        Path destinationFolderPath = Paths.get(destinationFolder);
+        Files.createDirectories(destinationFolderPath);
 
-        // Prepare the destination file path
-        Path destinationFolderPath = Paths.get(destinationFolder);  // Destination folder path
+        // Copy to a temporary file first, hashing the bytes on the way
+        Path tempPath = Files.createTempFile(destinationFolderPath, "upload", ".tmp");
+        String contentHash;
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(sourcePath), sha256)) {
+                Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            contentHash = HexFormat.of().formatHex(sha256.digest()).substring(0, 20);
 
-        String fileNameWithExtension = fileNameWithoutExtension + fileExtension;
-        Path destinationPath = destinationFolderPath.resolve(fileNameWithExtension);  // Combine the product ID (fileNameWithoutExtension) with the extension
+            String fileNameWithExtension = contentHash + fileExtension;
+            Path destinationPath = destinationFolderPath.resolve(fileNameWithExtension);
+            if (Files.exists(destinationPath)) {
+                System.out.println("Image already stored as: " + destinationPath);
+            } else {
+                Files.move(tempPath, destinationPath, StandardCopyOption.ATOMIC_MOVE);
+                System.out.println("File copied successfully to: " + destinationPath);
+            }
 
-        // Copy the file to the destination folder with the specified name
-        Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-        System.out.println("File copied successfully to: " + destinationPath);
-        return fileNameWithExtension;
+            try {
+                ThumbnailStore.generate(fileNameWithExtension);
+            } catch (IOException e) {
+                // The views fall back to scaling the original
+                System.err.println("Warning: Could not generate thumbnails: " + e.getMessage());
+            }
+            return fileNameWithExtension;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
     }
 
 }
@@ -0,0 +1,91 @@
+package ci553.happyshop.storageAccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LastLoginWriter records UserTable.lastLogin in the background, so a login only waits for the
+ * password check and not for a database write.
+ *
+ * A login just puts (username → login time) into a map; logging in again before the next flush
+ * overwrites the time, so each user costs at most one UPDATE per flush however often they log in.
+ * Every flush interval a single daemon thread writes all pending times in one JDBC batch and
+ * transaction. If the write fails the times are put back (unless a newer login replaced them)
+ * and retried on the next flush. A shutdown hook flushes whatever is left when the JVM exits.
+ *
+ * The interval defaults to 2000ms and can be changed with -Dhappyshop.lastLogin.flushMillis.
+ */
+
+class LastLoginWriter {
+
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("happyshop.lastLogin.flushMillis", 2000);
+
+    private final String dbURL;
+    private final ConcurrentHashMap<String, Timestamp> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "happyshop-lastlogin-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    LastLoginWriter(String dbURL) {
+        this.dbURL = dbURL;
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "happyshop-lastlogin-flush"));
+    }
+
+    // Called on a successful login; returns immediately
+    void record(String username) {
+        pending.put(username, new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * Writes every pending login time in one batched transaction.
+     * Synchronized so the scheduled flush and the shutdown flush never write the same batch twice.
+     */
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Take the current entries out of the map; logins arriving meanwhile stay for the next flush
+        ArrayList<Map.Entry<String, Timestamp>> batch = new ArrayList<>();
+        for (Map.Entry<String, Timestamp> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE UserTable SET lastLogin = ? WHERE username = ?";
+        try (Connection conn = TimedJdbc.getConnection(dbURL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Map.Entry<String, Timestamp> entry : batch) {
+                    stmt.setTimestamp(1, entry.getValue());
+                    stmt.setString(2, entry.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Last login update failed for " + batch.size() + " users, will retry: " + e.getMessage());
+            for (Map.Entry<String, Timestamp> entry : batch) {
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.TimestampFormatter;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -9,8 +12,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * This class manages creation, updating, and relocation of order files.
@@ -40,12 +41,29 @@ import java.time.format.DateTimeFormatter;
  *  1. update state from Ordered to Progressing, (then move the file to progressing folder)
  *  2. update state from Progressing to Collected (then move the file to collected folder)
  * </p>
+ *
+ * <p>
+ * The time of each file operation is recorded in happyshop_order_file_seconds{op=create|updateAndMove|read}.
+ * </p>
  */
 
 public class OrderFileManager {
 
+    private static final Timer createTimer = timer("create");
+    private static final Timer updateAndMoveTimer = timer("updateAndMove");
+    private static final Timer readTimer = timer("read");
+
     //Creates a new order file in the specified directory with the given content.
     public static void createOrderFile(Path dir, int orderId, String orderDetail) throws IOException {
+        long start = System.nanoTime();
+        try {
+            writeOrderFile(dir, orderId, orderDetail);
+        } finally {
+            createTimer.recordSince(start);
+        }
+    }
+
+    private static void writeOrderFile(Path dir, int orderId, String orderDetail) throws IOException {
         String orderFileName = String.valueOf(orderId)+".txt";
         Path path = dir.resolve(orderFileName); // eg. orders/ordered/12.txt
         if(Files.notExists(path)) {
@@ -66,11 +84,23 @@ public class OrderFileManager {
     //Progressing state in orders/progressing
     //Collected state in orders/collected
     public static boolean updateAndMoveOrderFile(int orderId, OrderState newState, Path sourceDir, Path targetDir) throws IOException {
+        return updateAndMoveOrderFile(orderId, newState, sourceDir, targetDir, System.currentTimeMillis());
+    }
+
+    // Same as above, but stamps the file with the given epoch-millis time,
+    // so the file and the in-memory Order record exactly the same transition time.
+    public static boolean updateAndMoveOrderFile(int orderId, OrderState newState, Path sourceDir, Path targetDir,
+                                                 long epochMillis) throws IOException {
+        return updateAndMoveTimer.time(() -> moveOrderFile(orderId, newState, sourceDir, targetDir, epochMillis));
+    }
+
+    private static boolean moveOrderFile(int orderId, OrderState newState, Path sourceDir, Path targetDir,
+                                         long epochMillis) throws IOException {
         String orderFileName = String.valueOf(orderId)+".txt";
         Path sourcePath = sourceDir.resolve(orderFileName);
         Path targetPath = targetDir.resolve(orderFileName);
         if (Files.exists(sourcePath)) {
-            updateOrderStateAndTime(sourceDir,orderId,newState); //Edit the file to update order state and add time
+            updateOrderStateAndTime(sourceDir,orderId,newState,epochMillis); //Edit the file to update order state and add time
             if(!sourceDir.equals(targetDir)) //Move the file only if the source and destination are different
                 Files.move(sourcePath,targetPath);
             return true;
@@ -86,7 +116,8 @@ public class OrderFileManager {
      * This method creates a temporary file with the updated content and replaces
      * the original file once updates are complete.
      */
-    private static void updateOrderStateAndTime(Path sourceDir, int orderId, OrderState newState) throws IOException {
+    private static void updateOrderStateAndTime(Path sourceDir, int orderId, OrderState newState, long epochMillis) throws IOException {
+        String dateTime = TimestampFormatter.formatOrderTime(epochMillis);
         String orderFileName = String.valueOf(orderId)+".txt";
         String tempFileName = String.valueOf(orderId) + "_temp.txt";
         Path sourcePath = sourceDir.resolve(orderFileName);
@@ -99,9 +130,9 @@ public class OrderFileManager {
                 if (line.startsWith("State")) {
                     line = "State: " + newState;
                 } else if (newState.equals(OrderState.Progressing) && line.startsWith("ProgressingDateTime")) {
-                    line = "ProgressingDateTime: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                    line = "ProgressingDateTime: " + dateTime;
                 } else if (newState.equals(OrderState.Collected) && line.startsWith("CollectedDateTime")) {
-                    line = "CollectedDateTime: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                    line = "CollectedDateTime: " + dateTime;
                 }
                 writer.write(line);
                 writer.newLine();
@@ -125,6 +156,10 @@ public class OrderFileManager {
         if (!Files.exists(path)) {
             throw new IOException("Order file not found: " + path);
         }
-        return String.join("\n", Files.readAllLines(path));
+        return readTimer.time(() -> String.join("\n", Files.readAllLines(path)));
+    }
+
+    private static Timer timer(String op) {
+        return MetricsRegistry.timer("happyshop_order_file_seconds", "Time spent reading and writing order files", "op", op);
     }
 }
@@ -0,0 +1,174 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.metrics.Counter;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.utility.TimestampFormatter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SqlStatistics collects the timings of every SQL statement run by the storage classes
+ * (recorded by TimedJdbc), grouped by SQL text: how often it ran, total and maximum time, rows
+ * returned or changed, and failures.
+ *
+ * - Statements slower than -Dhappyshop.sql.slowMillis (default 50) are appended, with their
+ *   bind values, to -Dhappyshop.sql.slowLog (default slow-queries.log in the working directory);
+ *   binds of statements on password hashes are redacted by TimedJdbc before they get here
+ * - {@link #report(int)} lists the statements that took the most time in total;
+ *   {@link #startReporting()} prints it every -Dhappyshop.sql.reportSeconds (default 300, 0 = never)
+ * - GET /api/metrics/sql returns the same figures as JSON, see {@link #top(int)}
+ *
+ * Example report line:
+ * <pre>
+ *     41.2%    812.40ms total  1203×  0.68ms avg   9.81ms max   14436 rows  SELECT * FROM ProductTable WHERE descriptionLower LIKE ?
+ * </pre>
+ */
+
+public final class SqlStatistics {
+
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("happyshop.sql.slowMillis", 50));
+    private static final Path SLOW_LOG = Paths.get(System.getProperty("happyshop.sql.slowLog", "slow-queries.log"));
+    private static final long REPORT_SECONDS = Long.getLong("happyshop.sql.reportSeconds", 300);
+    private static final int REPORT_SIZE = 10;
+
+    private static final ConcurrentHashMap<String, Stats> statsBySql = new ConcurrentHashMap<>();
+    private static final Counter slowStatements = MetricsRegistry.counter("happyshop_sql_slow_total",
+            "SQL statements slower than happyshop.sql.slowMillis");
+
+    private static BufferedWriter slowLog;           // opened on the first slow statement
+    // Guards slowLog; a ReentrantLock so virtual threads do not pin their carriers on the file I/O
+    private static final ReentrantLock slowLogLock = new ReentrantLock();
+    private static ScheduledExecutorService reporter;
+
+    private SqlStatistics() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    // The figures for one SQL text
+    public record Entry(String sql, long count, long totalNanos, long maxNanos, long rows, long errors) {
+        public double meanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+    }
+
+    // Called by TimedJdbc when a statement finishes
+    static void record(String sql, String binds, long nanos, long rows, boolean failed) {
+        Stats stats = statsBySql.computeIfAbsent(sql == null ? "(unknown)" : sql, Stats::new);
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+        stats.rows.add(rows);
+        if (failed) {
+            stats.errors.increment();
+        }
+        if (nanos >= SLOW_NANOS) {
+            slowStatements.increment();
+            logSlow(stats.sql, binds, nanos, rows, failed);
+        }
+    }
+
+    // The statements with the most total time first
+    public static List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>();
+        for (Stats stats : statsBySql.values()) {
+            entries.add(new Entry(stats.sql, stats.count.sum(), stats.totalNanos.sum(),
+                    stats.maxNanos.get(), stats.rows.sum(), stats.errors.sum()));
+        }
+        entries.sort(Comparator.comparingLong(Entry::totalNanos).reversed());
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    // A text table of the top statements by total time, with each one's share of all SQL time
+    public static String report(int limit) {
+        long allNanos = 0;
+        for (Stats stats : statsBySql.values()) {
+            allNanos += stats.totalNanos.sum();
+        }
+        StringBuilder text = new StringBuilder("🗄️ Top SQL by total time\n");
+        for (Entry entry : top(limit)) {
+            text.append(String.format("  %5.1f%%  %10.2fms total  %6d×  %7.2fms avg  %7.2fms max  %8d rows%s  %s%n",
+                    allNanos == 0 ? 0.0 : 100.0 * entry.totalNanos() / allNanos,
+                    entry.totalNanos() / 1e6, entry.count(), entry.meanMillis(), entry.maxNanos() / 1e6,
+                    entry.rows(), entry.errors() > 0 ? "  " + entry.errors() + " failed" : "", entry.sql()));
+        }
+        return text.toString();
+    }
+
+    // Forgets every figure, eg. to measure one phase of a test
+    public static void reset() {
+        statsBySql.clear();
+    }
+
+    /**
+     * Prints {@link #report(int)} every happyshop.sql.reportSeconds in the background.
+     * Does nothing if that is 0 or the reporter is already running.
+     */
+    public static synchronized void startReporting() {
+        if (REPORT_SECONDS <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            if (!statsBySql.isEmpty()) {
+                System.out.print(report(REPORT_SIZE));
+            }
+        }, REPORT_SECONDS, REPORT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void logSlow(String sql, String binds, long nanos, long rows, boolean failed) {
+        // Formatted before taking the lock so writers only queue for the write itself
+        String line = String.format("%s  %8.2fms  %6d rows%s  %s%s",
+                TimestampFormatter.formatOrderTime(System.currentTimeMillis()), nanos / 1e6, rows,
+                failed ? "  FAILED" : "", sql, binds.isEmpty() ? "" : "  binds " + binds);
+        slowLogLock.lock();
+        try {
+            if (slowLog == null) {
+                slowLog = Files.newBufferedWriter(SLOW_LOG, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                System.out.println("🐢 Slow SQL (over " + TimeUnit.NANOSECONDS.toMillis(SLOW_NANOS) + "ms) logged to "
+                        + SLOW_LOG.toAbsolutePath());
+            }
+            slowLog.write(line);
+            slowLog.newLine();
+            slowLog.flush();
+        } catch (IOException e) {
+            System.out.println("Slow SQL not logged: " + e.getMessage());
+        } finally {
+            slowLogLock.unlock();
+        }
+    }
+
+    // Keyed by the SQL as written in the code; the text shown is on one line
+    private static final class Stats {
+        final String sql;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Stats(String sql) {
+            this.sql = sql.strip().replaceAll("\\s+", " ");
+        }
+    }
+}
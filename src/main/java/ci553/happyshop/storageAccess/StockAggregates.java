@@ -0,0 +1,264 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.StockLevelIndicator;
+import ci553.happyshop.catalogue.StockLevelIndicator.StockLevel;
+import ci553.happyshop.catalogue.StockSummary;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * StockAggregates keeps the stock level of every product in memory, by productKey, with a count
+ * per StockLevel and the low-stock products, so the dashboard's figures are read from a few counters
+ * instead of loading the whole catalogue.
+ *
+ * It reads ProductTable once (inStock and maxStock) on first use. After that DerbyRW reports each
+ * committed change: stock sold by purchaseStocks (as a difference, so concurrent checkouts can be
+ * applied in any order), warehouse edits, new and deleted products. Each change moves one product
+ * between levels in O(log n).
+ *
+ * Writes from another process (eg. a second till on the same database) are not seen, so the
+ * figures are reloaded from the table every 5 minutes (-Dhappyshop.stockAggregates.reloadMillis).
+ * One instance is shared by every DerbyRW in the JVM.
+ *
+ * A reload reads the table into fresh figures without holding the lock, so checkouts reporting
+ * their changes never wait for the scan, and then swaps them in. To know which changes the scan
+ * already saw, every change carries a ticket from {@link #changeTicket()}, taken after its
+ * statement ran and before it committed. The scan holds a share lock on ProductTable and notes the
+ * last ticket issued once it has the lock: a change with a ticket up to that one committed before
+ * the scan read the table, so it is dropped; later ones are applied on top of the new figures.
+ */
+
+class StockAggregates {
+
+    private static final long RELOAD_NANOS = Long.getLong("happyshop.stockAggregates.reloadMillis", 5 * 60_000) * 1_000_000L;
+
+    static final StockAggregates shared = new StockAggregates(DatabaseRWFactory.dbURL);
+
+    private record Stock(String productId, int inStock, int maxStock, StockLevel level) {}
+
+    // A reported change, kept while a reload runs so it can be applied to the new figures too
+    private record Change(long ticket, Consumer<Figures> apply) {}
+
+    private final String dbURL;
+    private final AtomicLong tickets = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();        // guards the fields below
+    private Figures figures;                                        // null until first loaded
+    private long loadedAtNanos;
+    private ArrayList<Change> changesDuringLoad;                    // non-null while a reload runs
+
+    private final ReentrantLock loadLock = new ReentrantLock();    // one reload at a time
+
+    StockAggregates(String dbURL) {
+        this.dbURL = dbURL;
+    }
+
+    StockSummary summary() throws SQLException {
+        if (needsLoad()) {
+            loadLock.lock();
+            try {
+                if (needsLoad()) { // another caller may have reloaded meanwhile
+                    load();
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        lock.lock();
+        try {
+            return new StockSummary(figures.stockByKey.size(),
+                    Collections.unmodifiableMap(new EnumMap<>(figures.levelCounts)),
+                    figures.outOfStock,
+                    Collections.unmodifiableList(new ArrayList<>(figures.lowStockIds.values())),
+                    System.currentTimeMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A ticket for a change about to be committed: take it after the change's statement has run
+     * (so it holds its row locks) and before the commit, and pass it with the change.
+     */
+    long changeTicket() {
+        return tickets.incrementAndGet();
+    }
+
+    // Stock sold (negative) or returned (positive) by a committed transaction
+    void adjustStock(long ticket, long productKey, int delta) {
+        report(ticket, f -> {
+            Stock current = f.stockByKey.get(productKey);
+            if (current != null) {
+                f.put(productKey, current.productId(), current.inStock() + delta, current.maxStock());
+            }
+        });
+    }
+
+    // Stock set to a new value, eg. by a warehouse edit or a new product; the maximum is kept
+    void setStock(long ticket, long productKey, String productId, int inStock) {
+        report(ticket, f -> {
+            Stock current = f.stockByKey.get(productKey);
+            f.put(productKey, productId, inStock, current != null ? current.maxStock() : inStock);
+        });
+    }
+
+    void remove(long ticket, long productKey) {
+        report(ticket, f -> f.remove(productKey));
+    }
+
+    // Forgets everything; the next summary reads the table again
+    void invalidate() {
+        lock.lock();
+        try {
+            figures = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void report(long ticket, Consumer<Figures> apply) {
+        lock.lock();
+        try {
+            if (figures != null && ticket > figures.ticket) {
+                apply.accept(figures);
+            }
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(new Change(ticket, apply));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean needsLoad() {
+        lock.lock();
+        try {
+            return figures == null || System.nanoTime() - loadedAtNanos > RELOAD_NANOS;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called holding loadLock only
+    private void load() throws SQLException {
+        lock.lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Figures loaded = null;
+        try {
+            loaded = read();
+        } finally {
+            lock.lock();
+            try {
+                if (loaded != null) {
+                    // Changes committed after the scan took its lock are not in it
+                    for (Change change : changesDuringLoad) {
+                        if (change.ticket() > loaded.ticket) {
+                            change.apply().accept(loaded);
+                        }
+                    }
+                    figures = loaded;
+                    loadedAtNanos = System.nanoTime();
+                }
+                changesDuringLoad = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        System.out.println("Stock aggregates loaded: " + loaded.stockByKey.size() + " products");
+    }
+
+    // Reads every product's stock into new figures
+    private Figures read() throws SQLException {
+        try (Connection conn = TimedJdbc.getConnection(dbURL)) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Waits for transactions changing stock to commit and holds off new ones until the
+                // read is done, so each change is either in the figures or has a later ticket
+                stmt.execute("LOCK TABLE ProductTable IN SHARE MODE");
+                Figures loaded = new Figures(tickets.get());
+
+                ResultSet rs;
+                boolean hasMaxStock = true;
+                try {
+                    rs = stmt.executeQuery("SELECT productKey, productID, inStock, maxStock FROM ProductTable");
+                } catch (SQLException e) {
+                    // Databases created before the maxStock column (see DatabaseMigration)
+                    rs = stmt.executeQuery("SELECT productKey, productID, inStock FROM ProductTable");
+                    hasMaxStock = false;
+                }
+                // rs is closed with the statement
+                while (rs.next()) {
+                    int inStock = rs.getInt("inStock");
+                    loaded.put(rs.getLong("productKey"), rs.getString("productID").trim(), inStock,
+                            hasMaxStock ? rs.getInt("maxStock") : inStock);
+                }
+                return loaded;
+            } finally {
+                conn.commit(); // releases the table lock
+            }
+        }
+    }
+
+    // The figures from one read of the table, plus the changes reported since
+    private static final class Figures {
+        private final long ticket;     // last ticket issued when the table was read
+        private final HashMap<Long, Stock> stockByKey = new HashMap<>();
+        private final EnumMap<StockLevel, Integer> levelCounts = new EnumMap<>(StockLevel.class);
+        private final TreeMap<Long, String> lowStockIds = new TreeMap<>();  // productKey to productID
+        private int outOfStock;        // products with inStock <= 0
+
+        Figures(long ticket) {
+            this.ticket = ticket;
+            for (StockLevel level : StockLevel.values()) {
+                levelCounts.put(level, 0);
+            }
+        }
+
+        void put(long productKey, String productId, int inStock, int maxStock) {
+            // Products added without a maximum are measured against their current stock
+            StockLevel level = StockLevelIndicator.determineStockLevel(inStock, maxStock > 0 ? maxStock : inStock);
+            Stock stock = new Stock(productId, inStock, maxStock, level);
+            Stock old = stockByKey.put(productKey, stock);
+            if (old != null) {
+                count(old, -1);
+            }
+            count(stock, 1);
+            if (level == StockLevel.LOW || level == StockLevel.CRITICAL) {
+                lowStockIds.put(productKey, productId);
+            } else {
+                lowStockIds.remove(productKey);
+            }
+        }
+
+        void remove(long productKey) {
+            Stock old = stockByKey.remove(productKey);
+            if (old != null) {
+                count(old, -1);
+                lowStockIds.remove(productKey);
+            }
+        }
+
+        private void count(Stock stock, int delta) {
+            levelCounts.merge(stock.level(), delta, Integer::sum);
+            if (stock.inStock() <= 0) {
+                outOfStock += delta;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ci553.happyshop.storageAccess;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * StockEventBus tells interested views which products' stock has changed, so they can update
+ * just those products instead of polling or reloading everything.
+ *
+ * Events are published after the change is committed:
+ * - STOCK by DerbyRW.purchaseStocks and DerbyRW.updateProduct
+ * - ADDED and REMOVED by DerbyRW.insertNewProduct and DerbyRW.deleteProduct
+ * - RESERVATION by OrderHub when an order reserves or releases stock
+ *
+ * An event carries only the product ID: subscribers read the current values themselves, so
+ * several events for one product can be merged into one read. Events are delivered on the
+ * publishing thread (a storage or HTTP thread, never the JavaFX thread), so a subscriber must
+ * only note the ID and return.
+ *
+ * Example usage:
+ * <pre>
+ *     Runnable unsubscribe = StockEventBus.subscribe(change -> changedIds.add(change.productId()));
+ *     ...
+ *     unsubscribe.run();
+ * </pre>
+ */
+
+public final class StockEventBus {
+
+    public enum Kind { STOCK, ADDED, REMOVED, RESERVATION }
+
+    public record StockChange(String productId, Kind kind) {}
+
+    private static final CopyOnWriteArrayList<Consumer<StockChange>> subscribers = new CopyOnWriteArrayList<>();
+
+    private StockEventBus() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    // Returns the action that removes the subscription
+    public static Runnable subscribe(Consumer<StockChange> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public static void publish(String productId, Kind kind) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StockChange change = new StockChange(productId, kind);
+        for (Consumer<StockChange> subscriber : subscribers) {
+            try {
+                subscriber.accept(change);
+            } catch (RuntimeException e) {
+                // A broken view must not fail the checkout that published the event
+                System.out.println("Stock change subscriber failed: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
+import ci553.happyshop.utility.StorageLocation;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * ThumbnailStore pre-generates the fixed thumbnail sizes the views show, so a list cell loads a
+ * few-KB PNG of exactly the right size instead of decoding and shrinking the full photo.
+ *
+ * Sizes: 60px (warehouse list), 80px (trolley), 120px (warehouse edit panel) and 140px
+ * (customer product panel). Thumbnails are written to images/thumbs/&lt;size&gt;/&lt;image&gt;.png
+ * when an image is stored through ImageFileManager, and for every existing image when the
+ * database is reset (SetDatabase) or generateMissing() is run.
+ *
+ * Each thumbnail is scaled down in halving steps with bilinear filtering, which keeps it sharp
+ * without the cost of a full bicubic pass, and written via a temporary file so a view never
+ * reads a half-written PNG. Generating all sizes of one image is timed in
+ * happyshop_image_seconds{op="thumbnails"}.
+ */
+
+public class ThumbnailStore {
+
+    public static final int[] SIZES = {60, 80, 120, 140};
+
+    private static final Timer generateTimer = MetricsRegistry.timer("happyshop_image_seconds",
+            "Time spent loading and scaling product images", "op", "thumbnails");
+
+    /**
+     * @return where the thumbnail of the image at this size is (or would be) stored
+     */
+    public static Path thumbnailPath(String imageName, int size) {
+        int dot = imageName.lastIndexOf('.');
+        String baseName = dot > 0 ? imageName.substring(0, dot) : imageName;
+        return StorageLocation.thumbnailFolderPath.resolve(String.valueOf(size)).resolve(baseName + ".png");
+    }
+
+    /**
+     * Writes every thumbnail size of an image in the images folder.
+     * @return false if the file could not be decoded (views then fall back to the original)
+     */
+    public static boolean generate(String imageName) throws IOException {
+        return generateTimer.time(() -> generateSizes(imageName));
+    }
+
+    private static boolean generateSizes(String imageName) throws IOException {
+        Path original = StorageLocation.imageFolderPath.resolve(imageName);
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null) {
+            System.out.println("No thumbnails for " + imageName + ": format not readable");
+            return false;
+        }
+        for (int size : SIZES) {
+            write(scaleToFit(source, size), thumbnailPath(imageName, size));
+        }
+        return true;
+    }
+
+    // Generates thumbnails for every image that is missing one or has changed since; returns how many
+    public static int generateMissing() throws IOException {
+        if (!Files.isDirectory(StorageLocation.imageFolderPath)) {
+            return 0;
+        }
+        int generated = 0;
+        try (DirectoryStream<Path> images = Files.newDirectoryStream(StorageLocation.imageFolderPath, Files::isRegularFile)) {
+            for (Path image : images) {
+                String imageName = image.getFileName().toString();
+                if (isStale(imageName) && generate(imageName)) {
+                    generated++;
+                }
+            }
+        }
+        System.out.println("Thumbnails generated for " + generated + " images");
+        return generated;
+    }
+
+    public static void delete(String imageName) throws IOException {
+        for (int size : SIZES) {
+            Files.deleteIfExists(thumbnailPath(imageName, size));
+        }
+    }
+
+    private static boolean isStale(String imageName) throws IOException {
+        Path original = StorageLocation.imageFolderPath.resolve(imageName);
+        for (int size : SIZES) {
+            Path thumb = thumbnailPath(imageName, size);
+            if (!Files.exists(thumb) || Files.getLastModifiedTime(thumb).compareTo(Files.getLastModifiedTime(original)) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Fits the image within size × size, keeping its aspect ratio; never scales up
+    private static BufferedImage scaleToFit(BufferedImage source, int size) {
+        double scale = Math.min(1.0, Math.min((double) size / source.getWidth(), (double) size / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            // Halve until the next step reaches the target size
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "thumb", ".tmp");
+        try {
+            ImageIO.write(image, "png", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.LineItem;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.StockSummary;
+import ci553.happyshop.metrics.Counter;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * TimedDatabaseRW wraps another DatabaseRW and records how long every call takes, in the
+ * happyshop_db_seconds{method=...} timers, and how many calls threw, in happyshop_db_errors_total.
+ *
+ * DatabaseRWFactory hands out DerbyRW wrapped in this class, so every client, the API server and
+ * the load generator are measured without knowing about it. Calls go straight to the wrapped
+ * object, so its locking (eg. the lock DerbyRW takes around warehouse edits) is unchanged.
+ */
+
+class TimedDatabaseRW implements DatabaseRW {
+
+    private static final String TIME_HELP = "Time spent in DatabaseRW calls";
+    private static final String ERROR_HELP = "DatabaseRW calls that threw an SQLException";
+
+    private static final Timer searchProduct = timer("searchProduct");
+    private static final Timer searchByProductId = timer("searchByProductId");
+    private static final Timer getAllProducts = timer("getAllProducts");
+    private static final Timer purchaseStocks = timer("purchaseStocks");
+    private static final Timer updateProduct = timer("updateProduct");
+    private static final Timer addStock = timer("addStock");
+    private static final Timer deleteProduct = timer("deleteProduct");
+    private static final Timer insertNewProduct = timer("insertNewProduct");
+    private static final Timer isProIdAvailable = timer("isProIdAvailable");
+    private static final Timer isImageInUse = timer("isImageInUse");
+    private static final Timer getStockSummary = timer("getStockSummary");
+    private static final Counter errors = MetricsRegistry.counter("happyshop_db_errors_total", ERROR_HELP);
+
+    private final DatabaseRW delegate;
+
+    TimedDatabaseRW(DatabaseRW delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ArrayList<Product> searchProduct(String keyword) throws SQLException {
+        return time(searchProduct, () -> delegate.searchProduct(keyword));
+    }
+
+    @Override
+    public Product searchByProductId(String productId) throws SQLException {
+        return time(searchByProductId, () -> delegate.searchByProductId(productId));
+    }
+
+    @Override
+    public ArrayList<Product> getAllProducts() throws SQLException {
+        return time(getAllProducts, () -> delegate.getAllProducts());
+    }
+
+    @Override
+    public ArrayList<LineItem> purchaseStocks(ArrayList<LineItem> lineItems) throws SQLException {
+        return time(purchaseStocks, () -> delegate.purchaseStocks(lineItems));
+    }
+
+    @Override
+    public void updateProduct(String id, String des, double price, String imageName, int stock) throws SQLException {
+        time(updateProduct, () -> {
+            delegate.updateProduct(id, des, price, imageName, stock);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean addStock(String id, int units) throws SQLException {
+        return time(addStock, () -> delegate.addStock(id, units));
+    }
+
+    @Override
+    public void deleteProduct(String id) throws SQLException {
+        time(deleteProduct, () -> {
+            delegate.deleteProduct(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void insertNewProduct(String id, String des, double price, String image, int stock) throws SQLException {
+        time(insertNewProduct, () -> {
+            delegate.insertNewProduct(id, des, price, image, stock);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isProIdAvailable(String productId) throws SQLException {
+        return time(isProIdAvailable, () -> delegate.isProIdAvailable(productId));
+    }
+
+    @Override
+    public boolean isImageInUse(String imageName) throws SQLException {
+        return time(isImageInUse, () -> delegate.isImageInUse(imageName));
+    }
+
+    @Override
+    public StockSummary getStockSummary() throws SQLException {
+        return time(getStockSummary, () -> delegate.getStockSummary());
+    }
+
+    private static <T> T time(Timer timer, Timer.TimedCall<T, SQLException> call) throws SQLException {
+        try {
+            return timer.time(call);
+        } catch (SQLException e) {
+            errors.increment();
+            throw e;
+        }
+    }
+
+    private static Timer timer(String method) {
+        return MetricsRegistry.timer("happyshop_db_seconds", TIME_HELP, "method", method);
+    }
+}
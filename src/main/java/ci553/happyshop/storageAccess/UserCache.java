@@ -0,0 +1,93 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.auth.User;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory cache of UserTable rows, keyed by username, used by UserDatabaseRW.
+ *
+ * Each entry records whether the username exists and, for active accounts, the User itself,
+ * so both login (findUserByUsername) and "username taken?" checks are answered without a query.
+ * Usernames that do not exist are cached too (negative entries), with a shorter lifetime so a
+ * user registered from another till is picked up quickly.
+ *
+ * Entries expire after a fixed time to live. When the cache grows past its size bound, expired
+ * entries are dropped first and then arbitrary ones until it is back under 90% of the bound;
+ * the next lookup of a dropped name simply goes to the database again.
+ *
+ * Backed by a ConcurrentHashMap, so lookups from many threads never block each other.
+ */
+
+class UserCache {
+
+    /**
+     * A cached row.
+     * @param user the active user, or null if the username is free or the account is inactive
+     * @param exists whether the username is taken (active or not)
+     */
+    record Entry(User user, boolean exists, long expiresAtNanos) {}
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    UserCache(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+    }
+
+    // The cached entry, or null if the username is not cached or its entry has expired
+    Entry get(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+            entries.remove(username, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    // Caches a username that is taken; user is null for an inactive account
+    Entry putExisting(String username, User user) {
+        return put(username, new Entry(user, true, System.nanoTime() + ttlNanos));
+    }
+
+    // Caches a username that is free
+    Entry putMissing(String username) {
+        return put(username, new Entry(null, false, System.nanoTime() + negativeTtlNanos));
+    }
+
+    void invalidate(String username) {
+        entries.remove(username);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private Entry put(String username, Entry entry) {
+        entries.put(username, entry);
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+        return entry;
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(e -> now - e.expiresAtNanos() > 0);
+
+        int target = maxEntries * 9 / 10;
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
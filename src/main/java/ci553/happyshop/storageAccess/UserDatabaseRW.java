@@ -3,53 +3,81 @@ package ci553.happyshop.storageAccess;
 import ci553.happyshop.auth.User;
 import ci553.happyshop.auth.UserRole;
 import ci553.happyshop.auth.PasswordHasher;
+import ci553.happyshop.metrics.Counter;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
+import ci553.happyshop.utility.BloomFilter;
 
 import java.sql.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * UserDatabaseRW reads and writes UserTable.
+ *
+ * Lookups go through a shared in-memory cache (UserCache) and a Bloom filter of every username,
+ * so repeated logins and "username taken?" checks during registration are answered from memory.
+ * Reads never take the global lock; each cache miss opens its own connection, so a burst of logins
+ * at shift change runs in parallel instead of queueing. Registration relies on the UNIQUE
+ * constraint on username rather than a check-then-insert, so two tills registering the same
+ * name at once cannot both succeed. lastLogin is written by LastLoginWriter in the background.
+ *
+ * Calls are timed in happyshop_user_db_seconds{method=...}, and happyshop_user_lookups_total{source=...}
+ * counts where each lookup was answered: cache, filter (the Bloom filter) or database.
+ */
 public class UserDatabaseRW {
 
     private static final String dbURL = DatabaseRWFactory.dbURL;
     private static final Lock lock = new ReentrantLock();
 
-    public User findUserByUsername(String username) throws SQLException {
-        String query = "SELECT * FROM UserTable WHERE username = ?";
+    private static final String DUPLICATE_KEY_STATE = "23505"; // unique constraint violated
 
-        lock.lock();
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    // Up to 10,000 users for 5 minutes; free usernames for 30 seconds
+    private static final UserCache userCache = new UserCache(10_000, 5 * 60_000, 30_000);
 
-            stmt.setString(1, username);
+    // Every username in UserTable, loaded on first use; null until then (or after a reset)
+    private static volatile BloomFilter usernameFilter;
+    // Held while the filter is loaded; a ReentrantLock so logins waiting for the load on virtual
+    // threads do not pin their carriers during its queries
+    private static final Lock usernameFilterLoadLock = new ReentrantLock();
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    String passwordHash = rs.getString("passwordHash");
-                    String email = rs.getString("email");
-                    String fullName = rs.getString("fullName");
-                    String roleStr = rs.getString("role");
-                    boolean isActive = rs.getBoolean("isActive");
+    // Names registered while no filter was published, eg. during a load that has already read
+    // UserTable; the loader adds them once its filter is published, see rememberUsername()
+    private static final Set<String> unfilteredUsernames = ConcurrentHashMap.newKeySet();
 
-                    if (!isActive) {
-                        System.out.println("Account inactive: " + username);
-                        return null;
-                    }
+    // Coalesces lastLogin updates and flushes them in batches off the login path
+    private static final LastLoginWriter lastLoginWriter = new LastLoginWriter(dbURL);
 
-                    UserRole role = UserRole.valueOf(roleStr.toUpperCase());
-                    return new User(username, passwordHash, email, fullName, role);
-                }
-            }
-        } finally {
-            lock.unlock();
+    private static final Timer authenticateTimer = timer("authenticateUser");
+    private static final Timer registerTimer = timer("registerUser");
+    private static final Timer usernameExistsTimer = timer("usernameExists");
+    private static final Counter cacheLookups = lookupCounter("cache");
+    private static final Counter filterLookups = lookupCounter("filter");
+    private static final Counter databaseLookups = lookupCounter("database");
+
+    public User findUserByUsername(String username) throws SQLException {
+        UserCache.Entry cached = lookup(username);
+        User user = cached.user();
+        if (user == null && cached.exists()) {
+            System.out.println("Account inactive: " + username);
         }
-        return null;
+        return user;
     }
 
     public User authenticateUser(String username, String password) throws SQLException {
+        return authenticateTimer.time(() -> authenticate(username, password));
+    }
+
+    private User authenticate(String username, String password) throws SQLException {
         User user = findUserByUsername(username);
 
         if (user != null && PasswordHasher.verifyPassword(password, user.getPasswordHash())) {
-            updateLastLogin(username);
+            if (PasswordHasher.needsRehash(user.getPasswordHash())) {
+                user = upgradePasswordHash(user, password);
+            }
+            lastLoginWriter.record(username); // written in the background, batched with other logins
             System.out.println("Login successful: " + username);
             return user;
         }
@@ -58,17 +86,47 @@ public class UserDatabaseRW {
         return null;
     }
 
-    public boolean registerUser(String username, String password, String email, String fullName, UserRole role) throws SQLException {
-        if (usernameExists(username)) {
-            System.out.println("Username exists: " + username);
-            return false;
+    /**
+     * Replaces an old-format or under-strength hash now that the password is known to be right.
+     * The UPDATE only applies if the stored hash is still the one just verified, so a password
+     * change made meanwhile from elsewhere is never overwritten. A failure leaves the old hash
+     * in place; the upgrade is simply tried again at the next login.
+     */
+    private User upgradePasswordHash(User user, String password) {
+        String newHash = PasswordHasher.hashPassword(password);
+        String sql = "UPDATE UserTable SET passwordHash = ? WHERE username = ? AND passwordHash = ?";
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, newHash);
+            stmt.setString(2, user.getUsername());
+            stmt.setString(3, user.getPasswordHash());
+            if (stmt.executeUpdate() == 0) {
+                userCache.invalidate(user.getUsername()); // changed elsewhere; reload next time
+                return user;
+            }
+        } catch (SQLException e) {
+            System.err.println("Password hash upgrade failed for " + user.getUsername() + ": " + e.getMessage());
+            return user;
         }
+        User upgraded = new User(user.getUsername(), newHash, user.getEmail(), user.getFullName(), user.getRole());
+        userCache.putExisting(user.getUsername(), upgraded);
+        System.out.println("Password hash upgraded: " + user.getUsername());
+        return upgraded;
+    }
 
+    /**
+     * Inserts a new account.
+     * @return true if registered, false if the username is already taken
+     */
+    public boolean registerUser(String username, String password, String email, String fullName, UserRole role) throws SQLException {
+        return registerTimer.time(() -> register(username, password, email, fullName, role));
+    }
+
+    private boolean register(String username, String password, String email, String fullName, UserRole role) throws SQLException {
         String passwordHash = PasswordHasher.hashPassword(password);
         String insertSQL = "INSERT INTO UserTable (username, passwordHash, email, fullName, role, isActive) VALUES (?, ?, ?, ?, ?, ?)";
 
-        lock.lock();
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
+        try (Connection conn = TimedJdbc.getConnection(dbURL)) {
             conn.setAutoCommit(false); // Start transaction
 
             try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
@@ -82,55 +140,144 @@ public class UserDatabaseRW {
                 int rows = stmt.executeUpdate();
                 conn.commit(); // COMMIT TRANSACTION
 
+                if (rows > 0) {
+                    rememberUsername(username);
+                    userCache.putExisting(username, new User(username, passwordHash, email, fullName, role));
+                }
                 System.out.println(rows > 0 ? "Registered: " + username : "Registration failed");
                 return rows > 0;
 
             } catch (SQLException e) {
                 conn.rollback();
+                if (DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                    // Taken between the caller's check and this insert, eg. by another till
+                    rememberUsername(username);
+                    userCache.invalidate(username);
+                    System.out.println("Username exists: " + username);
+                    return false;
+                }
                 throw e;
             }
-        } finally {
-            lock.unlock();
         }
     }
 
     public boolean usernameExists(String username) throws SQLException {
-        String query = "SELECT COUNT(*) FROM UserTable WHERE username = ?";
+        return usernameExistsTimer.time(() -> lookup(username).exists());
+    }
 
-        lock.lock();
-        try (Connection conn = DriverManager.getConnection(dbURL);
+    /**
+     * Answers from the cache, then the Bloom filter (a "no" from it is certain),
+     * and only then from the database, caching what it finds.
+     */
+    private UserCache.Entry lookup(String username) throws SQLException {
+        UserCache.Entry cached = userCache.get(username);
+        if (cached != null) {
+            cacheLookups.increment();
+            return cached;
+        }
+
+        BloomFilter filter = loadUsernameFilter();
+        if (filter != null && !filter.mightContain(username)) {
+            filterLookups.increment();
+            return new UserCache.Entry(null, false, 0);
+        }
+
+        databaseLookups.increment();
+
+        String query = "SELECT * FROM UserTable WHERE username = ?";
+        try (Connection conn = TimedJdbc.getConnection(dbURL);
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username);
+
             try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next() && rs.getInt(1) > 0;
+                if (rs.next()) {
+                    String passwordHash = rs.getString("passwordHash");
+                    String email = rs.getString("email");
+                    String fullName = rs.getString("fullName");
+                    String roleStr = rs.getString("role");
+                    boolean isActive = rs.getBoolean("isActive");
+
+                    User user = null;
+                    if (isActive) {
+                        UserRole role = UserRole.valueOf(roleStr.toUpperCase());
+                        user = new User(username, passwordHash, email, fullName, role);
+                    }
+                    return userCache.putExisting(username, user);
+                }
+                return userCache.putMissing(username);
             }
-        } finally {
-            lock.unlock();
         }
     }
 
-    private void updateLastLogin(String username) {
-        lock.lock();
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
-            conn.setAutoCommit(false);
-
-            String sql = "UPDATE UserTable SET lastLogin = CURRENT_TIMESTAMP WHERE username = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, username);
-                stmt.executeUpdate();
-                conn.commit();
+    // Loads every username into a new Bloom filter the first time it is needed
+    private static BloomFilter loadUsernameFilter() {
+        BloomFilter filter = usernameFilter;
+        if (filter != null) {
+            return filter;
+        }
+        usernameFilterLoadLock.lock();
+        try {
+            if (usernameFilter != null) {
+                return usernameFilter;
+            }
+            try (Connection conn = TimedJdbc.getConnection(dbURL);
+                 Statement stmt = conn.createStatement()) {
+                int count = 0;
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM UserTable")) {
+                    if (rs.next()) {
+                        count = rs.getInt(1);
+                    }
+                }
+                // Room for the table to grow 4x before the false-positive rate rises above 1%
+                filter = new BloomFilter(Math.max(10_000, count * 4), 0.01);
+                try (ResultSet rs = stmt.executeQuery("SELECT username FROM UserTable")) {
+                    while (rs.next()) {
+                        filter.add(rs.getString(1));
+                    }
+                }
+                usernameFilter = filter;
+                // Registrations committed after the SELECT above would otherwise be missing
+                for (String username : unfilteredUsernames) {
+                    filter.add(username);
+                }
+                System.out.println("Username filter loaded: " + count + " users");
+                return filter;
             } catch (SQLException e) {
-                conn.rollback();
-                System.err.println("Last login update failed: " + username);
+                // Fall back to querying the database; try again on the next lookup
+                System.err.println("Username filter not loaded: " + e.getMessage());
+                return null;
             }
-        } catch (SQLException e) {
-            System.err.println("Connection error updating last login: " + username);
         } finally {
-            lock.unlock();
+            usernameFilterLoadLock.unlock();
         }
     }
 
+    // Adds a newly registered name to the filter. The name is parked in unfilteredUsernames first
+    // and the filter read after, so either this sees the loader's published filter or the loader,
+    // which publishes before it reads the set, sees the name; a miss from the filter stays certain.
+    private static void rememberUsername(String username) {
+        unfilteredUsernames.add(username);
+        BloomFilter filter = usernameFilter;
+        if (filter != null) {
+            filter.add(username);
+            unfilteredUsernames.remove(username);
+        }
+    }
+
+    private static Timer timer(String method) {
+        return MetricsRegistry.timer("happyshop_user_db_seconds", "Time spent in UserDatabaseRW calls", "method", method);
+    }
+
+    private static Counter lookupCounter(String source) {
+        return MetricsRegistry.counter("happyshop_user_lookups_total", "User lookups by where they were answered", "source", source);
+    }
+
+    // Forgets all cached users, eg. after UserTable is recreated
+    public static void clearCache() {
+        userCache.clear();
+        usernameFilter = null;
+    }
 
     public static void initializeUserTable() throws SQLException {
         lock.lock();
@@ -147,7 +294,7 @@ public class UserDatabaseRW {
                 "lastLogin TIMESTAMP" +
                 ")";
 
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
+        try (Connection conn = TimedJdbc.getConnection(dbURL)) {
             conn.setAutoCommit(false);
 
             try (Statement stmt = conn.createStatement()) {
@@ -199,6 +346,7 @@ public class UserDatabaseRW {
                 }
 
                 conn.commit(); // COMMIT ALL CHANGES
+                clearCache();
                 System.out.println("  Default accounts created");
 
             } catch (SQLException e) {
@@ -5,17 +5,17 @@ import ci553.happyshop.storageAccess.DatabaseRWFactory;
 import java.sql.*;
 
 /**
- * Database Migration utility to add maxStock column to existing ProductTable.
+ * Database Migration utility to bring an existing database up to the current schema.
  *
- * This script safely adds the maxStock column if it doesn't exist,
- * and initializes it with current stock values.
+ * The migrations themselves (maxStock column, case-folded description, indexes) live in
+ * SchemaMigrator, which the launchers also run at start-up; this class runs them on their own
+ * and shows the result.
  *
  * Usage:
- * Run this class ONCE after upgrading to the new stock level system.
+ * Run this class after upgrading, or any time to check the schema.
  * It will:
- * 1. Check if maxStock column exists
- * 2. Add the column if missing
- * 3. Initialize maxStock = inStock for all existing products
+ * 1. Apply every migration the database does not have yet
+ * 2. Display sample products with their stock levels
  *
  * Design Pattern: Idempotent Operation
  * - Safe to run multiple times
@@ -27,18 +27,14 @@ public class DatabaseMigration {
 
     public static void main(String[] args) {
         System.out.println("════════════════════════════════════════");
-        System.out.println("  Database Migration: Add maxStock      ");
+        System.out.println("  Database Migration                    ");
         System.out.println("════════════════════════════════════════");
 
         try {
-            if (checkIfMaxStockExists()) {
-                System.out.println("✅ maxStock column already exists.");
+            int applied = SchemaMigrator.migrate();
+            if (applied == 0) {
                 System.out.println("   No migration needed.");
             } else {
-                System.out.println("⚠️  maxStock column not found.");
-                System.out.println("   Starting migration...");
-                addMaxStockColumn();
-                initializeMaxStock();
                 verifyMigration();
                 System.out.println("✅ Migration completed successfully!");
             }
@@ -50,51 +46,6 @@ public class DatabaseMigration {
         System.out.println("════════════════════════════════════════");
     }
 
-    /**
-     * Checks if maxStock column exists in ProductTable.
-     */
-    private static boolean checkIfMaxStockExists() throws SQLException {
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
-            DatabaseMetaData meta = conn.getMetaData();
-            ResultSet columns = meta.getColumns(null, null, "PRODUCTTABLE", "MAXSTOCK");
-
-            boolean exists = columns.next();
-            columns.close();
-            return exists;
-        }
-    }
-
-    /**
-     * Adds maxStock column to ProductTable.
-     */
-    private static void addMaxStockColumn() throws SQLException {
-        String alterTableSQL = "ALTER TABLE ProductTable ADD COLUMN maxStock INT DEFAULT 0";
-
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             Statement stmt = conn.createStatement()) {
-
-            System.out.println("📝 Adding maxStock column...");
-            stmt.executeUpdate(alterTableSQL);
-            System.out.println("✅ Column added successfully.");
-        }
-    }
-
-    /**
-     * Initializes maxStock values to match current inStock.
-     * This ensures existing products have proper max stock capacity.
-     */
-    private static void initializeMaxStock() throws SQLException {
-        String updateSQL = "UPDATE ProductTable SET maxStock = inStock WHERE maxStock = 0";
-
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             Statement stmt = conn.createStatement()) {
-
-            System.out.println("📝 Initializing maxStock values...");
-            int rowsUpdated = stmt.executeUpdate(updateSQL);
-            System.out.println("✅ Updated " + rowsUpdated + " product(s).");
-        }
-    }
-
     /**
      * Verifies migration by displaying sample products.
      */
@@ -0,0 +1,253 @@
+package ci553.happyshop.systemSetup;
+
+import ci553.happyshop.storageAccess.DatabaseRWFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SchemaMigrator brings an existing database up to the schema the storage classes expect.
+ *
+ * Each change is a numbered migration in MIGRATIONS. The versions applied so far are kept in the
+ * schema_version table with a SHA-256 checksum of the migration's SQL, so at start-up:
+ * - migrations already applied are skipped, which makes {@link #migrate()} safe to call every time
+ * - the rest are applied in version order, each in its own transaction (Derby DDL is transactional),
+ *   so a failed migration leaves the database at the previous version
+ * - a migration whose SQL was edited after it was applied stops start-up, because the databases
+ *   that already ran the old text would differ from new ones; add a new migration instead
+ *
+ * To change the schema, append a migration with the next version number; never edit or reorder
+ * applied ones. SetDatabase creates the base tables and then migrates, so a reset database and
+ * an upgraded one end up the same.
+ *
+ * The launchers (client Main, HeadlessLauncher, LoadGenerator) call {@link #migrate()} before
+ * the storage classes are used; DatabaseMigration runs it on its own.
+ */
+
+public final class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            // Databases created before the stock level indicator have no maxStock column
+            new Migration(1, "Add ProductTable.maxStock",
+                    "ALTER TABLE ProductTable ADD COLUMN maxStock INT DEFAULT 0; " +
+                    "UPDATE ProductTable SET maxStock = inStock WHERE maxStock = 0 OR maxStock IS NULL",
+                    conn -> {
+                        if (!columnExists(conn, "PRODUCTTABLE", "MAXSTOCK")) {
+                            execute(conn, "ALTER TABLE ProductTable ADD COLUMN maxStock INT DEFAULT 0");
+                        }
+                        execute(conn, "UPDATE ProductTable SET maxStock = inStock WHERE maxStock = 0 OR maxStock IS NULL");
+                    }),
+
+            // Lower-cased copy of the description kept by Derby, so name searches compare stored
+            // values instead of calling LOWER() on every row. The index is dropped again by 6
+            Migration.sql(2, "Case-folded ProductTable description with an index",
+                    "ALTER TABLE ProductTable ADD COLUMN descriptionLower VARCHAR(100) GENERATED ALWAYS AS (LOWER(description))",
+                    "CREATE INDEX ProductDescriptionLowerIdx ON ProductTable(descriptionLower)"),
+
+            // isImageInUse looks products up by image file name
+            Migration.sql(3, "Index on ProductTable.image",
+                    "CREATE INDEX ProductImageIdx ON ProductTable(image)"),
+
+            // Logins look users up by username. Its PRIMARY KEY or UNIQUE constraint already has an
+            // index in the tables SetDatabase and UserDatabaseRW create; older tables may not
+            new Migration(4, "Index on UserTable.username",
+                    "CREATE UNIQUE INDEX UserUsernameIdx ON UserTable(username)",
+                    conn -> {
+                        if (!indexExists(conn, "USERTABLE", "USERNAME")) {
+                            execute(conn, "CREATE UNIQUE INDEX UserUsernameIdx ON UserTable(username)");
+                        }
+                    }),
+
+            // productID was a CHAR(4) primary key, capping the catalogue at 9999 products. Products
+            // now get a BIGINT productKey, used inside the shop, and productID becomes the SKU code
+            // people type and see, up to 32 characters. Derby can neither change a primary key's type
+            // nor rename a table with CHECK constraints, so the rows are parked in a plain table while
+            // ProductTable is created again. Existing products get their keys in productID order
+            Migration.sql(5, "ProductTable keyed by BIGINT productKey, productID widened to a VARCHAR SKU",
+                    "CREATE TABLE ProductTable_v4(productID VARCHAR(32), description VARCHAR(100), unitPrice DOUBLE, " +
+                            "image VARCHAR(100), inStock INT, maxStock INT)",
+                    "INSERT INTO ProductTable_v4 SELECT RTRIM(productID), description, unitPrice, image, inStock, maxStock " +
+                            "FROM ProductTable",
+                    "DROP TABLE ProductTable",
+                    "CREATE TABLE ProductTable(" +
+                            "productKey BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY," +
+                            "productID VARCHAR(32) NOT NULL," +
+                            "description VARCHAR(100)," +
+                            "descriptionLower VARCHAR(100) GENERATED ALWAYS AS (LOWER(description))," +
+                            "unitPrice DOUBLE," +
+                            "image VARCHAR(100)," +
+                            "inStock INT," +
+                            "maxStock INT," +
+                            "CONSTRAINT ProductSkuUnique UNIQUE (productID)," +
+                            "CHECK (inStock >= 0)," +
+                            "CHECK (maxStock >= 0)" +
+                            ")",
+                    // Derby assigns identity values in the ORDER BY order of an INSERT ... SELECT
+                    "INSERT INTO ProductTable (productID, description, unitPrice, image, inStock, maxStock) " +
+                            "SELECT productID, description, unitPrice, image, inStock, maxStock FROM ProductTable_v4 " +
+                            "ORDER BY productID",
+                    "DROP TABLE ProductTable_v4",
+                    // Dropped with the old table
+                    "CREATE INDEX ProductDescriptionLowerIdx ON ProductTable(descriptionLower)",
+                    "CREATE INDEX ProductImageIdx ON ProductTable(image)"),
+
+            // Name searches match anywhere in the description (LIKE '%word%'), which an index on
+            // descriptionLower cannot serve, so it only slowed down every product write. The
+            // generated column stays: searches still read it instead of calling LOWER()
+            Migration.sql(6, "Drop the unused index on ProductTable.descriptionLower",
+                    "DROP INDEX ProductDescriptionLowerIdx")
+    );
+
+    private SchemaMigrator() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    /**
+     * Applies every migration the database does not have yet.
+     * Does nothing if the shop tables do not exist yet (SetDatabase has not been run).
+     * @return how many migrations were applied
+     * @throws SQLException if a migration fails, or an applied migration has been changed since
+     */
+    public static synchronized int migrate() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(DatabaseRWFactory.dbURL)) {
+            if (!tableExists(conn, "PRODUCTTABLE") || !tableExists(conn, "USERTABLE")) {
+                System.out.println("⚠️ No shop tables yet, schema migration skipped (run SetDatabase)");
+                return 0;
+            }
+            if (!tableExists(conn, "SCHEMA_VERSION")) {
+                execute(conn, "CREATE TABLE schema_version(" +
+                        "version INT PRIMARY KEY," +
+                        "description VARCHAR(200) NOT NULL," +
+                        "checksum CHAR(64) NOT NULL," +
+                        "appliedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                        ")");
+            }
+
+            Map<Integer, String> applied = appliedChecksums(conn);
+            int count = 0;
+            for (Migration migration : MIGRATIONS) {
+                String checksum = migration.checksum();
+                String appliedChecksum = applied.get(migration.version());
+                if (appliedChecksum != null) {
+                    if (!appliedChecksum.equals(checksum)) {
+                        throw new SQLException("Schema migration " + migration.version() + " (" + migration.description()
+                                + ") has changed since it was applied; add a new migration instead of editing it");
+                    }
+                    continue;
+                }
+                apply(conn, migration, checksum);
+                count++;
+            }
+            System.out.println(count == 0
+                    ? "✅ Database schema up to date (version " + MIGRATIONS.getLast().version() + ")"
+                    : "✅ Database schema migrated to version " + MIGRATIONS.getLast().version() + " (" + count + " applied)");
+            return count;
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration, String checksum) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            System.out.println("📝 Schema migration " + migration.version() + ": " + migration.description());
+            migration.step().apply(conn);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                insert.setInt(1, migration.version());
+                insert.setString(2, migration.description());
+                insert.setString(3, checksum);
+                insert.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Schema migration " + migration.version() + " failed: " + e.getMessage(), e.getSQLState(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2).trim());
+            }
+        }
+        return applied;
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    // Derby keeps unquoted names in upper case, so table and column names are passed that way
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    // True if some index (including those behind PRIMARY KEY and UNIQUE constraints) starts with the column
+    private static boolean indexExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (rs.getShort("ORDINAL_POSITION") == 1 && column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * One schema change.
+     * @param definition the SQL the migration stands for; its checksum is stored when it is applied
+     */
+    private record Migration(int version, String description, String definition, Step step) {
+
+        // A migration that runs its statements in order
+        static Migration sql(int version, String description, String... statements) {
+            return new Migration(version, description, String.join("; ", statements), conn -> {
+                for (String statement : statements) {
+                    execute(conn, statement);
+                }
+            });
+        }
+
+        String checksum() {
+            try {
+                MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(sha256.digest(definition.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e); // every JDK has it
+            }
+        }
+    }
+}
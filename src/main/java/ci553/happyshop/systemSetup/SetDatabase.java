@@ -2,6 +2,7 @@ package ci553.happyshop.systemSetup;
 
 import ci553.happyshop.auth.PasswordHasher;
 import ci553.happyshop.storageAccess.DatabaseRWFactory;
+import ci553.happyshop.storageAccess.ThumbnailStore;
 import ci553.happyshop.utility.StorageLocation;
 
 import java.io.IOException;
@@ -17,16 +18,18 @@ public class SetDatabase {
     private static Path imageWorkingFolderPath = StorageLocation.imageFolderPath;
     private static Path imageBackupFolderPath = StorageLocation.imageResetFolderPath;
 
-    private String[] tables = {"ProductTable", "UserTable"};
+    private String[] tables = {"ProductTable", "UserTable", "schema_version"};
     private static final Lock lock = new ReentrantLock();
 
     public static void main(String[] args) throws SQLException, IOException {
         SetDatabase setDB = new SetDatabase();
         setDB.clearTables();
         setDB.initializeTable();
+        SchemaMigrator.migrate(); // bring the new tables to the same schema as an upgraded database
         setDB.queryTableAfterInitilization();
         deleteFilesInFolder(imageWorkingFolderPath);
         copyFolderContents(imageBackupFolderPath, imageWorkingFolderPath);
+        ThumbnailStore.generateMissing();
     }
 
     private void clearTables() throws SQLException {
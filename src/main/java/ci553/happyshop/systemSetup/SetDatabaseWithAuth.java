@@ -97,6 +97,8 @@ public class SetDatabaseWithAuth {
         UserDatabaseRW.initializeUserTable();
         System.out.println("  UserTable created");
         System.out.println("  User accounts added");
+
+        SchemaMigrator.migrate();
     }
 
     private static void shutdownDerby() {
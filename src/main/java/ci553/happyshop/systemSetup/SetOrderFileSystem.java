@@ -40,6 +40,12 @@ public class SetOrderFileSystem {
 
     public static void main(String[] args) throws IOException {
         deleteFilesInFolder(foldersPaths[0]);
+        ensureFolderStructure();
+    }
+
+    // Creates any missing order folders and the orderCounter file WITHOUT deleting existing orders.
+    // Used at start-up by HeadlessLauncher so a fresh server box can run the order engine straight away.
+    public static void ensureFolderStructure() throws IOException {
         createFolders(foldersPaths);
         createOrderCounterFile(orderCounterPath);
     }
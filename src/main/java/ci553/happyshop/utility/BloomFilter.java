@@ -0,0 +1,97 @@
+package ci553.happyshop.utility;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of Strings: a compact set that answers
+ * "definitely not present" or "possibly present".
+ *
+ * <p>It never gives a false "not present" for a value that was added, so a negative answer can be
+ * trusted without asking the database. A positive answer is wrong with probability about the
+ * false-positive rate chosen at construction, and must be confirmed by a real lookup.
+ * Values cannot be removed.</p>
+ *
+ * <p>Bits live in an AtomicLongArray and are set with compare-and-set, so many threads can add and
+ * query at once without locking.</p>
+ *
+ * Example usage:
+ * <pre>
+ *     BloomFilter usernames = new BloomFilter(100_000, 0.01);
+ *     usernames.add("admin");
+ *     usernames.mightContain("bob");   // false → "bob" was never added
+ * </pre>
+ */
+
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions how many values the filter is sized for
+     * @param falsePositiveRate target rate of wrong "possibly present" answers at that size, eg. 0.01
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (bitCount / 64));
+    }
+
+    public void add(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(value);
+        for (int i = 0; i < hashCount; i++) {
+            setBit(Math.floorMod(h1 + i * h2, bitCount));
+        }
+    }
+
+    /**
+     * @return false if the value was definitely never added, true if it possibly was
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(value);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit; // shift uses the low 6 bits
+        long current;
+        do {
+            current = bits.get(index);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(index, current, current | mask));
+    }
+
+    // 64-bit FNV-1a over the chars
+    private static long hash1(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // String.hashCode spread with the MurmurHash3 finaliser; forced odd so the probe sequence varies
+    private static long hash2(String value) {
+        long h = value.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return h | 1;
+    }
+}
@@ -0,0 +1,220 @@
+package ci553.happyshop.utility;
+
+import ci553.happyshop.metrics.Counter;
+import ci553.happyshop.metrics.MetricsRegistry;
+import ci553.happyshop.metrics.Timer;
+import ci553.happyshop.storageAccess.ThumbnailStore;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ImageCache keeps decoded product thumbnails in memory, so product lists do not read and
+ * rescale the full image file every time a cell is rendered.
+ *
+ * Where ThumbnailStore has pre-generated the size, that small PNG is loaded; otherwise the
+ * original file is scaled as it loads. Thumbnails are keyed by image name and size and held in an LRU map bounded by memory
+ * (width × height × 4 bytes each, default 32MB, -Dhappyshop.imageCache.maxBytes). An image is
+ * loaded with JavaFX background loading: the view shows the placeholder straight away and swaps
+ * in the thumbnail when it has been decoded. Every view asking for the same thumbnail meanwhile
+ * shares the one Image, so the file is read and decoded only once.
+ *
+ * Views use it like this:
+ * <pre>
+ *     ImageView ivPro = new ImageView();
+ *     ImageCache.loadThumbnail(ivPro, product.getProductImageName(), 60, "imageHolder.jpg");
+ * </pre>
+ *
+ * ImageFileManager calls {@link #invalidate(String)} when an image file is replaced or deleted.
+ *
+ * Metrics: happyshop_image_cache_total{result=hit|miss}, happyshop_image_cache_bytes and the
+ * background load time from request to decoded image, happyshop_image_seconds{op="load"}.
+ */
+
+public final class ImageCache {
+
+    private static final long MAX_BYTES = Long.getLong("happyshop.imageCache.maxBytes", 32L * 1024 * 1024);
+
+    // Access-ordered, so iteration starts at the least recently used thumbnail
+    private static final LinkedHashMap<String, Image> thumbnails = new LinkedHashMap<>(256, 0.75f, true);
+    private static long usedBytes;
+
+    private static final Counter hits = MetricsRegistry.counter("happyshop_image_cache_total",
+            "Thumbnail requests by whether the image was already cached", "result", "hit");
+    private static final Counter misses = MetricsRegistry.counter("happyshop_image_cache_total",
+            "Thumbnail requests by whether the image was already cached", "result", "miss");
+    private static final Timer loadTimer = MetricsRegistry.timer("happyshop_image_seconds",
+            "Time spent loading and scaling product images", "op", "load");
+
+    static {
+        MetricsRegistry.gauge("happyshop_image_cache_bytes", "Decoded thumbnail bytes held by ImageCache", () -> {
+            synchronized (thumbnails) {
+                return usedBytes;
+            }
+        });
+    }
+
+    private ImageCache() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    /**
+     * Shows the thumbnail of a product image in the view, or the placeholder until it is ready.
+     *
+     * @param view the view to fill; must be called on the JavaFX thread
+     * @param imageName file name in the images folder, eg. "0001.jpg"
+     * @param size the thumbnail fits within size × size, keeping its aspect ratio
+     * @param placeholder classpath resource shown while loading or if the image cannot be read
+     */
+    public static void loadThumbnail(ImageView view, String imageName, int size, String placeholder) {
+        Image placeholderImage = getResourceThumbnail(placeholder, size);
+        if (imageName == null || imageName.isEmpty()) {
+            view.setImage(placeholderImage);
+            return;
+        }
+
+        Image thumbnail = getThumbnail(imageName, size);
+        if (thumbnail.getProgress() >= 1 && !thumbnail.isError()) {
+            view.setImage(thumbnail);
+            return;
+        }
+        if (thumbnail.isError()) {
+            view.setImage(placeholderImage);
+            return;
+        }
+
+        // Still decoding: show the placeholder, then swap if the view still wants this image
+        view.setImage(placeholderImage);
+        String key = keyFor(imageName, size);
+        view.getProperties().put(ImageCache.class, key);
+        thumbnail.progressProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Number> obs, Number oldValue, Number newValue) {
+                if (newValue.doubleValue() < 1) {
+                    return;
+                }
+                obs.removeListener(this); // so the cached Image does not keep old views alive
+                if (key.equals(view.getProperties().get(ImageCache.class))) {
+                    view.setImage(thumbnail.isError() ? placeholderImage : thumbnail);
+                }
+            }
+        });
+    }
+
+    /**
+     * The cached thumbnail, starting a background load if it is not cached yet.
+     * The returned Image may still be loading (see Image.getProgress()).
+     */
+    public static Image getThumbnail(String imageName, int size) {
+        String key = keyFor(imageName, size);
+        synchronized (thumbnails) {
+            Image image = thumbnails.get(key);
+            if (image != null && !image.isError()) {
+                hits.increment();
+                return image;
+            }
+        }
+        misses.increment();
+        // The pre-generated thumbnail if there is one, otherwise the original scaled on load
+        Path imagePath = ThumbnailStore.thumbnailPath(imageName, size);
+        if (!Files.exists(imagePath)) {
+            imagePath = Paths.get(StorageLocation.imageFolder, imageName);
+        }
+        imagePath = imagePath.toAbsolutePath();
+        long loadStart = System.nanoTime();
+        Image image = new Image(imagePath.toUri().toString(), size, size, true, true, true);
+        image.progressProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Number> obs, Number oldValue, Number newValue) {
+                if (newValue.doubleValue() >= 1) {
+                    obs.removeListener(this);
+                    loadTimer.recordSince(loadStart);
+                }
+            }
+        });
+        image.errorProperty().addListener((obs, oldValue, failed) -> {
+            if (failed) {
+                System.out.println("Image not loaded: " + imageName);
+                remove(key, image);
+            }
+        });
+        return put(key, image);
+    }
+
+    // Forgets every cached size of the image, eg. after its file was replaced
+    public static void invalidate(String imageName) {
+        String prefix = imageName + "@";
+        synchronized (thumbnails) {
+            Iterator<Map.Entry<String, Image>> it = thumbnails.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Image> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    usedBytes -= weight(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    // Placeholders come from the classpath and are small, so they load synchronously
+    private static Image getResourceThumbnail(String resource, int size) {
+        String key = keyFor("resource:" + resource, size);
+        synchronized (thumbnails) {
+            Image image = thumbnails.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+        return put(key, new Image(resource, size, size, true, true));
+    }
+
+    private static Image put(String key, Image image) {
+        synchronized (thumbnails) {
+            Image existing = thumbnails.get(key);
+            if (existing != null && !existing.isError()) {
+                return existing; // another caller got there first
+            }
+            Image previous = thumbnails.put(key, image);
+            if (previous != null) {
+                usedBytes -= weight(previous);
+            }
+            usedBytes += weight(image);
+            evict();
+            return image;
+        }
+    }
+
+    private static void remove(String key, Image image) {
+        synchronized (thumbnails) {
+            if (thumbnails.remove(key, image)) {
+                usedBytes -= weight(image);
+            }
+        }
+    }
+
+    // Drops least recently used thumbnails until the cache fits, always keeping the newest one
+    private static void evict() {
+        Iterator<Image> it = thumbnails.values().iterator();
+        while (usedBytes > MAX_BYTES && thumbnails.size() > 1 && it.hasNext()) {
+            usedBytes -= weight(it.next());
+            it.remove();
+        }
+    }
+
+    // Bytes of the decoded pixels; the requested box is used until the real size is known
+    private static long weight(Image image) {
+        return (long) Math.max(1, image.getRequestedWidth()) * (long) Math.max(1, image.getRequestedHeight()) * 4;
+    }
+
+    private static String keyFor(String imageName, int size) {
+        return imageName + "@" + size;
+    }
+}
@@ -0,0 +1,155 @@
+package ci553.happyshop.utility;
+
+import java.util.Arrays;
+
+/**
+ * A set of ints stored as plain ints, so adding or checking a value creates no Integer,
+ * eg. the order IDs pickers have claimed.
+ *
+ * <p>Laid out like {@link IntObjectHashMap}: one array, linear probing, values shifted back on
+ * removal. 0 marks an empty slot in the table, so whether 0 is in the set is kept in a field.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+
+public class IntHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] values;
+    private int mask;
+    private int size;        // values in the table, not counting 0
+
+    private boolean hasZero;
+
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    // expectedSize values fit without the table growing
+    public IntHashSet(int expectedSize) {
+        allocate(IntObjectHashMap.tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(int value) {
+        return value == 0 ? hasZero : values[find(value)] != 0;
+    }
+
+    /**
+     * @return true if value was added, false if it was already in the set
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int slot = find(value);
+        if (values[slot] != 0) {
+            return false;
+        }
+        values[slot] = value;
+        if (++size > maxSize()) {
+            rehash(values.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if value was removed, false if it was not in the set
+     */
+    public boolean remove(int value) {
+        if (value == 0) {
+            boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+        int slot = find(value);
+        if (values[slot] == 0) {
+            return false;
+        }
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    // Every value in ascending order
+    public int[] toSortedArray() {
+        int[] sorted = new int[size()];
+        int n = 0;
+        if (hasZero) {
+            sorted[n++] = 0;
+        }
+        for (int value : values) {
+            if (value != 0) {
+                sorted[n++] = value;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // The slot holding value, or the empty slot where it would go; value is never 0
+    private int find(int value) {
+        int slot = home(value);
+        while (values[slot] != 0 && values[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // See IntObjectHashMap.shiftBack
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == 0) {
+                break;
+            }
+            if (((next - home(values[next])) & mask) >= ((next - gap) & mask)) {
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int value : oldValues) {
+            if (value != 0) {
+                values[find(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int maxSize() {
+        return values.length / 4 * 3;
+    }
+}
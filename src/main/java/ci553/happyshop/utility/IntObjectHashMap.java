@@ -0,0 +1,189 @@
+package ci553.happyshop.utility;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to objects that stores the keys as plain ints, so no Integer is created
+ * for an entry and a lookup does not follow a pointer to compare keys.
+ *
+ * <p>Entries live in two parallel arrays searched by linear probing (open addressing). The table
+ * doubles when it is three-quarters full; removing an entry shifts the entries after it back
+ * instead of leaving a marker, so lookups stay short however many entries come and go.
+ * Values may not be null: a null value marks an empty slot.</p>
+ *
+ * <p>Not thread-safe; OrderHub only uses it while holding its own lock.</p>
+ *
+ * Example usage:
+ * <pre>
+ *     IntObjectHashMap&lt;OrderState&gt; orderMap = new IntObjectHashMap&lt;&gt;();
+ *     orderMap.put(17, OrderState.Ordered);
+ *     orderMap.forEach((orderId, state) -&gt; System.out.println(orderId + " " + state));
+ * </pre>
+ */
+
+public class IntObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    public IntObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    // expectedSize entries fit without the table growing
+    public IntObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return values[find(key)] != null;
+    }
+
+    // The value for key, or null if it has none
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[find(key)];
+    }
+
+    /**
+     * @return the previous value for key, or null if it had none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntObjectHashMap does not hold null values");
+        }
+        int slot = find(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size > maxSize()) {
+            rehash(keys.length * 2);
+        }
+        return previous;
+    }
+
+    /**
+     * @return the value that was removed, or null if key had none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        V previous = (V) values[slot];
+        if (previous != null) {
+            shiftBack(slot);
+            size--;
+        }
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Visits every entry, in no particular order; the map must not be changed meanwhile
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                action.accept(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    // Every key in ascending order
+    public int[] sortedKeys() {
+        int[] sorted = new int[size];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                sorted[n++] = keys[slot];
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // The slot holding key, or the empty slot where it would go
+    private int find(int key) {
+        int slot = home(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads consecutive order IDs across the table
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Empties slot, moving back later entries of the same run that would otherwise no longer be found
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == null) {
+                break;
+            }
+            // The entry may fill the gap if the gap lies between its home slot and where it is now
+            if (((next - home(keys[next])) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != null) {
+                int target = find(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int maxSize() {
+        return keys.length / 4 * 3;
+    }
+
+    // The smallest power of two table that holds expectedSize entries at most three-quarters full
+    static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(Math.max(0, expectedSize) / 0.75) + 1);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Too many entries: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
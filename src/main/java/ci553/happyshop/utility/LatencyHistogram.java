@@ -0,0 +1,116 @@
+package ci553.happyshop.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory, lock-free histogram of latencies in the style of HdrHistogram.
+ *
+ * <p>Values (nanoseconds) are counted in log-linear buckets: values below 64 get one bucket each,
+ * and every power-of-two range above that is split into 32 equal sub-buckets.
+ * This keeps the relative error of any reported percentile under about 3%, whether the latency
+ * is a few microseconds or several hours, in about 15KB per histogram.</p>
+ *
+ * <p>Recording is a couple of atomic increments, so many threads can record at once,
+ * and readers ({@link #percentile(double)}, {@link #getMax()}) never block writers.
+ * A read taken while writes are happening may miss the very latest values, which is fine for
+ * monitoring.</p>
+ *
+ * Example usage:
+ * <pre>
+ *     LatencyHistogram h = new LatencyHistogram();
+ *     h.recordNanos(System.nanoTime() - start);
+ *     long p99 = h.percentile(99.0);
+ * </pre>
+ */
+
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;   // values 0..63 are counted exactly
+    private static final int SUB_BUCKETS = 32;      // sub-buckets per power of two above that
+    private static final int SUB_BUCKET_BITS = 5;   // log2(SUB_BUCKETS)
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + 57 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one latency. Negative values (clock misuse) are recorded as 0.
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() { return totalCount.get(); }
+    public long getMax() { return maxNanos.get(); }
+    public long getTotalNanos() { return totalNanos.get(); }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Returns the value at the given percentile, eg. 99.0 for p99.
+     * The result is the upper bound of the bucket holding that rank, capped at the recorded max.
+     * @param percentile 0.0 to 100.0
+     * @return the latency in nanoseconds, or 0 when nothing has been recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // Clears all recorded values
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value); // >= 6
+        int shift = msb - SUB_BUCKET_BITS;                // >= 1
+        int subBucket = (int) (value >>> shift);          // SUB_BUCKETS .. 2*SUB_BUCKETS-1
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (subBucket - SUB_BUCKETS);
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper; // top bucket overflows a long
+    }
+}
@@ -0,0 +1,202 @@
+package ci553.happyshop.utility;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys to int values stored as plain longs and ints, so neither a Long nor an
+ * Integer is created for an entry, eg. the quantity reserved per productKey.
+ *
+ * <p>Laid out like {@link IntObjectHashMap}: parallel arrays, linear probing, entries shifted
+ * back on removal. Key 0 marks an empty slot in the table, so an entry for key 0 is kept in
+ * separate fields.</p>
+ *
+ * <p>Not thread-safe; OrderHub only uses it while holding its own lock.</p>
+ *
+ * Example usage:
+ * <pre>
+ *     LongIntHashMap reserved = new LongIntHashMap();
+ *     reserved.addTo(productKey, 3);          // 3
+ *     reserved.addTo(productKey, -3);         // 0, and the entry is gone
+ *     reserved.getOrDefault(productKey, 0);   // 0
+ * </pre>
+ */
+
+public class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;        // entries in the table, not counting key 0
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    // expectedSize entries fit without the table growing
+    public LongIntHashMap(int expectedSize) {
+        allocate(IntObjectHashMap.tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : keys[find(key)] != 0;
+    }
+
+    public int getOrDefault(long key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return keys[slot] != 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * @return the previous value for key, or 0 if it had none
+     */
+    public int put(long key, int value) {
+        if (key == 0) {
+            int previous = zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int slot = find(key);
+        if (keys[slot] != 0) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > maxSize()) {
+            rehash(keys.length * 2);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds delta to the value for key (0 if it has none). A result of 0 or less removes the entry,
+     * so keys whose count drops to nothing do not pile up.
+     * @return the new value, never below 0
+     */
+    public int addTo(long key, int delta) {
+        int newValue = getOrDefault(key, 0) + delta;
+        if (newValue <= 0) {
+            remove(key);
+            return 0;
+        }
+        put(key, newValue);
+        return newValue;
+    }
+
+    /**
+     * @return the value that was removed, or 0 if key had none
+     */
+    public int remove(long key) {
+        if (key == 0) {
+            int previous = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return previous;
+        }
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            return 0;
+        }
+        int previous = values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    // Visits every entry, in no particular order; the map must not be changed meanwhile
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // The slot holding key, or the empty slot where it would go; key is never 0
+    private int find(long key) {
+        int slot = home(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // See IntObjectHashMap.shiftBack
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == 0) {
+                break;
+            }
+            if (((next - home(keys[next])) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                int target = find(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int maxSize() {
+        return keys.length / 4 * 3;
+    }
+}
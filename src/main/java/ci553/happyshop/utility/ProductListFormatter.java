@@ -1,11 +1,11 @@
 package ci553.happyshop.utility;
 
-import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.LineItem;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
- * This class builds a formatted, receipt-like summary from a list of products.
+ * This class builds a formatted, receipt-like summary from a list of trolley or order lines.
  * It is used by:
  * 1. CustomerModel – to display the trolley and receipt
  * 2. The Order class – to generate a summary for writing to an order's file
@@ -15,21 +15,21 @@ public class ProductListFormatter {
     /**
      * Builds a formatted string showing each product's ID, description,
      * quantity ordered, and total price. Also includes a total price at the end.
-     * @param proList a List of products
+     * @param lineItems the lines, each a product and its quantity
      * @return A nicely formatted string representation of the product list with totals
      */
-    public static String buildString(ArrayList<Product> proList) {
+    public static String buildString(List<LineItem> lineItems) {
         StringBuilder sb = new StringBuilder();
         double totalPrice=0;
-        for (Product pr : proList) {
-            int orderedQuantity = pr.getOrderedQuantity();
+        for (LineItem pr : lineItems) {
+            int orderedQuantity = pr.getQuantity();
             //%-18.18s, format the argument as a String,
             // -18 → Left-align the string in 18-character wide space.
             //.18 → Truncate the string to at most 18 characters
             String aProduct=String.format(" %-7s %-18.18s (%2d) £%7.2f\n",
                     pr.getProductId(),
                     pr.getProductDescription(),
-                    pr.getOrderedQuantity(),
+                    orderedQuantity,
                     pr.getUnitPrice() * orderedQuantity);
 
             sb.append(aProduct);
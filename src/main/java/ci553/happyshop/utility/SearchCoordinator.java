@@ -0,0 +1,112 @@
+package ci553.happyshop.utility;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SearchCoordinator sits between a search box and the database, one per search box.
+ *
+ * - Debounce: {@link #search} waits until typing has paused (default 250ms,
+ *   -Dhappyshop.search.debounceMillis) before querying, so a burst of keystrokes costs one query.
+ * - Cancel: a newer search cancels a query that has not started yet; one already running is
+ *   left to finish but its result is thrown away.
+ * - Order: every search gets a sequence number, and only the result of the latest one reaches
+ *   the UI, so a slow early query can never overwrite the answer to a later one.
+ *
+ * Lookups run through StorageExecutor, off the JavaFX thread; results arrive on the JavaFX thread.
+ *
+ * Example usage:
+ * <pre>
+ *     searchField.textProperty().addListener((obs, old, text) ->
+ *             searches.search(() -> databaseRW.searchProduct(text), this::showResults, this::showError));
+ * </pre>
+ *
+ * @param <T> the result type, eg. ArrayList&lt;Product&gt;
+ */
+
+public class SearchCoordinator<T> {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = Long.getLong("happyshop.search.debounceMillis", 250);
+
+    // One timer thread for every search box; it only hands lookups to StorageExecutor
+    private static final ScheduledExecutorService debounceTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "happyshop-search-debounce");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long debounceMillis;
+    private long latestSeq;                 // guarded by this
+    private ScheduledFuture<?> pending;     // guarded by this
+
+    public SearchCoordinator() {
+        this(DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public SearchCoordinator(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Runs the lookup once input has paused for the debounce time, superseding any earlier search.
+     *
+     * @param lookup the blocking query
+     * @param onResult receives the result on the JavaFX thread, only if no newer search was made
+     * @param onError receives a failure on the JavaFX thread, only if no newer search was made
+     */
+    public void search(StorageExecutor.StorageTask<T> lookup, Consumer<T> onResult, Consumer<Throwable> onError) {
+        schedule(lookup, onResult, onError, debounceMillis);
+    }
+
+    // As search(), without waiting: for a Search button or the Enter key
+    public void searchNow(StorageExecutor.StorageTask<T> lookup, Consumer<T> onResult, Consumer<Throwable> onError) {
+        schedule(lookup, onResult, onError, 0);
+    }
+
+    // Drops any pending or running search, eg. when the box is cleared and nothing should be shown
+    public synchronized void cancel() {
+        latestSeq++;
+        cancelPending();
+    }
+
+    private synchronized void schedule(StorageExecutor.StorageTask<T> lookup, Consumer<T> onResult,
+                                       Consumer<Throwable> onError, long delayMillis) {
+        long seq = ++latestSeq;
+        cancelPending();
+        Runnable run = () -> {
+            if (!isLatest(seq)) {
+                return; // superseded while waiting
+            }
+            StorageExecutor.submit(lookup,
+                    result -> {
+                        if (isLatest(seq)) {
+                            onResult.accept(result);
+                        }
+                    },
+                    error -> {
+                        if (isLatest(seq)) {
+                            onError.accept(error);
+                        }
+                    });
+        };
+        if (delayMillis <= 0) {
+            run.run();
+        } else {
+            pending = debounceTimer.schedule(run, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized boolean isLatest(long seq) {
+        return seq == latestSeq;
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ci553.happyshop.utility;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * StorageExecutor runs blocking storage work (database queries, order and image files) off the
+ * JavaFX Application Thread, and hands the result back to the UI.
+ *
+ * Every task gets its own virtual thread, so thousands of tasks blocked on JDBC or file I/O cost
+ * very little and never queue behind each other. The UI thread only submits work and, later,
+ * receives the result through {@link Platform#runLater(Runnable)}, so windows stay responsive while
+ * the work runs.
+ *
+ * Models use it like this:
+ * <pre>
+ *     StorageExecutor.submit(
+ *             () -> databaseRW.searchProduct(keyword),   // runs on a virtual thread
+ *             products -> showProducts(products),        // runs on the JavaFX thread
+ *             error -> showAlert(error.getMessage()));   // runs on the JavaFX thread
+ * </pre>
+ *
+ * The result callbacks need a running JavaFX toolkit; headless code (eg. the API server)
+ * uses its own threads and does not go through this class.
+ */
+
+public final class StorageExecutor {
+
+    private static final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("happyshop-storage-", 0).factory());
+
+    private StorageExecutor() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    /**
+     * A piece of blocking storage work that returns a result.
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface StorageTask<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Runs the task on a virtual thread, then passes its result or failure to the JavaFX thread.
+     *
+     * @param task the blocking work
+     * @param onSuccess receives the result on the JavaFX thread
+     * @param onError receives the exception on the JavaFX thread
+     * @return a future completed with the task's result, eg. for chaining or waiting in tools
+     */
+    public static <T> CompletableFuture<T> submit(StorageTask<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                T result = task.call();
+                future.complete(result);
+                runOnUiThread(() -> onSuccess.accept(result));
+            } catch (Throwable e) {
+                System.err.println("Storage task failed: " + e.getMessage());
+                future.completeExceptionally(e);
+                runOnUiThread(() -> onError.accept(e));
+            }
+        });
+        return future;
+    }
+
+    // Runs the action on the JavaFX thread, straight away if already on it
+    public static void runOnUiThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
+    }
+}
@@ -15,6 +15,8 @@ import java.nio.file.Paths;
  *    - imageResetFolder / imageResetFolderPath:
  *         A backup folder containing original product images.
  *         Used to restore image content when resetting the database.
+ *    - thumbnailFolder / thumbnailFolderPath:
+ *         Pre-generated thumbnails of the working images, one subfolder per size (eg. images/thumbs/60/).
  *
  * 2. Order Management:
  *    - ordersFolder / ordersPath:
@@ -31,6 +33,11 @@ import java.nio.file.Paths;
  *         A text file (orders/orderCounter.txt) used to track and increment the unique order ID
  *         when a new order is created.
  *
+ * 4. Storage Root:
+ *    - storageRoot:
+ *         The folder all of the above live in; the working directory unless
+ *         -Dhappyshop.storage.root=... is set (eg. a temporary folder for benchmarks).
+ *
  * These static paths ensure consistent folder usage throughout the application and simplify
  * file-related operations such as reset, loading, and persistence.
  *
@@ -46,16 +53,23 @@ public class StorageLocation {
      * such as: String relativeImageUrl = StorageLocation.imageFolder + imageName;
      */
 
+    // Base of every folder below, with a trailing '/' unless it is the working directory ("")
+    public static final String storageRoot = withTrailingSlash(System.getProperty("happyshop.storage.root", ""));
+
     // working Image folder
-    public static final String imageFolder = "images/";
+    public static final String imageFolder = storageRoot + "images/";
     public static final Path imageFolderPath = Paths.get(imageFolder);
 
+    // Thumbnails generated by ThumbnailStore, ie images/thumbs/<size>/<image>.png
+    public static final String thumbnailFolder = imageFolder + "thumbs/";
+    public static final Path thumbnailFolderPath = Paths.get(thumbnailFolder);
+
     // Backup image folder — used to restore images when resetting the database
-    public static final String imageResetFolder = "images_resetDB";
+    public static final String imageResetFolder = storageRoot + "images_resetDB";
     public static final Path imageResetFolderPath = Paths.get(imageResetFolder);
 
     // Orders folders and their Path
-    public static final String ordersFolder = "orders";
+    public static final String ordersFolder = storageRoot + "orders";
     public static final Path ordersPath = Paths.get(ordersFolder);
     public static final Path orderedPath = ordersPath.resolve("ordered");//orders/ordered to store orders at Ordered state
     public static final Path progressingPath = ordersPath.resolve("progressing");// orders/progressing to store orders at Progressing state
@@ -64,4 +78,8 @@ public class StorageLocation {
     //OrderCounter File and its Path, ie orders/orderCounter.txt
     public static final String orderCounterFile = "orderCounter.txt";
     public static final Path orderCounterPath = ordersPath.resolve(orderCounterFile);
+
+    private static String withTrailingSlash(String folder) {
+        return folder.isEmpty() || folder.endsWith("/") ? folder : folder + "/";
+    }
 }
@@ -0,0 +1,74 @@
+package ci553.happyshop.utility;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * This class centralizes the date/time formats used across the system and turns epoch-millis
+ * timestamps into display strings.
+ *
+ * <p>Orders store their lifecycle times as epoch-millis {@code long}s (see {@code Order}) and only
+ * format them when they are shown in a receipt, written to an order file, or logged.
+ * The formatters are compiled once here instead of calling {@code DateTimeFormatter.ofPattern(...)}
+ * on every order and state change.</p>
+ *
+ * <p>Many orders are created and moved within the same second, so the last formatted second is
+ * cached. A hit costs a volatile read and a compare; a miss formats once and replaces the cache.
+ * The cache holder is immutable, so readers on different threads never see a half-updated pair.</p>
+ *
+ * <p>{@link #monotonicNanos()} is the clock used to measure latency between lifecycle stages.
+ * Unlike wall-clock time it never jumps backwards, so differences between two readings are exact.</p>
+ */
+
+public final class TimestampFormatter {
+
+    // eg. 2025-03-11 19:53:45, used in order files and receipts
+    public static final DateTimeFormatter ORDER_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // eg. 2025-03-11 19:53, used in the warehouse manage-history window
+    public static final DateTimeFormatter HISTORY_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    // The last second formatted with ORDER_DATE_TIME and its text
+    private static volatile CachedSecond lastSecond = new CachedSecond(Long.MIN_VALUE, "");
+
+    private TimestampFormatter() {
+        throw new UnsupportedOperationException("final_static class does not have object");
+    }
+
+    /**
+     * Formats an epoch-millis timestamp as "yyyy-MM-dd HH:mm:ss".
+     * A value of 0 means "not happened yet" and is formatted as an empty string,
+     * matching the blank ProgressingDateTime/CollectedDateTime lines of a new order file.
+     *
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @return the formatted date/time, or "" for 0
+     */
+    public static String formatOrderTime(long epochMillis) {
+        if (epochMillis == 0) {
+            return "";
+        }
+        long second = Math.floorDiv(epochMillis, 1000);
+        CachedSecond cached = lastSecond;
+        if (cached.second == second) {
+            return cached.text;
+        }
+        String text = ORDER_DATE_TIME.format(Instant.ofEpochSecond(second));
+        lastSecond = new CachedSecond(second, text);
+        return text;
+    }
+
+    // Formats the current time for the warehouse manage-history window
+    public static String formatHistoryTime(long epochMillis) {
+        return HISTORY_DATE_TIME.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    // Monotonic clock for measuring the time between two lifecycle stages
+    public static long monotonicNanos() {
+        return System.nanoTime();
+    }
+
+    private record CachedSecond(long second, String text) {}
+}
@@ -3,6 +3,9 @@ module ci553.happyshop {
     requires javafx.fxml;
     requires java.sql;
     requires javafx.graphics;
+    requires jdk.httpserver;
+    requires java.desktop;
+    requires jdk.jfr;
 
     opens ci553.happyshop to javafx.fxml;
     opens ci553.happyshop.client to javafx.fxml;
@@ -19,5 +22,7 @@ module ci553.happyshop {
     exports ci553.happyshop.client.orderTracker;
     exports ci553.happyshop.client.emergency;
     exports ci553.happyshop.systemSetup;
+    exports ci553.happyshop.metrics;
+    exports ci553.happyshop.profiling;
 
 }
\ No newline at end of file